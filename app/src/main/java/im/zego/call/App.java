@@ -4,6 +4,7 @@ import android.app.Application;
 import com.blankj.utilcode.util.Utils;
 import com.tencent.mmkv.MMKV;
 import im.zego.call.auth.AuthInfoManager;
+import im.zego.call.http.CallApi;
 import im.zego.callsdk.service.ZegoRoomManager;
 
 public class App extends Application {
@@ -12,11 +13,14 @@ public class App extends Application {
     public void onCreate() {
         super.onCreate();
         Utils.init(this);
+        // DNS, TCP and TLS to the API server overlap the rest of the startup instead of delaying the first login
+        CallApi.preconnect();
         AuthInfoManager.getInstance().init(this);
 
         MMKV.initialize(this);
 
         long appID = AuthInfoManager.getInstance().getAppID();
         ZegoRoomManager.getInstance().init(appID, this);
+        ZegoRoomManager.getInstance().setTokenProvider(AuthInfoManager.getInstance()::renewToken);
     }
 }
@@ -15,6 +15,8 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 
 import im.zego.callsdk.auth.TokenServerAssistant;
+import im.zego.callsdk.auth.TokenServerAssistant.ErrorCode;
+import im.zego.callsdk.auth.TokenServerAssistant.TokenInfo;
 
 public class AuthInfoManager {
 
@@ -35,6 +37,10 @@ public class AuthInfoManager {
     private long appID;
 
     private static final String TAG = "AuthInfoManager";
+    private static final int TOKEN_EFFECTIVE_SECONDS = 60 * 60 * 24;
+
+    // tokens for ZIM login and RTC rooms, the only kind of token this app uses
+    private final TokenCache tokenCache = new TokenCache(this::createToken, TOKEN_EFFECTIVE_SECONDS * 1000L);
 
     public long getAppID() {
         return appID;
@@ -80,12 +86,35 @@ public class AuthInfoManager {
         }
     }
 
+    /**
+     * @return a valid token of the user, from the cache if there is one.
+     */
     public String generateToken(String userID) {
-        try {
-            return TokenServerAssistant.generateToken(appID, userID, serverSecret, 60 * 60 * 24).data;
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return "";
+        return tokenCache.get(userID);
+    }
+
+    /**
+     * generate the token of the user in background, so it is ready when {@link #generateToken} is called.
+     */
+    public void prefetchToken(String userID) {
+        tokenCache.prefetch(userID);
+    }
+
+    /**
+     * For renewing a token that is about to expire. The cache generates the next token in background ahead of the
+     * expiry, so this normally returns at once, a token is generated on the calling thread only if none is valid.
+     *
+     * @return a valid token of the user that replaces the expiring one.
+     */
+    public String renewToken(String userID) {
+        return tokenCache.get(userID);
+    }
+
+    private String createToken(String userID) {
+        TokenInfo tokenInfo = TokenServerAssistant.generateToken(appID, userID, serverSecret, TOKEN_EFFECTIVE_SECONDS);
+        if (tokenInfo.error.code != ErrorCode.SUCCESS) {
+            Log.e(TAG, "createToken: " + tokenInfo.error);
         }
+        return tokenInfo.data;
     }
 }
\ No newline at end of file
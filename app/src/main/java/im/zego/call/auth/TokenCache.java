@@ -0,0 +1,161 @@
+package im.zego.call.auth;
+
+import android.os.SystemClock;
+import android.util.Log;
+import im.zego.callsdk.auth.TokenVerifier;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens of one purpose keyed by userID, so the JSON building, AES encryption and Base64 encoding of a token is done
+ * once per validity period instead of on every call.
+ * <p>
+ * A cached token is returned as long as it is valid for at least {@link #MIN_REMAINING_MILLIS}. Once less than
+ * {@link #REFRESH_AHEAD_MILLIS} is left, a new one is generated in background and replaces it, both when the cached
+ * token is read and on a timer, so callers on the UI thread normally never wait for a token.
+ */
+public class TokenCache {
+
+    private static final String TAG = "TokenCache";
+
+    /**
+     * generate a new token in background when the cached one expires within this time.
+     */
+    public static final long REFRESH_AHEAD_MILLIS = 60 * 60 * 1000;
+    /**
+     * a token that expires within this time is never returned.
+     */
+    public static final long MIN_REMAINING_MILLIS = 5 * 60 * 1000;
+
+    // shared by all caches, token generation is rare and short
+    private static final ScheduledExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+            Thread thread = new Thread(runnable, "token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public interface TokenGenerator {
+
+        /**
+         * @return the token, or null or empty if it can not be generated.
+         */
+        String generate(String userID);
+    }
+
+    private final TokenGenerator generator;
+    private final long effectiveMillis;
+    private final ConcurrentHashMap<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * @param effectiveMillis how long the tokens of the generator are valid.
+     */
+    public TokenCache(TokenGenerator generator, long effectiveMillis) {
+        this.generator = generator;
+        this.effectiveMillis = effectiveMillis;
+    }
+
+    /**
+     * @return a valid token of the user, generated on the calling thread only if none is cached.
+     */
+    public String get(String userID) {
+        CachedToken cached = tokens.get(userID);
+        long now = SystemClock.elapsedRealtime();
+        if (cached != null && cached.expireTime - now >= MIN_REMAINING_MILLIS) {
+            if (cached.expireTime - now < REFRESH_AHEAD_MILLIS) {
+                refreshAsync(userID);
+            }
+            return cached.token;
+        }
+        return generate(userID);
+    }
+
+    /**
+     * Generate a token of the user in background if there is no fresh one, e.g. while waiting for the login that
+     * needs it.
+     */
+    public void prefetch(String userID) {
+        CachedToken cached = tokens.get(userID);
+        if (cached == null || cached.expireTime - SystemClock.elapsedRealtime() < REFRESH_AHEAD_MILLIS) {
+            refreshAsync(userID);
+        }
+    }
+
+    public void invalidate(String userID) {
+        tokens.remove(userID);
+    }
+
+    public void clear() {
+        tokens.clear();
+    }
+
+    private void refreshAsync(String userID) {
+        if (!refreshing.add(userID)) {
+            return;
+        }
+        REFRESH_EXECUTOR.execute(() -> {
+            try {
+                generate(userID);
+            } finally {
+                refreshing.remove(userID);
+            }
+        });
+    }
+
+    private String generate(String userID) {
+        // the token must not outlive its cache entry, so take the time before generating it
+        long startTime = SystemClock.elapsedRealtime();
+        String token = generator.generate(userID);
+        if (token == null || token.isEmpty()) {
+            Log.w(TAG, "generate token of " + userID + " failed");
+            return "";
+        }
+        CachedToken cached = new CachedToken(token, expireTimeOf(token, startTime));
+        tokens.put(userID, cached);
+        scheduleRefresh(userID, cached);
+        return token;
+    }
+
+    // refresh ahead even if nobody reads the token, so the one handed out on expiry is already generated
+    private void scheduleRefresh(String userID, CachedToken cached) {
+        long delay = cached.expireTime - REFRESH_AHEAD_MILLIS - SystemClock.elapsedRealtime();
+        if (delay <= 0) {
+            // too short-lived to refresh ahead on a timer, it would be generated again and again
+            return;
+        }
+        REFRESH_EXECUTOR.schedule(() -> {
+            // skip tokens that were replaced, invalidated or cleared meanwhile
+            if (tokens.get(userID) == cached) {
+                refreshAsync(userID);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return when the token expires on the elapsedRealtime clock, read from the token itself if possible.
+     */
+    private long expireTimeOf(String token, long startTime) {
+        long expireTime = TokenVerifier.peekExpireTime(token);
+        if (expireTime == TokenVerifier.UNKNOWN_EXPIRE_TIME) {
+            return startTime + effectiveMillis;
+        }
+        long remaining = expireTime * 1000 - System.currentTimeMillis();
+        return Math.min(SystemClock.elapsedRealtime() + remaining, startTime + effectiveMillis);
+    }
+
+    private static class CachedToken {
+
+        final String token;
+        final long expireTime;
+
+        CachedToken(String token, long expireTime) {
+            this.token = token;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -2,21 +2,47 @@ package im.zego.call.http;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.google.gson.Gson;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
 import org.jetbrains.annotations.NotNull;
 
 
@@ -26,153 +52,403 @@ public class APIBase {
 
     private static Gson mGson = new Gson();
     private static final Handler okHandler = new Handler(Looper.getMainLooper());
+    // runs the callbacks, the main thread outside of tests
+    private static volatile Executor deliveryExecutor = okHandler::post;
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
+    /**
+     * Keep {@code data} as a {@link JsonObject}, for callers that still pick the fields by hand.
+     */
+    public static final IResponseParser<JsonObject> JSON_OBJECT_PARSER = reader ->
+        JsonParser.parseReader(reader).getAsJsonObject();
+
+    /**
+     * Skip {@code data}, for requests whose result is the error code only.
+     */
+    public static final IResponseParser<Void> IGNORE_PARSER = reader -> {
+        reader.skipValue();
+        return null;
+    };
+
+    // requests in flight that identical requests join, keyed by url and body, guarded by sharedLock
+    private static final Map<RequestKey, List<IAsyncGetCallback<?>>> sharedCalls = new HashMap<>();
+    // recent successful responses of shared requests, guarded by sharedLock
+    private static final Map<RequestKey, CachedResponse> responseCache = new HashMap<>();
+    private static final Object sharedLock = new Object();
+
+    // retry and hedge policies keyed by url path
+    private static final ConcurrentHashMap<String, RequestPolicy> requestPolicies = new ConcurrentHashMap<>();
+    private static final ResilienceMetrics resilienceMetrics = new ResilienceMetrics();
+    // starts the retries after their backoff and the hedged requests, never the main thread
+    private static final ScheduledExecutorService resilienceScheduler = Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+            Thread thread = new Thread(runnable, "api-resilience");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     public static class OkHttpInstance {
 
         private volatile static OkHttpInstance instance;
+        private static NetworkProfile networkProfile = NetworkProfile.defaultProfile();
+        private static final ConnectionMetrics connectionMetrics = new ConnectionMetrics();
         private OkHttpClient mOkHttpClient;
 
-        private OkHttpInstance() {
+        private OkHttpInstance(NetworkProfile profile) {
+            mOkHttpClient = newClient(profile, connectionMetrics);
+        }
+
+        static OkHttpClient newClient(NetworkProfile profile, ConnectionMetrics connectionMetrics) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(profile.maxRequests);
+            dispatcher.setMaxRequestsPerHost(profile.maxRequestsPerHost);
             OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .connectTimeout(15, TimeUnit.SECONDS)
-                .writeTimeout(20, TimeUnit.SECONDS)
-                .readTimeout(20, TimeUnit.SECONDS);
-            mOkHttpClient = builder.build();
+                .connectTimeout(profile.connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(profile.writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(profile.readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(profile.maxIdleConnections, profile.keepAliveMillis,
+                    TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .protocols(profile.http2Enabled ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                    : Collections.singletonList(Protocol.HTTP_1_1))
+                .eventListenerFactory(connectionMetrics)
+                .addInterceptor(new ResilienceInterceptor(resilienceMetrics));
+            if (profile.dnsCacheMillis > 0) {
+                builder.dns(new CachingDns(Dns.SYSTEM, profile.dnsCacheMillis));
+            }
+            return builder.build();
         }
 
         public static OkHttpClient getInstance() {
             if (instance == null) {
                 synchronized (OkHttpInstance.class) {
                     if (instance == null) {
-                        instance = new OkHttpInstance();
+                        instance = new OkHttpInstance(networkProfile);
                     }
                 }
             }
             return instance.mOkHttpClient;
         }
 
+        /**
+         * Set the profile the client is built with, it has no effect once the client is built by the first request.
+         */
+        public static synchronized void setNetworkProfile(NetworkProfile profile) {
+            if (instance != null) {
+                Log.w(TAG, "setNetworkProfile: client is already built, profile ignored");
+                return;
+            }
+            networkProfile = profile;
+        }
+
+        public static NetworkProfile getNetworkProfile() {
+            return networkProfile;
+        }
+
+        public static ConnectionMetrics getConnectionMetrics() {
+            return connectionMetrics;
+        }
+
+        public static ResilienceMetrics getResilienceMetrics() {
+            return resilienceMetrics;
+        }
+
     }
 
-    public static <T> void asyncGet(@NotNull String url, final Class<T> classType,
-        final IAsyncGetCallback<T> reqCallback) {
+    /**
+     * Open a pooled connection to the host of the url in background, so the next request to it skips DNS, TCP and
+     * TLS. Does nothing if the profile disables preconnect.
+     */
+    public static void preconnect(String url) {
+        if (!OkHttpInstance.getNetworkProfile().preconnect) {
+            return;
+        }
         Request request = new Request.Builder()
             .url(url)
-            .get()
+            .head()
             .build();
-
         OkHttpInstance.getInstance().newCall(request).enqueue(new Callback() {
             @Override
-            public void onResponse(@NotNull Call call, @NotNull final Response response) {
-                try {
-                    String str = response.body().string();
-                    JsonObject jsonObject = JsonParser.parseString(str).getAsJsonObject();
-                    int code = jsonObject.get("code").getAsInt();
-                    String message = jsonObject.get("message").getAsString();
-                    JsonObject dataJson = jsonObject.get("data").getAsJsonObject();
-                    if (reqCallback != null) {
-                        okHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                T bean = mGson.fromJson(dataJson, classType);
-                                reqCallback.onResponse(code, message, bean);
-                            }
-                        });
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    if (reqCallback != null) {
-                        okHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                reqCallback
-                                    .onResponse(ErrorcodeConstants.ErrorJSONFormatInvalid, e.getMessage(), null);
-                            }
-                        });
-                    }
-                }
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.d(TAG, "preconnect to " + url + " failed: " + e);
             }
 
             @Override
-            public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                Log.d(TAG, "onFailure: " + e.getMessage());
-                if (reqCallback != null) {
-                    okHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            reqCallback.onResponse(ErrorcodeConstants.ErrorFailNetwork, "Network exception", null);
-                        }
-                    });
-                }
-
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                // the connection is returned to the pool once the response is closed
+                response.close();
+                Log.d(TAG, "preconnect to " + url + " done, " + response.protocol());
             }
         });
     }
 
+    /**
+     * Set how failures of requests to the endpoint of the url are handled, requests without a policy are neither
+     * retried nor hedged. Every endpoint is guarded by a circuit breaker whatever its policy.
+     */
+    public static void setRequestPolicy(String url, RequestPolicy policy) {
+        requestPolicies.put(HttpUrl.get(url).encodedPath(), policy);
+    }
+
+    private static RequestPolicy requestPolicyOf(HttpUrl url) {
+        RequestPolicy policy = requestPolicies.get(url.encodedPath());
+        return policy == null ? RequestPolicy.DEFAULT : policy;
+    }
+
+    /**
+     * @return a parser that binds {@code data} to the given class with Gson.
+     */
+    public static <T> IResponseParser<T> parserOf(Class<T> classType) {
+        TypeAdapter<T> adapter = mGson.getAdapter(classType);
+        return adapter::read;
+    }
+
+    public static <T> void asyncGet(@NotNull String url, final Class<T> classType,
+        final IAsyncGetCallback<T> reqCallback) {
+        Request request = new Request.Builder()
+            .url(url)
+            .get()
+            .build();
+        enqueue(request, parserOf(classType), reqCallback);
+    }
+
     public static <T> void asyncPost(String url, String json, final Class<T> classType,
         final IAsyncGetCallback<T> reqCallback) {
-        asyncPost(url, json, (errorCode, message, response) -> {
-            T bean = mGson.fromJson(response, classType);
-            reqCallback.onResponse(errorCode, message, bean);
-        });
+        asyncPost(url, json, parserOf(classType), reqCallback);
     }
 
-    public static <T> void asyncPost(String url, String json, final IAsyncGetCallback<JsonObject> reqCallback) {
-        Log.d(TAG,
-            "asyncPost() called with: url = [" + url + "], json = [" + json + "], reqCallback = [" + reqCallback + "]");
+    public static void asyncPost(String url, String json, final IAsyncGetCallback<JsonObject> reqCallback) {
+        asyncPost(url, json, JSON_OBJECT_PARSER, reqCallback);
+    }
+
+    /**
+     * Write a json object body with a streaming writer into an okio buffer, whose segments come from okio's pool,
+     * without building a json tree or an intermediate string.
+     */
+    public static ByteString jsonBody(IRequestWriter requestWriter) {
+        Buffer buffer = new Buffer();
+        try {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(buffer.outputStream(), StandardCharsets.UTF_8));
+            writer.beginObject();
+            requestWriter.write(writer);
+            writer.endObject();
+            writer.flush();
+        } catch (IOException e) {
+            // a Buffer never fails to write
+            throw new AssertionError(e);
+        }
+        return buffer.readByteString();
+    }
+
+    /**
+     * Post the json body, decode the response with the parser on the OkHttp thread, then deliver the result on the
+     * main thread.
+     */
+    public static <T> void asyncPost(String url, String json, final IResponseParser<T> parser,
+        final IAsyncGetCallback<T> reqCallback) {
+        asyncPost(url, ByteString.encodeUtf8(json), parser, reqCallback);
+    }
+
+    public static <T> void asyncPost(String url, ByteString json, final IResponseParser<T> parser,
+        final IAsyncGetCallback<T> reqCallback) {
+        Log.d(TAG, "asyncPost() called with: url = [" + url + "], body size = [" + json.size() + "], reqCallback = ["
+            + reqCallback + "]");
         RequestBody body = RequestBody.create(JSON, json);
         Request request = new Request.Builder()
             .url(url)
             .post(body)
             .build();
-        Call call = OkHttpInstance.getInstance().newCall(request);
-        call.enqueue(new Callback() {
-            @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                Log.d(TAG, "onFailure() called with: call = [" + call + "], e = [" + e + "]");
-                if (reqCallback != null) {
-                    okHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            reqCallback.onResponse(ErrorcodeConstants.ErrorFailNetwork, e.getMessage(), null);
-                        }
-                    });
+        enqueue(request, parser, reqCallback);
+    }
+
+    public static <T> void asyncPostShared(String url, String json, final IResponseParser<T> parser, long reuseMillis,
+        final IAsyncGetCallback<T> reqCallback) {
+        asyncPostShared(url, ByteString.encodeUtf8(json), parser, reuseMillis, reqCallback);
+    }
+
+    /**
+     * Like {@link #asyncPost(String, ByteString, IResponseParser, IAsyncGetCallback)}, but identical requests share
+     * one call: a request with the same url and body as one in flight only adds its callback to it, and every callback
+     * gets the same result. All callbacks then share the decoded object, so it must not be modified.
+     * <p>
+     * The parser only runs for the first request, side effects of it are not seen by the requests that join.
+     *
+     * @param reuseMillis a successful response is also reused by identical requests for this long, for idempotent
+     *                    reads only. 0 to share requests in flight only.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void asyncPostShared(String url, ByteString json, final IResponseParser<T> parser,
+        long reuseMillis, final IAsyncGetCallback<T> reqCallback) {
+        RequestKey key = new RequestKey(url, json);
+        synchronized (sharedLock) {
+            CachedResponse cached = responseCache.get(key);
+            if (cached != null && cached.expireTime > SystemClock.elapsedRealtime()) {
+                Log.d(TAG, "asyncPostShared: reuse response of " + url);
+                deliver(reqCallback, cached.code, cached.message, (T) cached.data);
+                return;
+            }
+            List<IAsyncGetCallback<?>> callbacks = sharedCalls.get(key);
+            if (callbacks != null) {
+                Log.d(TAG, "asyncPostShared: join request in flight to " + url);
+                callbacks.add(reqCallback);
+                return;
+            }
+            callbacks = new ArrayList<>(2);
+            callbacks.add(reqCallback);
+            sharedCalls.put(key, callbacks);
+        }
+        asyncPost(url, json, parser, (errorCode, message, response) -> {
+            List<IAsyncGetCallback<?>> callbacks;
+            synchronized (sharedLock) {
+                callbacks = sharedCalls.remove(key);
+                long now = SystemClock.elapsedRealtime();
+                Iterator<CachedResponse> iterator = responseCache.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().expireTime <= now) {
+                        iterator.remove();
+                    }
+                }
+                if (errorCode == 0 && reuseMillis > 0) {
+                    responseCache.put(key, new CachedResponse(now + reuseMillis, errorCode, message, response));
+                }
+            }
+            for (IAsyncGetCallback<?> callback : callbacks) {
+                if (callback != null) {
+                    ((IAsyncGetCallback<T>) callback).onResponse(errorCode, message, response);
                 }
+            }
+        });
+    }
 
+    private static <T> void enqueue(Request request, IResponseParser<T> parser, IAsyncGetCallback<T> reqCallback) {
+        Callback callback = new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                handleFailure(call, e, reqCallback);
             }
 
             @Override
             public void onResponse(@NonNull Call call, @NonNull Response response) {
-                try {
-                    String str = response.body().string();
-                    Log.d(TAG, "post to" + url + ",onResponse: " + str);
-                    JsonObject jsonObject = JsonParser.parseString(str).getAsJsonObject();
-                    int code = jsonObject.get("code").getAsInt();
-                    String message = jsonObject.get("message").getAsString();
-                    JsonElement data = jsonObject.get("data");
-                    JsonObject dataJson = (data == null) ? null : data.getAsJsonObject();
-                    if (reqCallback != null) {
-                        JsonObject finalDataJson = dataJson;
-                        okHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                reqCallback.onResponse(code, message, finalDataJson);
-                            }
-                        });
+                handleResponse(request, response, parser, reqCallback);
+            }
+        };
+        new ResilientCall(OkHttpInstance.getInstance(), request, requestPolicyOf(request.url()), resilienceScheduler,
+            resilienceMetrics, callback).start();
+    }
+
+    private static <T> void handleFailure(Call call, IOException e, IAsyncGetCallback<T> reqCallback) {
+        Log.d(TAG, "onFailure() called with: call = [" + call + "], e = [" + e + "]");
+        if (e instanceof CircuitOpenException) {
+            deliver(reqCallback, ErrorcodeConstants.ErrorCircuitOpen, "Service unavailable", null);
+        } else {
+            deliver(reqCallback, ErrorcodeConstants.ErrorFailNetwork, "Network exception", null);
+        }
+    }
+
+    private static <T> void handleResponse(Request request, Response response, IResponseParser<T> parser,
+        IAsyncGetCallback<T> reqCallback) {
+        try (ResponseBody body = response.body()) {
+            parseResponse(request, body, parser, reqCallback);
+        } catch (IOException | IllegalStateException | NumberFormatException | JsonParseException e) {
+            Log.d(TAG, "parse response of " + request.url() + " failed: " + e);
+            deliver(reqCallback, ErrorcodeConstants.ErrorJSONFormatInvalid, String.valueOf(e.getMessage()), null);
+        }
+    }
+
+    /**
+     * Stream the {@code {"code", "message", "data"}} envelope, {@code data} is handed to the parser without building
+     * an intermediate tree or string.
+     */
+    private static <T> void parseResponse(Request request, ResponseBody body, IResponseParser<T> parser,
+        IAsyncGetCallback<T> reqCallback) throws IOException {
+        if (body == null) {
+            throw new IOException("empty response body");
+        }
+        JsonReader reader = new JsonReader(body.charStream());
+        int code = ErrorcodeConstants.ErrorJSONFormatInvalid;
+        String message = "";
+        T data = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "code":
+                    code = reader.nextInt();
+                    break;
+                case "message":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        message = reader.nextString();
                     }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    if (reqCallback != null) {
-                        okHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                reqCallback
-                                    .onResponse(ErrorcodeConstants.ErrorJSONFormatInvalid, e.getMessage(), null);
-                            }
-                        });
+                    break;
+                case "data":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        data = parser.parse(reader);
                     }
-                }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
             }
-        });
+        }
+        reader.endObject();
+        Log.d(TAG, "request to " + request.url() + ",onResponse: code = " + code + ", message = " + message);
+        deliver(reqCallback, code, message, data);
+    }
+
+    // ByteString compares and hashes by content
+    private static class RequestKey {
+
+        final String url;
+        final ByteString body;
+
+        RequestKey(String url, ByteString body) {
+            this.url = url;
+            this.body = body;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey that = (RequestKey) o;
+            return url.equals(that.url) && body.equals(that.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * url.hashCode() + body.hashCode();
+        }
+    }
+
+    private static class CachedResponse {
+
+        final long expireTime;
+        final int code;
+        final String message;
+        final Object data;
+
+        CachedResponse(long expireTime, int code, String message, Object data) {
+            this.expireTime = expireTime;
+            this.code = code;
+            this.message = message;
+            this.data = data;
+        }
+    }
+
+    private static <T> void deliver(IAsyncGetCallback<T> reqCallback, int code, String message, T data) {
+        if (reqCallback != null) {
+            deliveryExecutor.execute(() -> reqCallback.onResponse(code, message, data));
+        }
+    }
+
+    static void setDeliveryExecutor(Executor executor) {
+        deliveryExecutor = executor;
     }
 }
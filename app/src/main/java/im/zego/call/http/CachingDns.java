@@ -0,0 +1,67 @@
+package im.zego.call.http;
+
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import okhttp3.Dns;
+
+/**
+ * In-process DNS cache in front of another {@link Dns}. Expired entries are still used if resolving fails, e.g.
+ * while the network is switching.
+ */
+public class CachingDns implements Dns {
+
+    private static final String TAG = "CachingDns";
+
+    private final Dns delegate;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public CachingDns(Dns delegate, long ttlMillis) {
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        return lookup(hostname, SystemClock.elapsedRealtime());
+    }
+
+    List<InetAddress> lookup(String hostname, long now) throws UnknownHostException {
+        Entry entry = cache.get(hostname);
+        if (entry != null && entry.expireTime > now) {
+            return entry.addresses;
+        }
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            cache.put(hostname, new Entry(addresses, now + ttlMillis));
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null) {
+                Log.d(TAG, "lookup " + hostname + " failed, use expired addresses");
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static class Entry {
+
+        final List<InetAddress> addresses;
+        final long expireTime;
+
+        Entry(List<InetAddress> addresses, long expireTime) {
+            this.addresses = addresses;
+            this.expireTime = expireTime;
+        }
+    }
+}
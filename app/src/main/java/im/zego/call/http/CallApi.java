@@ -2,123 +2,112 @@ package im.zego.call.http;
 
 import android.net.Uri;
 import android.util.Log;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.reflect.TypeToken;
 import im.zego.call.http.bean.UserBean;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
+import im.zego.call.http.bean.UserPage;
+import okio.ByteString;
 
 public class CallApi {
 
     private static final String TAG = "CallApi";
     private static final String baseUrl = "https://demo-server-api.zegocloud.com";
-    private static Gson gson = new Gson();
+
+    // endpoint urls, resolved once instead of on every call
+    private static final String CREATE_USER_URL = endpoint("v1/user/create_user");
+    private static final String USER_LIST_URL = endpoint("v1/user/get_user_list");
+    private static final String LOGIN_URL = endpoint("v1/user/login");
+    private static final String LOGOUT_URL = endpoint("v1/user/logout");
+    private static final String HEARTBEAT_URL = endpoint("v1/user/heartbeat");
+    // the only user type of this demo
+    private static final int USER_TYPE = 1;
+    /**
+     * how long a successfully loaded user list page is reused by identical requests.
+     */
+    public static final long USER_LIST_REUSE_MILLIS = 1000;
 
     public static final int PARAM_ERROR = 4;
     public static final int USER_OFFLINE_1 = 80001;
     public static final int USER_OFFLINE_2 = 80002;
     public static final int SYSTEM_ERROR = 100000;
 
+    static {
+        // heartbeat and user list are idempotent. A heartbeat decides the online state, its one extra request is a
+        // hedge when it is slow or a retry when it failed. login and logout are never sent twice
+        APIBase.setRequestPolicy(HEARTBEAT_URL, new RequestPolicy(1, 3000));
+        APIBase.setRequestPolicy(USER_LIST_URL, new RequestPolicy(2, 0));
+    }
+
+    private static String endpoint(String path) {
+        return Uri.parse(baseUrl).buildUpon().appendEncodedPath(path).build().toString();
+    }
+
+    /**
+     * warm up the connection to the API server, call it as early as possible, e.g. when the app starts.
+     */
+    public static void preconnect() {
+        APIBase.preconnect(baseUrl);
+    }
+
     public static void createUser(IAsyncGetCallback<String> reqCallback) {
-        Uri.Builder builder = Uri.parse(baseUrl).buildUpon();
-        builder.appendEncodedPath("v1/user/create_user");
-        String url = builder.build().toString();
-
-        JsonObject jsonObject = new JsonObject();
-        jsonObject.addProperty("type", 1);
-        String json = jsonObject.toString();
-        APIBase.asyncPost(url, json, (errorCode, message, response) -> {
-            String string = "";
-            if (response != null && response.get("id") != null) {
-                JsonElement element = response.get("id");
-                string = element.getAsString();
+        ByteString body = APIBase.jsonBody(writer -> writer.name("type").value(USER_TYPE));
+        APIBase.asyncPost(CREATE_USER_URL, body, UserListDecoder::readUser, (errorCode, message, response) -> {
+            if (response != null && response.userID != null) {
                 if (reqCallback != null) {
-                    reqCallback.onResponse(errorCode, message, string);
+                    reqCallback.onResponse(errorCode, message, response.userID);
                 }
             } else {
                 if (reqCallback != null) {
-                    reqCallback.onResponse(ErrorcodeConstants.ErrorJSONFormatInvalid, message, string);
+                    reqCallback.onResponse(ErrorcodeConstants.ErrorJSONFormatInvalid, message, "");
                 }
             }
         });
     }
 
-    public static void getUserList(int pageNum, String from, int direct, IAsyncGetCallback<List<UserBean>> callback) {
-        Uri.Builder builder = Uri.parse(baseUrl).buildUpon();
-        builder.appendEncodedPath("v1/user/get_user_list");
-        String url = builder.build().toString();
-
-        JsonObject jsonObject = new JsonObject();
-        jsonObject.addProperty("page_num", pageNum);
-        jsonObject.addProperty("from", from);
-        jsonObject.addProperty("direct", direct);
-        jsonObject.addProperty("type", 1);
-        String json = jsonObject.toString();
-        APIBase.asyncPost(url, json, (errorCode, message, response) -> {
-            if (errorCode == 0) {
-                if (response != null && response.get("user_list") != null) {
-                    JsonElement element = response.get("user_list");
-                    JsonArray userArray = element.getAsJsonArray();
-                    Type userListType = new TypeToken<ArrayList<UserBean>>() {
-                    }.getType();
-                    ArrayList<UserBean> userList = gson.fromJson(userArray, userListType);
-                    if (callback != null) {
-                        callback.onResponse(errorCode, message, userList);
-                    }
-                } else {
-                    if (callback != null) {
-                        callback.onResponse(ErrorcodeConstants.ErrorJSONFormatInvalid, message, null);
-                    }
-                }
-            } else {
-                if (callback != null) {
-                    callback.onResponse(errorCode, message, null);
-                }
-            }
-        });
+    /**
+     * Request a page of online users, the users are streamed to the sink on the OkHttp thread while the response is
+     * parsed, the callback then gets the summary of the page on the main thread.
+     * <p>
+     * Identical requests in flight share one call, and a successful page is reused for
+     * {@link #USER_LIST_REUSE_MILLIS}. A request that joined a shared call gets the users in its sink on the main
+     * thread, right before its callback. The summary is shared between the requests and must not be modified.
+     */
+    public static void getUserList(int pageNum, String from, int direct, IUserPageSink sink,
+        IAsyncGetCallback<UserPage> callback) {
+        SharedUserPage.post(USER_LIST_URL, getUserListBody(pageNum, from, direct), USER_LIST_REUSE_MILLIS, sink,
+            callback);
+    }
+
+    private static ByteString getUserListBody(int pageNum, String from, int direct) {
+        return APIBase.jsonBody(writer -> writer
+            .name("page_num").value(pageNum)
+            .name("from").value(from)
+            .name("direct").value(direct)
+            .name("type").value(USER_TYPE));
+    }
+
+    // {"id": userID, "type": 1}, the body of every request about one user
+    private static ByteString getUserBody(String userID) {
+        return APIBase.jsonBody(writer -> writer
+            .name("id").value(userID)
+            .name("type").value(USER_TYPE));
     }
 
     public static void login(String name, String userID, IAsyncGetCallback<UserBean> callback) {
         Log.d(TAG, "login() called with: name = [" + name + "], id = [" + userID + "], callback = [" + callback + "]");
-        Uri.Builder builder = Uri.parse(baseUrl).buildUpon();
-        builder.appendEncodedPath("v1/user/login");
-        String url = builder.build().toString();
-
-        JsonObject jsonObject = new JsonObject();
-        jsonObject.addProperty("name", name);
-        jsonObject.addProperty("id", userID);
-        jsonObject.addProperty("type", 1);
-        String json = jsonObject.toString();
-
-        APIBase.asyncPost(url, json, (errorCode, message, response) -> {
-            if (response != null) {
-                UserBean userBean = gson.fromJson(response, UserBean.class);
-                if (callback != null) {
-                    callback.onResponse(errorCode, message, userBean);
-                }
-            } else {
-                if (callback != null) {
-                    callback.onResponse(errorCode, message, null);
-                }
+        ByteString body = APIBase.jsonBody(writer -> writer
+            .name("name").value(name)
+            .name("id").value(userID)
+            .name("type").value(USER_TYPE));
+
+        // login is not idempotent, every call is sent on its own and never coalesced
+        APIBase.asyncPost(LOGIN_URL, body, UserListDecoder::readUser, (errorCode, message, response) -> {
+            if (callback != null) {
+                callback.onResponse(errorCode, message, response);
             }
         });
     }
 
     public static void logout(String userID, IAsyncGetCallback<String> callback) {
-        Uri.Builder builder = Uri.parse(baseUrl).buildUpon();
-        builder.appendEncodedPath("v1/user/logout");
-        String url = builder.build().toString();
-
-        JsonObject jsonObject = new JsonObject();
-        jsonObject.addProperty("id", userID);
-        jsonObject.addProperty("type", 1);
-        String json = jsonObject.toString();
-
-        APIBase.asyncPost(url, json, (errorCode, message, response) -> {
+        APIBase.asyncPost(LOGOUT_URL, getUserBody(userID), APIBase.IGNORE_PARSER, (errorCode, message, response) -> {
             if (errorCode == 0) {
                 WebClientManager.getInstance().stopHeartBeat();
             }
@@ -129,19 +118,12 @@ public class CallApi {
     }
 
     public static void heartBeat(String userID, IAsyncGetCallback<String> callback) {
-        Uri.Builder builder = Uri.parse(baseUrl).buildUpon();
-        builder.appendEncodedPath("v1/user/heartbeat");
-        String url = builder.build().toString();
-
-        JsonObject jsonObject = new JsonObject();
-        jsonObject.addProperty("id", userID);
-        jsonObject.addProperty("type", 1);
-        String json = jsonObject.toString();
-
-        APIBase.asyncPost(url, json, (errorCode, message, response) -> {
-            if (callback != null) {
-                callback.onResponse(errorCode, message, "");
-            }
-        });
+        // the timer and foreground checks may beat at the same time, they share one request
+        APIBase.asyncPostShared(HEARTBEAT_URL, getUserBody(userID), APIBase.IGNORE_PARSER, 0,
+            (errorCode, message, response) -> {
+                if (callback != null) {
+                    callback.onResponse(errorCode, message, "");
+                }
+            });
     }
 }
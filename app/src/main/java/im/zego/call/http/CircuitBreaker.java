@@ -0,0 +1,96 @@
+package im.zego.call.http;
+
+import android.os.SystemClock;
+
+/**
+ * Stop sending requests to an endpoint after consecutive failures.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects every request for
+ * {@code openMillis}. Then a single trial request is let through: its success closes the breaker, its failure opens it
+ * again.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 10 * 1000;
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedTime;
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return false if the request must not be sent.
+     */
+    public boolean allowRequest() {
+        return allowRequest(SystemClock.elapsedRealtime());
+    }
+
+    synchronized boolean allowRequest(long now) {
+        switch (state) {
+            case OPEN:
+                if (now - openedTime < openMillis) {
+                    return false;
+                }
+                // let one trial request through
+                state = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+                // the trial request is still running
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * @return true if this failure opened the breaker.
+     */
+    public boolean onFailure() {
+        return onFailure(SystemClock.elapsedRealtime());
+    }
+
+    synchronized boolean onFailure(long now) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedTime = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * a request let through was cancelled without a result, a trial request is allowed again.
+     */
+    public void onCancel() {
+        onCancel(SystemClock.elapsedRealtime());
+    }
+
+    synchronized void onCancel(long now) {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedTime = now - openMillis;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package im.zego.call.http;
+
+import java.io.IOException;
+
+/**
+ * The request was not sent because the circuit breaker of its endpoint is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String endpoint) {
+        super("circuit open for " + endpoint);
+    }
+}
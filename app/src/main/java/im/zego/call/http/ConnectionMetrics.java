@@ -0,0 +1,99 @@
+package im.zego.call.http;
+
+import androidx.annotation.NonNull;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+/**
+ * Count how often calls reuse a pooled connection instead of opening a new one, and how long new connections take.
+ */
+public class ConnectionMetrics implements EventListener.Factory {
+
+    private final AtomicLong reusedConnections = new AtomicLong();
+    private final AtomicLong newConnections = new AtomicLong();
+    private final AtomicLong connectTimeMillis = new AtomicLong();
+    private final AtomicLong dnsLookups = new AtomicLong();
+
+    @NonNull
+    @Override
+    public EventListener create(@NonNull Call call) {
+        return new CallListener();
+    }
+
+    public long getReusedConnections() {
+        return reusedConnections.get();
+    }
+
+    public long getNewConnections() {
+        return newConnections.get();
+    }
+
+    public long getDnsLookups() {
+        return dnsLookups.get();
+    }
+
+    /**
+     * @return the fraction of calls that were served by a pooled connection.
+     */
+    public float getReuseRatio() {
+        long reused = reusedConnections.get();
+        long total = reused + newConnections.get();
+        return total == 0 ? 0 : (float) reused / total;
+    }
+
+    /**
+     * @return average time of DNS, TCP and TLS for a new connection.
+     */
+    public long getAverageConnectMillis() {
+        long count = newConnections.get();
+        return count == 0 ? 0 : connectTimeMillis.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionMetrics{" +
+            "reused=" + reusedConnections.get() +
+            ", new=" + newConnections.get() +
+            ", dnsLookups=" + dnsLookups.get() +
+            ", averageConnectMillis=" + getAverageConnectMillis() +
+            '}';
+    }
+
+    // one instance per call, so it can tell whether the call had to connect
+    private class CallListener extends EventListener {
+
+        private long connectStartTime;
+        private boolean connected;
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsLookups.incrementAndGet();
+            if (connectStartTime == 0) {
+                connectStartTime = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+            @NonNull Proxy proxy) {
+            connected = true;
+            if (connectStartTime == 0) {
+                connectStartTime = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+            if (connected) {
+                newConnections.incrementAndGet();
+                connectTimeMillis.addAndGet((System.nanoTime() - connectStartTime) / 1_000_000);
+            } else {
+                reusedConnections.incrementAndGet();
+            }
+        }
+    }
+}
@@ -5,5 +5,7 @@ public class ErrorcodeConstants {
 
     public static final int ErrorJSONFormatInvalid = -1;
     public static final int ErrorFailNetwork = -2;
+    // the endpoint failed repeatedly, the request was not sent
+    public static final int ErrorCircuitOpen = -3;
 
 }
@@ -0,0 +1,67 @@
+package im.zego.call.http;
+
+import androidx.annotation.NonNull;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserDelta;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Stand-in {@link IUserDeltaSource} for a server without a since-cursor: it pulls all pages and diffs them against the
+ * snapshot locally. The download is not smaller, but the directory and the UI only see what changed.
+ */
+public class FullPullDeltaSource implements IUserDeltaSource {
+
+    private final UserListPager pager;
+
+    /**
+     * @param pager used for the pulls only, starting another load on it would cancel a running pull
+     */
+    public FullPullDeltaSource(UserListPager pager) {
+        this.pager = pager;
+    }
+
+    @Override
+    public void fetchDelta(String cursor, Map<String, UserBean> snapshot, IAsyncGetCallback<UserDelta> callback) {
+        pager.start(null, new IUserListCallback() {
+            @Override
+            public void onPage(List<UserBean> page, List<UserBean> users) {
+            }
+
+            @Override
+            public void onComplete(int errorCode, @NonNull String message, List<UserBean> users) {
+                if (errorCode != 0) {
+                    callback.onResponse(errorCode, message, null);
+                    return;
+                }
+                callback.onResponse(errorCode, message, diff(snapshot, users));
+            }
+        });
+    }
+
+    /**
+     * @return the delta that turns the snapshot into the given full list.
+     */
+    public static UserDelta diff(Map<String, UserBean> snapshot, List<UserBean> users) {
+        UserDelta delta = new UserDelta();
+        Set<String> online = new HashSet<>(users.size() * 2);
+        for (UserBean userBean : users) {
+            online.add(userBean.userID);
+            UserBean old = snapshot.get(userBean.userID);
+            if (old == null || !Objects.equals(old.userName, userBean.userName)
+                || !Objects.equals(old.order, userBean.order)) {
+                delta.upserted.add(userBean);
+            }
+        }
+        for (String userID : snapshot.keySet()) {
+            if (!online.contains(userID)) {
+                delta.removed.add(userID);
+            }
+        }
+        delta.cursor = users.isEmpty() ? null : users.get(users.size() - 1).order;
+        return delta;
+    }
+}
@@ -0,0 +1,98 @@
+package im.zego.call.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decide when the next heartbeat is due.
+ * <p>
+ * The interval is tightened while a call is ringing, so a missed presence does not drop the call, and backed off step
+ * by step while the app is idle in background, to save radio wakeups. Every interval is jittered so clients that
+ * came online together do not beat together.
+ */
+public class HeartbeatPolicy {
+
+    public static final long DEFAULT_FOREGROUND_INTERVAL = 15 * 1000;
+    public static final long DEFAULT_RINGING_INTERVAL = 5 * 1000;
+    public static final long DEFAULT_BACKGROUND_MAX_INTERVAL = 45 * 1000;
+    public static final float DEFAULT_JITTER = 0.1f;
+
+    private final long foregroundInterval;
+    private final long ringingInterval;
+    private final long backgroundMaxInterval;
+    private final float jitter;
+
+    private volatile boolean foreground = true;
+    private volatile boolean ringing;
+    // heartbeats scheduled since the app went to background, guarded by this
+    private int backgroundBeats;
+
+    public HeartbeatPolicy() {
+        this(DEFAULT_FOREGROUND_INTERVAL, DEFAULT_RINGING_INTERVAL, DEFAULT_BACKGROUND_MAX_INTERVAL, DEFAULT_JITTER);
+    }
+
+    /**
+     * @param jitter the interval is randomized by up to this fraction in both directions
+     */
+    public HeartbeatPolicy(long foregroundInterval, long ringingInterval, long backgroundMaxInterval, float jitter) {
+        this.foregroundInterval = foregroundInterval;
+        this.ringingInterval = ringingInterval;
+        this.backgroundMaxInterval = Math.max(foregroundInterval, backgroundMaxInterval);
+        this.jitter = jitter;
+    }
+
+    public synchronized void setForeground(boolean foreground) {
+        this.foreground = foreground;
+        backgroundBeats = 0;
+    }
+
+    public void setRinging(boolean ringing) {
+        this.ringing = ringing;
+    }
+
+    /**
+     * @return the interval without jitter and without advancing the background backoff.
+     */
+    public synchronized long currentInterval() {
+        return interval(backgroundBeats);
+    }
+
+    /**
+     * @return the jittered current interval in milliseconds, for rescheduling a heartbeat that has not been sent
+     * yet, does not advance the background backoff.
+     */
+    public long currentDelay() {
+        return jittered(currentInterval());
+    }
+
+    /**
+     * Call it once for every heartbeat actually sent.
+     *
+     * @return the delay before the heartbeat after it in milliseconds, advances the background backoff.
+     */
+    public synchronized long nextDelay() {
+        long interval = interval(backgroundBeats);
+        if (!foreground && !ringing && interval < backgroundMaxInterval) {
+            backgroundBeats++;
+        }
+        return jittered(interval);
+    }
+
+    private long jittered(long interval) {
+        if (jitter <= 0) {
+            return interval;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return (long) (interval * factor);
+    }
+
+    private long interval(int beats) {
+        if (ringing) {
+            return ringingInterval;
+        }
+        if (foreground) {
+            return foregroundInterval;
+        }
+        // doubles with every background beat
+        return Math.min(backgroundMaxInterval, foregroundInterval << Math.min(beats, 16));
+    }
+}
@@ -0,0 +1,12 @@
+package im.zego.call.http;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+/**
+ * Write the fields of a json request body, the enclosing object is opened and closed by the caller.
+ */
+public interface IRequestWriter {
+
+    void write(JsonWriter writer) throws IOException;
+}
@@ -0,0 +1,16 @@
+package im.zego.call.http;
+
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+
+/**
+ * Decode the {@code data} field of a response into the final object. It runs on the OkHttp thread, so the callback
+ * on the main thread only receives ready objects.
+ */
+public interface IResponseParser<T> {
+
+    /**
+     * @param reader positioned at the {@code data} value, which must be consumed completely.
+     */
+    T parse(JsonReader reader) throws IOException;
+}
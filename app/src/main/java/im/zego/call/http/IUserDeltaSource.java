@@ -0,0 +1,19 @@
+package im.zego.call.http;
+
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserDelta;
+import java.util.Map;
+
+/**
+ * Where {@link UserDirectory} fetches its changes from.
+ */
+public interface IUserDeltaSource {
+
+    /**
+     * Fetch the changes since the cursor, the callback is called on the main thread.
+     *
+     * @param cursor   cursor of the last sync, null if the directory has never been synced
+     * @param snapshot read-only users of the directory keyed by userID, for sources that have to diff locally
+     */
+    void fetchDelta(String cursor, Map<String, UserBean> snapshot, IAsyncGetCallback<UserDelta> callback);
+}
@@ -0,0 +1,26 @@
+package im.zego.call.http;
+
+import androidx.annotation.NonNull;
+import im.zego.call.http.bean.UserBean;
+import java.util.List;
+
+/**
+ * Receive the online user list page by page, all methods are called on the main thread.
+ */
+public interface IUserListCallback {
+
+    /**
+     * Called for every page in order, as soon as it is loaded.
+     *
+     * @param page  users of this page only
+     * @param users all users loaded so far, including this page
+     */
+    void onPage(List<UserBean> page, List<UserBean> users);
+
+    /**
+     * Called once when all pages are loaded or a page failed.
+     *
+     * @param users all users loaded so far
+     */
+    void onComplete(int errorCode, @NonNull String message, List<UserBean> users);
+}
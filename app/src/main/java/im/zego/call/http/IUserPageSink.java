@@ -0,0 +1,26 @@
+package im.zego.call.http;
+
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.util.List;
+
+/**
+ * Receive the users of a user list response while it is being parsed.
+ */
+public interface IUserPageSink {
+
+    /**
+     * Called on the OkHttp thread with each batch of parsed users, in the order of the response. The list must not be
+     * kept, copy the users out of it. A request served by a call another request sent gets its batches on the main
+     * thread instead.
+     */
+    void onUsers(List<UserBean> users);
+
+    /**
+     * Called on the OkHttp thread once the whole user list of the page is parsed, before the response is delivered
+     * to the main thread, or on the main thread after the replayed batches. The cursor of the next page is known from
+     * here.
+     */
+    default void onPageEnd(UserPage page) {
+    }
+}
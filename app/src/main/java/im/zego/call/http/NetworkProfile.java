@@ -0,0 +1,40 @@
+package im.zego.call.http;
+
+/**
+ * Tuning of the shared OkHttp client, set it with {@link APIBase.OkHttpInstance#setNetworkProfile} before the first
+ * request.
+ */
+public class NetworkProfile {
+
+    public long connectTimeoutMillis = 15 * 1000;
+    public long writeTimeoutMillis = 20 * 1000;
+    public long readTimeoutMillis = 20 * 1000;
+
+    /**
+     * idle connections kept in the pool, all requests go to one host, so a few are enough.
+     */
+    public int maxIdleConnections = 4;
+    public long keepAliveMillis = 5 * 60 * 1000;
+
+    public int maxRequests = 32;
+    public int maxRequestsPerHost = 8;
+
+    /**
+     * negotiate HTTP/2 over TLS, so concurrent requests are multiplexed on one connection.
+     */
+    public boolean http2Enabled = true;
+
+    /**
+     * how long resolved addresses are cached in process, 0 to resolve with the system every time.
+     */
+    public long dnsCacheMillis = 5 * 60 * 1000;
+
+    /**
+     * open a connection to the API server when the app starts, so the first login does not pay for DNS, TCP and TLS.
+     */
+    public boolean preconnect = true;
+
+    public static NetworkProfile defaultProfile() {
+        return new NetworkProfile();
+    }
+}
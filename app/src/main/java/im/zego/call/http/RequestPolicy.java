@@ -0,0 +1,28 @@
+package im.zego.call.http;
+
+/**
+ * How failures of requests to one endpoint are handled, set it with {@link APIBase#setRequestPolicy}.
+ */
+public class RequestPolicy {
+
+    /**
+     * no retry and no hedging, for requests that must not be sent twice.
+     */
+    public static final RequestPolicy DEFAULT = new RequestPolicy(0, 0);
+
+    /**
+     * extra requests sent for one logical request, retries of failed requests and hedged requests together, so at
+     * most {@code 1 + maxRetries} requests reach the server. Only for idempotent requests.
+     */
+    public final int maxRetries;
+    /**
+     * if there is no response after this long an identical request is sent in parallel and the first response wins, 0
+     * to disable. Each hedged request takes one of {@link #maxRetries}, so hedging needs at least 1.
+     */
+    public final long hedgeDelayMillis;
+
+    public RequestPolicy(int maxRetries, long hedgeDelayMillis) {
+        this.maxRetries = maxRetries;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+    }
+}
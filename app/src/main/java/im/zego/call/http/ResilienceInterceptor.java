@@ -0,0 +1,89 @@
+package im.zego.call.http;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Guard every endpoint with a {@link CircuitBreaker}, so a server blip is not amplified by clients hammering it.
+ * <p>
+ * A request fails on an {@link IOException} or an HTTP 5xx response, a request to an endpoint whose breaker is open
+ * fails at once with a {@link CircuitOpenException}. Each call passes the interceptor once, retries and hedging are
+ * done by {@link ResilientCall} with new calls, so this never waits on an OkHttp thread.
+ */
+public class ResilienceInterceptor implements Interceptor {
+
+    private static final String TAG = "ResilienceInterceptor";
+
+    private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ResilienceMetrics metrics;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    public ResilienceInterceptor(ResilienceMetrics metrics) {
+        this(metrics, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, CircuitBreaker.DEFAULT_OPEN_MILLIS);
+    }
+
+    ResilienceInterceptor(ResilienceMetrics metrics, int failureThreshold, long openMillis) {
+        this.metrics = metrics;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = request.url().encodedPath();
+        CircuitBreaker breaker = breakerOf(endpoint);
+        if (!breaker.allowRequest()) {
+            metrics.shortCircuits.incrementAndGet();
+            throw new CircuitOpenException(endpoint);
+        }
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                breaker.onCancel();
+            } else {
+                onFailure(breaker, endpoint);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            // an interceptor or OkHttp itself failed, the outcome must still be recorded or a trial request would
+            // keep the breaker half open for good
+            onFailure(breaker, endpoint);
+            throw e;
+        }
+        if (response.code() < 500) {
+            breaker.onSuccess();
+        } else {
+            onFailure(breaker, endpoint);
+        }
+        return response;
+    }
+
+    private void onFailure(CircuitBreaker breaker, String endpoint) {
+        if (breaker.onFailure()) {
+            metrics.circuitOpens.incrementAndGet();
+            Log.w(TAG, "circuit opened for " + endpoint);
+        }
+    }
+
+    private CircuitBreaker breakerOf(String endpoint) {
+        CircuitBreaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(failureThreshold, openMillis);
+            breaker = breakers.putIfAbsent(endpoint, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+}
@@ -0,0 +1,56 @@
+package im.zego.call.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the retries, short circuits and hedged requests of {@link ResilienceInterceptor} and
+ * {@link ResilientCall}.
+ */
+public class ResilienceMetrics {
+
+    final AtomicLong retries = new AtomicLong();
+    final AtomicLong shortCircuits = new AtomicLong();
+    final AtomicLong circuitOpens = new AtomicLong();
+    final AtomicLong hedgedRequests = new AtomicLong();
+    final AtomicLong hedgeWins = new AtomicLong();
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return requests rejected by an open circuit breaker.
+     */
+    public long getShortCircuits() {
+        return shortCircuits.get();
+    }
+
+    public long getCircuitOpens() {
+        return circuitOpens.get();
+    }
+
+    /**
+     * @return second requests sent because the first one was slow.
+     */
+    public long getHedgedRequests() {
+        return hedgedRequests.get();
+    }
+
+    /**
+     * @return hedged requests that answered before the first one.
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ResilienceMetrics{" +
+            "retries=" + retries.get() +
+            ", shortCircuits=" + shortCircuits.get() +
+            ", circuitOpens=" + circuitOpens.get() +
+            ", hedgedRequests=" + hedgedRequests.get() +
+            ", hedgeWins=" + hedgeWins.get() +
+            '}';
+    }
+}
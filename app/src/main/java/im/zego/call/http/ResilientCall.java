@@ -0,0 +1,190 @@
+package im.zego.call.http;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * One logical request, retried and hedged as its {@link RequestPolicy} says.
+ * <p>
+ * An attempt fails on an {@link IOException} or an HTTP 5xx response, any other response wins: it is delivered and
+ * the other attempts are cancelled. A failed attempt is retried after a jittered exponential backoff, and an attempt
+ * without an answer after the hedge delay gets a second one in parallel. Retries and hedges share one budget of
+ * {@code 1 + maxRetries} requests in total. Both are started by the scheduler, so no OkHttp thread or per-host slot is
+ * held while waiting.
+ * <p>
+ * The callback gets the winning response, or the last failure once every attempt has failed: the 5xx response itself
+ * or the exception.
+ */
+class ResilientCall {
+
+    private static final String TAG = "ResilientCall";
+
+    static final long BASE_BACKOFF_MILLIS = 250;
+    static final long MAX_BACKOFF_MILLIS = 2000;
+
+    private final OkHttpClient client;
+    private final Request request;
+    private final RequestPolicy policy;
+    private final ScheduledExecutorService scheduler;
+    private final ResilienceMetrics metrics;
+    private final Callback callback;
+    private final int maxAttempts;
+
+    // guarded by this
+    private final List<Call> running = new ArrayList<>(2);
+    private int sentAttempts;
+    private boolean completed;
+
+    ResilientCall(OkHttpClient client, Request request, RequestPolicy policy, ScheduledExecutorService scheduler,
+        ResilienceMetrics metrics, Callback callback) {
+        this.client = client;
+        this.request = request;
+        this.policy = policy;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.callback = callback;
+        this.maxAttempts = 1 + Math.max(0, policy.maxRetries);
+    }
+
+    void start() {
+        send(false);
+    }
+
+    private void send(boolean hedge) {
+        Call call;
+        boolean canHedge;
+        synchronized (this) {
+            if (completed || sentAttempts >= maxAttempts) {
+                return;
+            }
+            sentAttempts++;
+            call = client.newCall(request);
+            running.add(call);
+            canHedge = policy.hedgeDelayMillis > 0 && sentAttempts < maxAttempts;
+        }
+        if (hedge) {
+            metrics.hedgedRequests.incrementAndGet();
+            Log.d(TAG, "hedge request to " + request.url());
+        }
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                onAttemptFailed(call, e, null);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                if (response.code() < 500) {
+                    onAttemptAnswered(call, response, hedge);
+                } else {
+                    onAttemptFailed(call, null, response);
+                }
+            }
+        });
+        if (canHedge) {
+            scheduler.schedule(this::hedge, policy.hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void hedge() {
+        synchronized (this) {
+            // answered, or nothing in flight as a retry is already waiting for its backoff
+            if (completed || running.isEmpty()) {
+                return;
+            }
+        }
+        send(true);
+    }
+
+    private void onAttemptAnswered(Call call, Response response, boolean hedge) {
+        List<Call> losers;
+        synchronized (this) {
+            if (completed) {
+                response.close();
+                return;
+            }
+            completed = true;
+            running.remove(call);
+            losers = new ArrayList<>(running);
+            running.clear();
+        }
+        for (Call loser : losers) {
+            loser.cancel();
+        }
+        if (hedge) {
+            metrics.hedgeWins.incrementAndGet();
+        }
+        deliverResponse(call, response);
+    }
+
+    /**
+     * @param e        the failure, or null for a 5xx response
+     * @param response the 5xx response, or null for an exception
+     */
+    private void onAttemptFailed(Call call, IOException e, Response response) {
+        int attempt;
+        synchronized (this) {
+            running.remove(call);
+            if (completed || !running.isEmpty()) {
+                // answered already, or another attempt may still answer
+                if (response != null) {
+                    response.close();
+                }
+                return;
+            }
+            attempt = sentAttempts;
+            if (attempt >= maxAttempts || !isRetryable(call, e)) {
+                completed = true;
+                attempt = -1;
+            }
+        }
+        if (attempt < 0) {
+            if (response != null) {
+                deliverResponse(call, response);
+            } else {
+                callback.onFailure(call, e);
+            }
+            return;
+        }
+        if (response != null) {
+            response.close();
+        }
+        metrics.retries.incrementAndGet();
+        long backoff = backoffMillis(attempt - 1);
+        Log.d(TAG, "retry " + request.url() + " in " + backoff + "ms, attempt " + attempt + ", "
+            + (e != null ? e : "HTTP " + response.code()));
+        scheduler.schedule(() -> send(false), backoff, TimeUnit.MILLISECONDS);
+    }
+
+    // a callback that fails to read the response gets the failure instead
+    private void deliverResponse(Call call, Response response) {
+        try {
+            callback.onResponse(call, response);
+        } catch (IOException e) {
+            response.close();
+            callback.onFailure(call, e);
+        }
+    }
+
+    // an open breaker rejects the retry anyway, and a cancelled call is not wanted any more
+    private static boolean isRetryable(Call call, IOException e) {
+        return e == null || (!(e instanceof CircuitOpenException) && !call.isCanceled());
+    }
+
+    // full jitter: uniform in [0, min(max, base * 2^attempt)]
+    static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,81 @@
+package im.zego.call.http;
+
+import com.google.gson.stream.JsonReader;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import okio.ByteString;
+
+/**
+ * A user list page decoded once for all identical requests that share its call.
+ * <p>
+ * The request that sends the call streams the users to its own sink on the OkHttp thread while they are parsed, as
+ * {@link IUserPageSink} describes. A request that joined the call in flight, or is served a reused page, gets the
+ * users in its sink on the main thread instead, right before its callback.
+ */
+class SharedUserPage {
+
+    final UserPage page;
+    // shared by every request of the call, never modified
+    final List<UserBean> users;
+
+    private SharedUserPage(UserPage page, List<UserBean> users) {
+        this.page = page;
+        this.users = users;
+    }
+
+    /**
+     * @param reuseMillis a successful page is reused by identical requests for this long.
+     */
+    static void post(String url, ByteString body, long reuseMillis, IUserPageSink sink,
+        IAsyncGetCallback<UserPage> callback) {
+        // only set for the request whose parser runs, its sink is fed while parsing
+        boolean[] streamed = new boolean[1];
+        APIBase.asyncPostShared(url, body, reader -> {
+            streamed[0] = true;
+            return decode(reader, sink);
+        }, reuseMillis, (errorCode, message, response) -> {
+            if (errorCode == 0 && response == null) {
+                errorCode = ErrorcodeConstants.ErrorJSONFormatInvalid;
+            }
+            if (errorCode == 0 && !streamed[0] && sink != null) {
+                response.replay(sink);
+            }
+            if (callback != null) {
+                callback.onResponse(errorCode, message, errorCode == 0 ? response.page : null);
+            }
+        });
+    }
+
+    private static SharedUserPage decode(JsonReader reader, IUserPageSink sink) throws IOException {
+        List<UserBean> users = new ArrayList<>();
+        UserPage page = UserListDecoder.decode(reader, new IUserPageSink() {
+            @Override
+            public void onUsers(List<UserBean> batch) {
+                users.addAll(batch);
+                if (sink != null) {
+                    sink.onUsers(batch);
+                }
+            }
+
+            @Override
+            public void onPageEnd(UserPage page) {
+                if (sink != null) {
+                    sink.onPageEnd(page);
+                }
+            }
+        });
+        return page == null ? null : new SharedUserPage(page, Collections.unmodifiableList(users));
+    }
+
+    // in the batches the decoder would have used
+    private void replay(IUserPageSink sink) {
+        for (int start = 0; start < users.size(); start += UserListDecoder.BATCH_SIZE) {
+            sink.onUsers(users.subList(start, Math.min(users.size(), start + UserListDecoder.BATCH_SIZE)));
+        }
+        sink.onPageEnd(page);
+    }
+}
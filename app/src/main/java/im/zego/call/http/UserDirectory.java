@@ -0,0 +1,145 @@
+package im.zego.call.http;
+
+import android.util.Log;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserDelta;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Local versioned snapshot of the online users, keyed by userID and kept in the {@code order} of the server.
+ * <p>
+ * {@link #sync} fetches only the changes since the last sync from an {@link IUserDeltaSource} and merges them, the
+ * version is bumped whenever the snapshot changes. Must be used on the main thread.
+ */
+public class UserDirectory {
+
+    private static final String TAG = "UserDirectory";
+
+    private final IUserDeltaSource deltaSource;
+    private final LinkedHashMap<String, UserBean> users = new LinkedHashMap<>();
+    private String cursor;
+    private int version;
+    private List<UserBean> userList = Collections.emptyList();
+
+    public UserDirectory(IUserDeltaSource deltaSource) {
+        this.deltaSource = deltaSource;
+    }
+
+    /**
+     * Fetch and merge the changes since the last sync.
+     *
+     * @param callback the merged delta, empty if nothing changed, then {@link #getUsers()} is still the same list.
+     */
+    public void sync(IAsyncGetCallback<UserDelta> callback) {
+        int syncVersion = version;
+        deltaSource.fetchDelta(cursor, Collections.unmodifiableMap(users), (errorCode, message, response) -> {
+            if (errorCode == 0 && response != null) {
+                if (syncVersion != version) {
+                    // the snapshot was replaced while fetching, the delta no longer applies to it
+                    Log.d(TAG, "sync: drop stale delta of version " + syncVersion);
+                    response = new UserDelta();
+                    response.cursor = cursor;
+                } else {
+                    apply(response);
+                }
+            }
+            if (callback != null) {
+                callback.onResponse(errorCode, message, response);
+            }
+        });
+    }
+
+    /**
+     * Replace the snapshot with a full list, e.g. after a complete load.
+     */
+    public void reset(List<UserBean> fullList) {
+        users.clear();
+        for (UserBean userBean : fullList) {
+            users.put(userBean.userID, userBean);
+        }
+        cursor = fullList.isEmpty() ? null : fullList.get(fullList.size() - 1).order;
+        onChanged();
+    }
+
+    public void clear() {
+        users.clear();
+        cursor = null;
+        onChanged();
+    }
+
+    /**
+     * @return an immutable list of the users, in {@code order}.
+     */
+    public List<UserBean> getUsers() {
+        return userList;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    private void apply(UserDelta delta) {
+        cursor = delta.cursor;
+        if (delta.isEmpty()) {
+            return;
+        }
+        // keep the direction the server returned the users in
+        boolean descending = userList.size() > 1
+            && compareOrder(userList.get(0).order, userList.get(userList.size() - 1).order) > 0;
+        for (String userID : delta.removed) {
+            users.remove(userID);
+        }
+        boolean reorder = false;
+        for (UserBean userBean : delta.upserted) {
+            UserBean old = users.put(userBean.userID, userBean);
+            // a new user or a new order may break the order of the map
+            reorder |= old == null || !Objects.equals(userBean.order, old.order);
+        }
+        if (reorder) {
+            List<UserBean> sorted = new ArrayList<>(users.values());
+            Collections.sort(sorted, (a, b) -> descending ? compareOrder(b.order, a.order)
+                : compareOrder(a.order, b.order));
+            users.clear();
+            for (UserBean userBean : sorted) {
+                users.put(userBean.userID, userBean);
+            }
+        }
+        Log.d(TAG, "apply: " + delta + ", size: " + users.size());
+        onChanged();
+    }
+
+    private void onChanged() {
+        version++;
+        userList = Collections.unmodifiableList(new ArrayList<>(users.values()));
+    }
+
+    /**
+     * orders are numeric strings, compare them as numbers and fall back to text for anything else.
+     */
+    private static int compareOrder(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a.length() != b.length() && isDigits(a) && isDigits(b)) {
+            return Integer.compare(a.length(), b.length());
+        }
+        return a.compareTo(b);
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package im.zego.call.http;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass decoder of the {@code data} of {@code v1/user/get_user_list}.
+ * <p>
+ * Users are read straight from the response stream and handed to an {@link IUserPageSink} in batches, so neither the
+ * body string, a json tree nor a full copy of the list is kept in memory.
+ */
+public class UserListDecoder {
+
+    /**
+     * number of users handed to the sink at once.
+     */
+    public static final int BATCH_SIZE = 20;
+
+    private UserListDecoder() {
+    }
+
+    /**
+     * @param reader positioned at the {@code data} object.
+     * @return the summary of the page, or null if {@code data} has no {@code user_list}.
+     */
+    public static UserPage decode(JsonReader reader, IUserPageSink sink) throws IOException {
+        UserPage page = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("user_list".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                page = readUserList(reader, sink);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return page;
+    }
+
+    private static UserPage readUserList(JsonReader reader, IUserPageSink sink) throws IOException {
+        UserPage page = new UserPage();
+        List<UserBean> batch = new ArrayList<>(BATCH_SIZE);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            UserBean userBean = readUser(reader);
+            if (userBean == null) {
+                continue;
+            }
+            page.count++;
+            page.lastOrder = userBean.order;
+            batch.add(userBean);
+            if (batch.size() == BATCH_SIZE) {
+                sink.onUsers(batch);
+                batch.clear();
+            }
+        }
+        reader.endArray();
+        if (!batch.isEmpty()) {
+            sink.onUsers(batch);
+        }
+        sink.onPageEnd(page);
+        return page;
+    }
+
+    /**
+     * @return the user, or null if the element is json null.
+     */
+    public static UserBean readUser(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        UserBean userBean = new UserBean();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    userBean.userID = nextStringOrNull(reader);
+                    break;
+                case "name":
+                    userBean.userName = nextStringOrNull(reader);
+                    break;
+                case "order":
+                    userBean.order = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return userBean;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,191 @@
+package im.zego.call.http;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load all pages of {@code v1/user/get_user_list}.
+ * <p>
+ * Pages are chained by the {@code order} cursor of their last user. The next page is requested on the OkHttp thread
+ * as soon as the current page's user list is parsed, instead of after its response has been delivered to the main
+ * thread, so its round trip overlaps the rest of the current page. At most {@code maxInFlight} pages are requested
+ * but not yet delivered, pages are always delivered in order.
+ * <p>
+ * Starting a new load cancels the previous one, the results of a cancelled load are dropped.
+ */
+public class UserListPager {
+
+    private static final String TAG = "UserListPager";
+
+    /**
+     * Request one page, {@link CallApi#getUserList(int, String, int, IUserPageSink, IAsyncGetCallback)} outside of
+     * tests.
+     */
+    interface IPageRequester {
+
+        void request(int pageSize, String cursor, IUserPageSink sink, IAsyncGetCallback<UserPage> callback);
+    }
+
+    private final int pageSize;
+    private final int maxInFlight;
+    private final IPageRequester requester;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public UserListPager(int pageSize, int maxInFlight) {
+        this(pageSize, maxInFlight, (size, cursor, sink, callback) -> CallApi.getUserList(size, cursor, 1, sink,
+            callback));
+    }
+
+    UserListPager(int pageSize, int maxInFlight, IPageRequester requester) {
+        this.pageSize = pageSize;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.requester = requester;
+    }
+
+    /**
+     * @param sink     optional, receives the users on the OkHttp thread as soon as they are parsed
+     * @param callback receives the pages on the main thread
+     */
+    public void start(IUserPageSink sink, IUserListCallback callback) {
+        new Load(generation.incrementAndGet(), sink, callback).request(null);
+    }
+
+    /**
+     * drop the results of the running load.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    private class Load {
+
+        private final int loadGeneration;
+        private final IUserPageSink sink;
+        private final IUserListCallback callback;
+
+        // guarded by this
+        private int requestedPages;
+        private int inFlight;
+        private String deferredCursor;
+
+        // main thread only
+        private final List<UserBean> users = new ArrayList<>();
+        private final Map<Integer, PageResult> arrivedPages = new HashMap<>();
+        private int nextPageToDeliver;
+        private boolean finished;
+
+        Load(int loadGeneration, IUserPageSink sink, IUserListCallback callback) {
+            this.loadGeneration = loadGeneration;
+            this.sink = sink;
+            this.callback = callback;
+        }
+
+        private boolean isCancelled() {
+            return loadGeneration != generation.get();
+        }
+
+        private void request(String cursor) {
+            int pageIndex;
+            synchronized (this) {
+                pageIndex = requestedPages++;
+                inFlight++;
+            }
+            List<UserBean> pageUsers = new ArrayList<>(pageSize);
+            IUserPageSink pageSink = new IUserPageSink() {
+                @Override
+                public void onUsers(List<UserBean> batch) {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    pageUsers.addAll(batch);
+                    if (sink != null) {
+                        sink.onUsers(batch);
+                    }
+                }
+
+                @Override
+                public void onPageEnd(UserPage page) {
+                    if (!isCancelled() && page.count == pageSize) {
+                        requestNext(page.lastOrder);
+                    }
+                }
+            };
+            requester.request(pageSize, cursor, pageSink, new IAsyncGetCallback<UserPage>() {
+                @Override
+                public void onResponse(int errorCode, @NonNull String message, UserPage response) {
+                    onPageArrived(pageIndex, new PageResult(errorCode, message, response, pageUsers));
+                }
+            });
+        }
+
+        private void requestNext(String cursor) {
+            synchronized (this) {
+                if (inFlight >= maxInFlight) {
+                    // requested once a delivered page frees a slot
+                    deferredCursor = cursor;
+                    return;
+                }
+            }
+            request(cursor);
+        }
+
+        private void onPageArrived(int pageIndex, PageResult result) {
+            String cursor;
+            synchronized (this) {
+                inFlight--;
+                cursor = deferredCursor;
+                deferredCursor = null;
+            }
+            if (isCancelled() || finished) {
+                return;
+            }
+            if (cursor != null) {
+                request(cursor);
+            }
+            arrivedPages.put(pageIndex, result);
+            PageResult next;
+            while (!finished && (next = arrivedPages.remove(nextPageToDeliver)) != null) {
+                nextPageToDeliver++;
+                deliver(next);
+            }
+        }
+
+        private void deliver(PageResult result) {
+            if (result.errorCode != 0) {
+                finished = true;
+                callback.onComplete(result.errorCode, result.message, users);
+                return;
+            }
+            users.addAll(result.users);
+            callback.onPage(result.users, users);
+            boolean haveMore = result.page.count == pageSize;
+            Log.d(TAG, "deliver page " + (nextPageToDeliver - 1) + ",haveMore: " + haveMore);
+            if (!haveMore) {
+                finished = true;
+                callback.onComplete(result.errorCode, result.message, users);
+            }
+        }
+    }
+
+    private static class PageResult {
+
+        final int errorCode;
+        final String message;
+        final UserPage page;
+        final List<UserBean> users;
+
+        PageResult(int errorCode, String message, UserPage page, List<UserBean> users) {
+            this.errorCode = errorCode;
+            this.message = message;
+            this.page = page;
+            this.users = users;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package im.zego.call.http;
 
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserDelta;
 import im.zego.callsdk.model.ZegoUserInfo;
 import im.zego.callsdk.service.ZegoRoomManager;
 import im.zego.callsdk.service.ZegoUserService;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class WebClientManager {
 
@@ -25,45 +28,80 @@ public class WebClientManager {
         return Holder.INSTANCE;
     }
 
-    private Timer timer = new Timer();
-    private boolean haveMore = false;
-    List<UserBean> userList = new ArrayList<>();
+    // one thread for all heartbeats, however often the user logs in
+    private static final ScheduledExecutorService HEARTBEAT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+            Thread thread = new Thread(runnable, "heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private final HeartbeatPolicy heartbeatPolicy = new HeartbeatPolicy();
+    private ScheduledFuture<?> heartbeatFuture;
+    private volatile String heartbeatUserID;
+    private volatile long lastAliveTime;
     final int pullPerCount = 100;
+    // pages requested but not yet delivered at the same time
+    private static final int MAX_PAGES_IN_FLIGHT = 2;
+    private final UserListPager userListPager = new UserListPager(pullPerCount, MAX_PAGES_IN_FLIGHT);
+    // the server has no since-cursor yet, so deltas are computed locally from a full pull. The pull has its own
+    // pager, a load and a sync must not cancel each other
+    private final UserDirectory userDirectory = new UserDirectory(
+        new FullPullDeltaSource(new UserListPager(pullPerCount, MAX_PAGES_IN_FLIGHT)));
     private static final String TAG = "WebClientManager";
-    private boolean hasLoggedin = false;
+    private volatile boolean hasLoggedin = false;
 
     public void getUserList(IAsyncGetCallback<List<UserBean>> callback) {
-        userList.clear();
-        haveMore = false;
-        getUserListInner(null, callback);
+        userListPager.start(null, new IUserListCallback() {
+            @Override
+            public void onPage(List<UserBean> page, List<UserBean> users) {
+            }
+
+            @Override
+            public void onComplete(int errorCode, @NonNull String message, List<UserBean> users) {
+                if (callback != null) {
+                    callback.onResponse(errorCode, message, users);
+                }
+            }
+        });
     }
 
-    private void getUserListInner(String order, IAsyncGetCallback<List<UserBean>> callback) {
-        CallApi.getUserList(pullPerCount, order, 1, new IAsyncGetCallback<List<UserBean>>() {
+    /**
+     * get all online users, every page is delivered as soon as it is loaded, so the first page can be shown before
+     * the rest are loaded. A running load is cancelled.
+     *
+     * @param callback pages and result, on the main thread
+     */
+    public void getUserList(IUserListCallback callback) {
+        userListPager.start(null, new IUserListCallback() {
+            @Override
+            public void onPage(List<UserBean> page, List<UserBean> users) {
+                callback.onPage(page, users);
+            }
+
             @Override
-            public void onResponse(int errorCode, @NonNull String message, List<UserBean> response) {
+            public void onComplete(int errorCode, @NonNull String message, List<UserBean> users) {
                 if (errorCode == 0) {
-                    userList.addAll(response);
-                    haveMore = response.size() == pullPerCount;
-                    Log.d(TAG, "onResponse,haveMore: " + haveMore);
-                    UserBean userBean = response.get(response.size() - 1);
-                    if (haveMore) {
-                        getUserListInner(userBean.order, callback);
-                    } else {
-                        if (callback != null) {
-                            callback.onResponse(errorCode, message, userList);
-                        }
-                    }
-                } else {
-                    if (callback != null) {
-                        callback.onResponse(errorCode, message, userList);
-                    }
+                    userDirectory.reset(users);
                 }
-
+                callback.onComplete(errorCode, message, users);
             }
         });
     }
 
+    /**
+     * fetch only the changes of the online users since the last load or sync, and merge them into
+     * {@link #getUserDirectory()}.
+     *
+     * @param callback the merged changes, on the main thread
+     */
+    public void syncUserList(IAsyncGetCallback<UserDelta> callback) {
+        userDirectory.sync(callback);
+    }
+
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
     /**
      * login to web server,make self visible to other online users.
      *
@@ -100,65 +138,140 @@ public class WebClientManager {
         Log.d(TAG, "logout() called with: userID = [" + userID + "], callback = [" + callback + "]");
         CallApi.logout(userID, callback);
         hasLoggedin = false;
+        userListPager.cancel();
+        userDirectory.clear();
     }
 
+    /**
+     * heartbeat, and login again if it failed. The heartbeat is skipped if another request proved the user online
+     * within the current heartbeat interval.
+     *
+     * @param callback result of the login, only called if login was needed
+     */
     public void tryReLogin(IAsyncGetCallback<UserBean> callback) {
         ZegoUserService userService = ZegoRoomManager.getInstance().userService;
         ZegoUserInfo localUserInfo = userService.localUserInfo;
+        if (SystemClock.elapsedRealtime() - lastAliveTime < heartbeatPolicy.currentInterval()) {
+            Log.d(TAG, "tryReLogin: online state is fresh, skip heartbeat");
+            return;
+        }
         CallApi.heartBeat(localUserInfo.userID, new IAsyncGetCallback<String>() {
             @Override
             public void onResponse(int errorCode, @NonNull String message, String response) {
-                if (errorCode != 0) {
+                if (errorCode == 0) {
+                    markAlive();
+                } else {
                     // means heart failed,relogin to make it success,and online for other users
-                    CallApi.login(localUserInfo.userName, localUserInfo.userID,
-                        new IAsyncGetCallback<UserBean>() {
-                            @Override
-                            public void onResponse(int errorCode, @NonNull String message,
-                                UserBean response) {
-                                if (callback != null) {
-                                    callback.onResponse(errorCode, message, response);
-                                }
-                            }
-                        });
+                    reLogin(localUserInfo, callback);
+                }
+            }
+        });
+    }
+
+    private void reLogin(ZegoUserInfo localUserInfo, IAsyncGetCallback<UserBean> callback) {
+        CallApi.login(localUserInfo.userName, localUserInfo.userID, new IAsyncGetCallback<UserBean>() {
+            @Override
+            public void onResponse(int errorCode, @NonNull String message, UserBean response) {
+                if (errorCode == 0) {
+                    markAlive();
+                }
+                if (callback != null) {
+                    callback.onResponse(errorCode, message, response);
                 }
             }
         });
     }
 
     /**
-     * keep heart to keep self online state.
+     * keep heart to keep self online state. The first heartbeat is sent one interval later, as starting is expected
+     * right after a successful login.
      *
      * @param userID
      */
     public void startHeartBeat(String userID) {
         Log.d(TAG, "startHeartBeat() called with: userID = [" + userID + "]");
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                Log.d(TAG, "TimerTask run() called, heartBeat，hasLoggedin :" + hasLoggedin);
-                CallApi.heartBeat(userID, new IAsyncGetCallback<String>() {
-                    @Override
-                    public void onResponse(int errorCode, @NonNull String message, String response) {
-                        // if user not logout manually,try login when heartbeat failed
-                        if (hasLoggedin && errorCode != 0) {
-                            tryReLogin(null);
-                        }
-                    }
-                });
-            }
-        };
-        if (timer != null) {
-            timer.cancel();
-        }
-        timer = new Timer();
-        timer.schedule(task, 0, 15 * 1000);
+        heartbeatUserID = userID;
+        markAlive();
     }
 
     public void stopHeartBeat() {
         Log.d(TAG, "stopHeartBeat() called");
-        if (timer != null) {
-            timer.cancel();
+        heartbeatUserID = null;
+        scheduleHeartBeat(-1);
+    }
+
+    /**
+     * the app went to foreground or background, heartbeats back off while in background.
+     */
+    public void setAppForeground(boolean foreground) {
+        heartbeatPolicy.setForeground(foreground);
+        rescheduleHeartBeat();
+    }
+
+    /**
+     * a call is ringing, heartbeats are sent more often until it is answered or ended.
+     */
+    public void setCallRinging(boolean ringing) {
+        heartbeatPolicy.setRinging(ringing);
+        rescheduleHeartBeat();
+    }
+
+    /**
+     * a request that refreshes the online state on the server succeeded, so the next heartbeat can wait a full
+     * interval from now.
+     */
+    public void markAlive() {
+        markAlive(heartbeatPolicy.currentDelay());
+    }
+
+    private void markAlive(long delay) {
+        lastAliveTime = SystemClock.elapsedRealtime();
+        scheduleHeartBeat(delay);
+    }
+
+    // the interval may have changed, keep counting from the last proof of liveness
+    private void rescheduleHeartBeat() {
+        long elapsed = SystemClock.elapsedRealtime() - lastAliveTime;
+        scheduleHeartBeat(Math.max(0, heartbeatPolicy.currentDelay() - elapsed));
+    }
+
+    /**
+     * @param delay negative to cancel the pending heartbeat only
+     */
+    private synchronized void scheduleHeartBeat(long delay) {
+        if (heartbeatFuture != null) {
+            heartbeatFuture.cancel(false);
+            heartbeatFuture = null;
+        }
+        if (delay < 0 || heartbeatUserID == null) {
+            return;
+        }
+        heartbeatFuture = HEARTBEAT_SCHEDULER.schedule(this::heartBeat, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void heartBeat() {
+        String userID = heartbeatUserID;
+        Log.d(TAG, "heartBeat() called, hasLoggedin :" + hasLoggedin);
+        if (userID == null) {
+            return;
         }
-        timer = null;
+        // the only place the background backoff advances, once per heartbeat sent
+        long nextDelay = heartbeatPolicy.nextDelay();
+        CallApi.heartBeat(userID, new IAsyncGetCallback<String>() {
+            @Override
+            public void onResponse(int errorCode, @NonNull String message, String response) {
+                if (errorCode == 0) {
+                    markAlive(nextDelay);
+                    return;
+                }
+                // if user not logout manually,try login when heartbeat failed,
+                // but not while the server is failing, the next beat probes it again
+                ZegoUserInfo localUserInfo = ZegoRoomManager.getInstance().userService.localUserInfo;
+                if (hasLoggedin && localUserInfo != null && errorCode != ErrorcodeConstants.ErrorCircuitOpen) {
+                    reLogin(localUserInfo, null);
+                }
+                scheduleHeartBeat(nextDelay);
+            }
+        });
     }
 }
@@ -0,0 +1,36 @@
+package im.zego.call.http.bean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes of the online user directory since a sync cursor.
+ */
+public class UserDelta {
+
+    /**
+     * users that came online or whose name or order changed.
+     */
+    public List<UserBean> upserted = new ArrayList<>();
+    /**
+     * ids of the users that went offline.
+     */
+    public List<String> removed = new ArrayList<>();
+    /**
+     * cursor to fetch the next delta from.
+     */
+    public String cursor;
+
+    public boolean isEmpty() {
+        return upserted.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "UserDelta{" +
+            "upserted=" + upserted.size() +
+            ", removed=" + removed.size() +
+            ", cursor='" + cursor + '\'' +
+            '}';
+    }
+}
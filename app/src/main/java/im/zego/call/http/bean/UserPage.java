@@ -0,0 +1,24 @@
+package im.zego.call.http.bean;
+
+/**
+ * Summary of a user list page whose users have been streamed to an {@code IUserPageSink}.
+ */
+public class UserPage {
+
+    /**
+     * number of users in the page.
+     */
+    public int count;
+    /**
+     * order of the last user in the page, the cursor to request the next page from.
+     */
+    public String lastOrder;
+
+    @Override
+    public String toString() {
+        return "UserPage{" +
+            "count=" + count +
+            ", lastOrder='" + lastOrder + '\'' +
+            '}';
+    }
+}
@@ -196,22 +196,19 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                 }
             });
         } else if (typeOfCall == CallStateManager.TYPE_OUTGOING_CALLING_VIDEO) {
+            // the preview needs no room, start it while the call is being set up
+            TextureView textureView = binding.layoutOutgoingCall.getTextureView();
+            userService.startPlaying(userService.localUserInfo.userID, textureView);
             userService.callUser(userInfo.userID, ZegoCallType.Video, token, errorCode -> {
                 if (errorCode == 0) {
-                    TextureView textureView = binding.layoutOutgoingCall.getTextureView();
-                    userService.enableCamera(true, errorCode1 -> {
-                        if (errorCode1 == 0) {
-                            userService.enableMic(true, errorCode2 -> {
-                                if (errorCode2 == 0) {
-                                }
-                            });
-                        } else {
+                    userService.updateDeviceState(true, true, errorCode1 -> {
+                        if (errorCode1 != 0) {
                             ToastUtils.showShort(getString(R.string.camera_operate_failed, errorCode1));
                         }
-                        userService.startPlaying(userService.localUserInfo.userID, textureView);
                     });
                     handler.postDelayed(missCallRunnable, 60 * 1000);
                 } else {
+                    userService.stopPlaying(userService.localUserInfo.userID);
                     showWarnTips(getString(R.string.call_page_call_fail, errorCode));
                     finishActivityDelayed();
                 }
@@ -231,13 +228,9 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
             handler.removeCallbacks(finishRunnable);
         } else if (typeOfCall == CallStateManager.TYPE_CONNECTED_VIDEO) {
             handler.post(timeCountRunnable);
-            userService.enableMic(true, errorCode -> {
+            userService.updateDeviceState(true, true, errorCode -> {
                 if (errorCode == 0) {
-                    userService.enableCamera(true, errorCode1 -> {
-                        if (errorCode1 == 0) {
-                            userService.speakerOperate(false);
-                        }
-                    });
+                    userService.speakerOperate(false);
                 }
             });
             handler.removeCallbacks(missCallRunnable);
@@ -11,6 +11,7 @@ import android.net.Uri;
 import android.os.Vibrator;
 import android.util.Log;
 import com.blankj.utilcode.util.ActivityUtils;
+import im.zego.call.http.WebClientManager;
 import im.zego.callsdk.model.ZegoUserInfo;
 import java.util.ArrayList;
 import java.util.List;
@@ -61,6 +62,13 @@ public class CallStateManager {
             callState == TYPE_OUTGOING_CALLING_VIDEO;
     }
 
+    private static boolean isRinging(int callState) {
+        return callState == TYPE_INCOMING_CALLING_VOICE ||
+            callState == TYPE_INCOMING_CALLING_VIDEO ||
+            callState == TYPE_OUTGOING_CALLING_VOICE ||
+            callState == TYPE_OUTGOING_CALLING_VIDEO;
+    }
+
     public boolean isConnected() {
         return callState == TYPE_CONNECTED_VIDEO ||
             callState == TYPE_CONNECTED_VOICE;
@@ -77,6 +85,9 @@ public class CallStateManager {
                 listener.onCallStateChanged(beforeState, callState);
             }
         }
+        if (isRinging(beforeState) != isRinging(callState)) {
+            WebClientManager.getInstance().setCallRinging(isRinging(callState));
+        }
         if (callState == TYPE_INCOMING_CALLING_VIDEO || callState == TYPE_INCOMING_CALLING_VOICE) {
             playRingTone();
         } else {
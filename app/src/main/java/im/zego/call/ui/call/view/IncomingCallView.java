@@ -60,13 +60,7 @@ public class IncomingCallView extends ConstraintLayout {
                 String token = AuthInfoManager.getInstance().generateToken(userService.localUserInfo.userID);
                 userService.respondCall(ZegoResponseType.Accept, userInfo.userID, token, errorCode -> {
                     if (errorCode == ZIMErrorCode.SUCCESS.value()) {
-                        userService.enableMic(true, errorCode1 -> {
-                            if (errorCode1 == 0) {
-                                userService.enableCamera(true, errorCode2 -> {
-                                    if (errorCode2 == 0) {
-                                    }
-                                });
-                            }
+                        userService.updateDeviceState(true, true, errorCode1 -> {
                         });
                         CallStateManager.getInstance().setCallState(userInfo, CallStateManager.TYPE_CONNECTED_VIDEO);
                     } else {
@@ -245,6 +245,7 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
         AppUtils.registerAppStatusChangedListener(new OnAppStatusChangedListener() {
             @Override
             public void onForeground(Activity activity) {
+                WebClientManager.getInstance().setAppForeground(true);
                 dismissNotification(notificationId);
                 // some phone will freeze app when phone is desktop,even if we start foreground service,
                 // such as vivo.
@@ -258,6 +259,7 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
 
             @Override
             public void onBackground(Activity activity) {
+                WebClientManager.getInstance().setAppForeground(false);
                 boolean needNotification = CallStateManager.getInstance().isInACallStream();
                 ZegoUserInfo userInfo = CallStateManager.getInstance().getUserInfo();
                 if (needNotification && userInfo != null) {
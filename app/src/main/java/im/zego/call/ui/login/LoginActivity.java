@@ -174,6 +174,8 @@ public class LoginActivity extends BaseActivity<ActivityLoginBinding> {
             return;
         }
         isLogin = true;
+        // the token is generated while the login request is in flight
+        AuthInfoManager.getInstance().prefetchToken(userID);
         WebClientManager.getInstance().login(userName, userID, new IAsyncGetCallback<UserBean>() {
             @Override
             public void onResponse(int errorCode, @NonNull String message, UserBean response) {
@@ -3,12 +3,14 @@ package im.zego.call.ui.user;
 import android.os.Bundle;
 import android.view.View;
 import android.view.View.OnClickListener;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.ViewHolder;
 import com.scwang.smart.refresh.header.MaterialHeader;
 import im.zego.call.R;
 import im.zego.call.databinding.ActivityOnlineUserBinding;
+import im.zego.call.http.IUserListCallback;
 import im.zego.call.http.WebClientManager;
 import im.zego.call.http.bean.UserBean;
 import im.zego.call.ui.BaseActivity;
@@ -43,7 +45,7 @@ public class OnlineUserActivity extends BaseActivity<ActivityOnlineUserBinding>
         binding.userRecyclerview.setAdapter(onlineUserAdapter);
         binding.smartRefreshLayout.setRefreshHeader(new MaterialHeader(this));
         binding.smartRefreshLayout.setOnRefreshListener(refreshLayout -> {
-            getUserList(errorCode -> {
+            syncUserList(errorCode -> {
                 if (errorCode != 0) {
                     showWarnTips(getString(R.string.get_user_list_failed, errorCode));
                 }
@@ -79,22 +81,51 @@ public class OnlineUserActivity extends BaseActivity<ActivityOnlineUserBinding>
     }
 
     private void getUserList(ZegoRoomCallback callback) {
-        WebClientManager.getInstance().getUserList((errorCode, message, response) -> {
+        WebClientManager.getInstance().getUserList(new IUserListCallback() {
+            private final List<ZegoUserInfo> userInfoList = new ArrayList<>();
+
+            @Override
+            public void onPage(List<UserBean> page, List<UserBean> users) {
+                // show every page as soon as it arrives, the first one without waiting for the rest
+                addUserInfo(userInfoList, page);
+                onlineUserAdapter.updateList(userInfoList);
+            }
+
+            @Override
+            public void onComplete(int errorCode, @NonNull String message, List<UserBean> users) {
+                if (callback != null) {
+                    callback.onRoomCallback(errorCode);
+                }
+            }
+        });
+    }
+
+    /**
+     * merge only the changes since the last load, the list is not touched if nothing changed.
+     */
+    private void syncUserList(ZegoRoomCallback callback) {
+        WebClientManager.getInstance().syncUserList((errorCode, message, response) -> {
             if (callback != null) {
                 callback.onRoomCallback(errorCode);
             }
-            List<ZegoUserInfo> userInfoList = new ArrayList<>();
-            ZegoUserInfo localUserInfo = ZegoRoomManager.getInstance().userService.localUserInfo;
-            for (UserBean userBean : response) {
-                if (Objects.equals(userBean.userID, localUserInfo.userID)) {
-                    continue;
-                }
-                ZegoUserInfo userInfo = new ZegoUserInfo();
-                userInfo.userID = userBean.userID;
-                userInfo.userName = userBean.userName;
-                userInfoList.add(userInfo);
+            if (errorCode == 0 && response != null && !response.isEmpty()) {
+                List<ZegoUserInfo> userInfoList = new ArrayList<>();
+                addUserInfo(userInfoList, WebClientManager.getInstance().getUserDirectory().getUsers());
+                onlineUserAdapter.updateList(userInfoList);
             }
-            onlineUserAdapter.updateList(userInfoList);
         });
     }
+
+    private static void addUserInfo(List<ZegoUserInfo> userInfoList, List<UserBean> userBeans) {
+        ZegoUserInfo localUserInfo = ZegoRoomManager.getInstance().userService.localUserInfo;
+        for (UserBean userBean : userBeans) {
+            if (Objects.equals(userBean.userID, localUserInfo.userID)) {
+                continue;
+            }
+            ZegoUserInfo userInfo = new ZegoUserInfo();
+            userInfo.userID = userBean.userID;
+            userInfo.userName = userBean.userName;
+            userInfoList.add(userInfo);
+        }
+    }
 }
\ No newline at end of file
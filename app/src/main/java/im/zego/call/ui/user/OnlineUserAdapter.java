@@ -1,91 +1,162 @@
 package im.zego.call.ui.user;
 
-import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.ViewHolder;
 import im.zego.call.R;
-import im.zego.call.http.bean.UserBean;
 import im.zego.call.utils.AvatarHelper;
 import im.zego.callsdk.model.ZegoUserInfo;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
 
+/**
+ * Online user list, updates are diffed on a background thread by userID so only the changed rows are rebound. A
+ * placeholder row is shown while the list is empty.
+ */
 public class OnlineUserAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private List<ZegoUserInfo> userInfoList;
     private static final int USER = 0;
     private static final int NONE = 1;
 
+    private static final DiffUtil.ItemCallback<ZegoUserInfo> DIFF_CALLBACK = new DiffUtil.ItemCallback<ZegoUserInfo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ZegoUserInfo oldItem, @NonNull ZegoUserInfo newItem) {
+            return Objects.equals(oldItem.userID, newItem.userID);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ZegoUserInfo oldItem, @NonNull ZegoUserInfo newItem) {
+            // only the name is shown besides the id
+            return Objects.equals(oldItem.userName, newItem.userName);
+        }
+    };
+
+    private final AsyncListDiffer<ZegoUserInfo> differ = new AsyncListDiffer<>(new PlaceholderUpdateCallback(),
+        new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).build());
+
     public OnlineUserAdapter(List<ZegoUserInfo> list) {
-        if (list == null) {
-            this.userInfoList = new ArrayList<>();
-        } else {
-            this.userInfoList = list;
+        if (list != null) {
+            updateList(list);
         }
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view;
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
         if (viewType == USER) {
-            view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_online_user, parent, false);
+            return new UserViewHolder(inflater.inflate(R.layout.item_online_user, parent, false));
         } else {
-            view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_no_user, parent, false);
+            return new ViewHolder(inflater.inflate(R.layout.item_no_user, parent, false)) {
+            };
         }
-        return new ViewHolder(view) {
-        };
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        View itemView = holder.itemView;
-        int viewType = getItemViewType(position);
-        if (viewType == USER) {
-            ZegoUserInfo userInfo = userInfoList.get(position);
-            TextView userIDTextView = itemView.findViewById(R.id.item_online_user_id);
-            TextView userNameTextView = itemView.findViewById(R.id.item_online_user_name);
-            ImageView userIconIv = itemView.findViewById(R.id.item_online_user_icon);
-            userIDTextView.setText("ID:" + userInfo.userID);
-            userNameTextView.setText(userInfo.userName);
-            Drawable userIcon = AvatarHelper.getAvatarByUserName(userInfo.userName);
-            userIconIv.setImageDrawable(userIcon);
-
+        if (holder instanceof UserViewHolder) {
+            ((UserViewHolder) holder).bind(differ.getCurrentList().get(position));
         }
     }
 
     @Override
     public int getItemCount() {
-        if (userInfoList.size() > 0) {
-            return userInfoList.size();
-        } else {
-            return 1;
-        }
+        int size = differ.getCurrentList().size();
+        return size > 0 ? size : 1;
     }
 
     @Override
     public int getItemViewType(int position) {
-        if (userInfoList.size() > 0) {
-            return USER;
-        } else {
-            return NONE;
-        }
+        return differ.getCurrentList().isEmpty() ? NONE : USER;
     }
 
     public ZegoUserInfo getUserInfo(int index) {
-        return userInfoList.get(index);
+        return differ.getCurrentList().get(index);
     }
 
+    /**
+     * Diff the list against the current one in the background, the rows are updated when the diff is done.
+     */
     public void updateList(List<ZegoUserInfo> list) {
-        this.userInfoList.clear();
-        this.userInfoList.addAll(list);
-        notifyDataSetChanged();
+        // the differ needs a list nobody changes afterwards
+        differ.submitList(new ArrayList<>(list));
+    }
+
+    static class UserViewHolder extends ViewHolder {
+
+        final TextView userIDTextView;
+        final TextView userNameTextView;
+        final ImageView userIconIv;
+        private String avatarUserName;
+
+        UserViewHolder(@NonNull View itemView) {
+            super(itemView);
+            userIDTextView = itemView.findViewById(R.id.item_online_user_id);
+            userNameTextView = itemView.findViewById(R.id.item_online_user_name);
+            userIconIv = itemView.findViewById(R.id.item_online_user_icon);
+        }
+
+        void bind(ZegoUserInfo userInfo) {
+            userIDTextView.setText("ID:" + userInfo.userID);
+            userNameTextView.setText(userInfo.userName);
+            // the avatar only depends on the name, keep it when a recycled row shows the same name
+            if (avatarUserName == null || !avatarUserName.equals(userInfo.userName)) {
+                avatarUserName = userInfo.userName;
+                userIconIv.setImageDrawable(AvatarHelper.getAvatarByUserName(userInfo.userName));
+            }
+        }
+    }
+
+    /**
+     * Forward the diff to the adapter, and swap the placeholder row when the list becomes empty or not empty.
+     */
+    class PlaceholderUpdateCallback implements ListUpdateCallback {
+
+        // number of users the adapter has been notified about
+        private int notifiedSize;
+
+        @Override
+        public void onInserted(int position, int count) {
+            if (count == 0) {
+                return;
+            }
+            if (notifiedSize == 0) {
+                notifyItemRemoved(0);
+            }
+            notifiedSize += count;
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (count == 0) {
+                return;
+            }
+            notifiedSize -= count;
+            notifyItemRangeRemoved(position, count);
+            if (notifiedSize == 0) {
+                notifyItemInserted(0);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            notifyItemRangeChanged(position, count, payload);
+        }
     }
 }
@@ -1,15 +1,37 @@
 package im.zego.call.utils;
 
 import android.graphics.drawable.Drawable;
-import android.util.Log;
+import android.util.LruCache;
 import com.blankj.utilcode.util.ResourceUtils;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import im.zego.call.R;
 
 public final class AvatarHelper {
 
     private static final int MAX_INDEX = 6;
-    private static final String TAG = "AvatarHelper";
+    private static final int INDEX_CACHE_SIZE = 1024;
+
+    // user_icon_{index + 1}, user_icon_{index + 1}_big and user_icon_{index + 1}_blur, indexed by avatar index
+    private static final int[] AVATAR_IDS = {R.drawable.user_icon_1, R.drawable.user_icon_2, R.drawable.user_icon_3,
+        R.drawable.user_icon_4, R.drawable.user_icon_5, R.drawable.user_icon_6};
+    private static final int[] FULL_AVATAR_IDS = {R.drawable.user_icon_1_big, R.drawable.user_icon_2_big,
+        R.drawable.user_icon_3_big, R.drawable.user_icon_4_big, R.drawable.user_icon_5_big, R.drawable.user_icon_6_big};
+    private static final int[] BLUR_AVATAR_IDS = {R.drawable.user_icon_1_blur, R.drawable.user_icon_2_blur,
+        R.drawable.user_icon_3_blur, R.drawable.user_icon_4_blur, R.drawable.user_icon_5_blur,
+        R.drawable.user_icon_6_blur};
+
+    // userName -> avatar index, the index is cheap to map to every resource id
+    private static final LruCache<String, Integer> INDEX_CACHE = new LruCache<>(INDEX_CACHE_SIZE);
+
+    // existing users keep their avatars unless a different strategy is chosen on purpose
+    private static volatile AvatarIndexStrategy indexStrategy = AvatarIndexStrategy.MD5_COMPAT;
+
+    /**
+     * Change how userNames are mapped to avatars, the cached indexes are dropped.
+     */
+    public static void setIndexStrategy(AvatarIndexStrategy strategy) {
+        indexStrategy = strategy;
+        INDEX_CACHE.evictAll();
+    }
 
     public static Drawable getAvatarByUserName(String userName) {
         int resourceID = getResourceID(userName, false);
@@ -25,48 +47,28 @@ public final class AvatarHelper {
 
     public static int getResourceID(String userName, boolean full) {
         int index = getIndex(userName);
-        String name;
-        if (full) {
-            name = "user_icon_" + (index % MAX_INDEX + 1) + "_big";
-        } else {
-            name = "user_icon_" + (index % MAX_INDEX + 1);
-        }
-        Log.d(TAG,
-            "getResourceIndex() called with: userName = [" + userName + "], full = [" + full + "],:" + ",index:" + index
-                + ",name: " + name);
-        return ResourceUtils.getDrawableIdByName(name);
-
+        return full ? FULL_AVATAR_IDS[index] : AVATAR_IDS[index];
     }
 
     public static int getBlurResourceID(String userName) {
-        int index = getIndex(userName);
-        String name = "user_icon_" + (index % MAX_INDEX + 1) + "_blur";
-        Log.d(TAG, "getResourceIndex() called with: userName = [" + userName + "],index:" + index + ",name: " + name);
-        return ResourceUtils.getDrawableIdByName(name);
-
+        return BLUR_AVATAR_IDS[getIndex(userName)];
     }
 
+    /**
+     * @return the avatar index of the user in [0, 6), computed once per userName by the
+     * {@link AvatarIndexStrategy} and then served from an LRU cache.
+     */
     public static int getIndex(String userName) {
-        byte[] value;
-        try {
-            value = md5(userName);
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+        if (userName == null) {
             return 0;
         }
-
-        if (value.length > 0) {
-            String hex = bytesToHex(value);
-            int value0 = value[0] & 0xff;
-            int index = Math.abs(value0 % MAX_INDEX);
-            return index;
-        } else {
-            return 0;
+        Integer cached = INDEX_CACHE.get(userName);
+        if (cached != null) {
+            return cached;
         }
-    }
-
-    private static byte[] md5(String input) throws NoSuchAlgorithmException {
-        return MessageDigest.getInstance("MD5").digest(input.getBytes());
+        int index = indexStrategy.indexOf(userName, MAX_INDEX);
+        INDEX_CACHE.put(userName, index);
+        return index;
     }
 
     private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
@@ -80,4 +82,4 @@ public final class AvatarHelper {
         }
         return new String(hexChars);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package im.zego.call.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Map a userName to one of the avatar buckets. The result must only depend on the name, so a user gets the same
+ * avatar on every device.
+ */
+public interface AvatarIndexStrategy {
+
+    /**
+     * @param userName    not null
+     * @param bucketCount number of avatars
+     * @return index in [0, bucketCount)
+     */
+    int indexOf(String userName, int bucketCount);
+
+    /**
+     * The original mapping, first byte of the MD5 of the UTF-8 name modulo the bucket count. Keep it while other
+     * versions of the app are online, it is the only one they know.
+     */
+    AvatarIndexStrategy MD5_COMPAT = new AvatarIndexStrategy() {
+        private final ThreadLocal<MessageDigest> md5 = new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance("MD5");
+                } catch (NoSuchAlgorithmException e) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+        };
+
+        @Override
+        public int indexOf(String userName, int bucketCount) {
+            MessageDigest digest = md5.get();
+            if (digest == null) {
+                return 0;
+            }
+            byte[] value = digest.digest(userName.getBytes(StandardCharsets.UTF_8));
+            return value.length > 0 ? (value[0] & 0xff) % bucketCount : 0;
+        }
+    };
+
+    /**
+     * 32-bit FNV-1a over the UTF-16 code units of the name, no allocation and no cryptographic hash. It maps names to
+     * other avatars than {@link #MD5_COMPAT}.
+     */
+    AvatarIndexStrategy FNV1A = (userName, bucketCount) -> {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < userName.length(); i++) {
+            char c = userName.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x01000193;
+            hash = (hash ^ (c >>> 8)) * 0x01000193;
+        }
+        return (int) ((hash & 0xffffffffL) % bucketCount);
+    };
+}
@@ -0,0 +1,249 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link APIBase#jsonBody} must send the same bytes the {@code JsonObject} bodies it replaced sent, responses are
+ * decoded on the OkHttp thread before they are delivered, and identical shared requests are sent once.
+ */
+public class APIBaseTest {
+
+    private MockWebServer server;
+
+    /**
+     * What one request delivered, and on which thread its parser ran.
+     */
+    private static class Result<T> implements IAsyncGetCallback<T> {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int code;
+        volatile String message;
+        volatile T data;
+        volatile String parserThread;
+
+        @Override
+        public void onResponse(int errorCode, String message, T response) {
+            this.code = errorCode;
+            this.message = message;
+            this.data = response;
+            done.countDown();
+        }
+
+        Result<T> await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            return this;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        // no main looper in JVM tests, deliver on the OkHttp thread
+        APIBase.setDeliveryExecutor(Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private Result<String> post(String responseBody) throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(responseBody));
+        Result<String> result = new Result<>();
+        APIBase.asyncPost(server.url("/v1/test").toString(), "{}", reader -> {
+            result.parserThread = Thread.currentThread().getName();
+            return reader.nextString();
+        }, result);
+        return result.await();
+    }
+
+    private static JsonObject userListObject(int pageNum, String from, int direct) {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("page_num", pageNum);
+        jsonObject.addProperty("from", from);
+        jsonObject.addProperty("direct", direct);
+        jsonObject.addProperty("type", 1);
+        return jsonObject;
+    }
+
+    private static ByteString userListBody(int pageNum, String from, int direct) {
+        return APIBase.jsonBody(writer -> writer
+            .name("page_num").value(pageNum)
+            .name("from").value(from)
+            .name("direct").value(direct)
+            .name("type").value(1));
+    }
+
+    private static JsonObject loginObject(String name, String userID) {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("name", name);
+        jsonObject.addProperty("id", userID);
+        jsonObject.addProperty("type", 1);
+        return jsonObject;
+    }
+
+    private static ByteString loginBody(String name, String userID) {
+        return APIBase.jsonBody(writer -> writer
+            .name("name").value(name)
+            .name("id").value(userID)
+            .name("type").value(1));
+    }
+
+    @Test
+    public void userListBodyMatchesJsonObject() {
+        assertEquals(userListObject(100, "", 0).toString(), userListBody(100, "", 0).utf8());
+        assertEquals(userListObject(100, "1650000000123", 1).toString(), userListBody(100, "1650000000123", 1).utf8());
+        assertEquals(userListObject(100, null, 0).toString(), userListBody(100, null, 0).utf8());
+    }
+
+    @Test
+    public void loginBodyMatchesJsonObject() {
+        String[] names = {"Alice", "张三", "emoji😀", "quote\" back\\slash", "<tag>&='", "tab\tnew\nline\u0001",
+            "  ", ""};
+        for (String name : names) {
+            assertEquals(name, loginObject(name, "123456").toString(), loginBody(name, "123456").utf8());
+        }
+        assertEquals(loginObject(null, null).toString(), loginBody(null, null).utf8());
+    }
+
+    @Test
+    public void bodyIsUtf8() {
+        ByteString body = loginBody("张三", "1");
+        assertEquals(ByteString.encodeUtf8(loginObject("张三", "1").toString()), body);
+    }
+
+    @Test
+    public void emptyWriterWritesAnEmptyObject() {
+        assertEquals("{}", APIBase.jsonBody(writer -> {
+        }).utf8());
+    }
+
+    @Test
+    public void dataIsParsedOffTheCallingThread() throws InterruptedException {
+        Result<String> result = post("{\"code\":0,\"message\":\"succeed\",\"data\":\"payload\"}");
+
+        assertEquals(0, result.code);
+        assertEquals("succeed", result.message);
+        assertEquals("payload", result.data);
+        assertNotEquals(Thread.currentThread().getName(), result.parserThread);
+        assertTrue(result.parserThread, result.parserThread.startsWith("OkHttp"));
+    }
+
+    @Test
+    public void envelopeFieldsInAnyOrder() throws InterruptedException {
+        Result<String> result = post("{\"data\":\"payload\",\"extra\":{\"a\":[1,2]},\"message\":null,\"code\":80001}");
+
+        assertEquals(80001, result.code);
+        assertEquals("", result.message);
+        assertEquals("payload", result.data);
+    }
+
+    @Test
+    public void nullDataIsNotParsed() throws InterruptedException {
+        Result<String> result = post("{\"code\":0,\"message\":\"succeed\",\"data\":null}");
+
+        assertEquals(0, result.code);
+        assertNull(result.data);
+        assertNull(result.parserThread);
+    }
+
+    @Test
+    public void malformedResponseIsAFormatError() throws InterruptedException {
+        assertEquals(ErrorcodeConstants.ErrorJSONFormatInvalid, post("not json").code);
+        assertEquals(ErrorcodeConstants.ErrorJSONFormatInvalid, post("{\"code\":\"zero\"}").code);
+        assertEquals(ErrorcodeConstants.ErrorJSONFormatInvalid, post("{\"message\":\"no code\"}").code);
+    }
+
+    @Test
+    public void droppedConnectionIsANetworkError() throws InterruptedException {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        Result<String> result = new Result<>();
+        APIBase.asyncPost(server.url("/v1/test").toString(), "{}", JsonReader::nextString, result);
+
+        assertEquals(ErrorcodeConstants.ErrorFailNetwork, result.await().code);
+        assertNull(result.data);
+    }
+
+    private Result<String> postShared(String path, String body, long reuseMillis) {
+        Result<String> result = new Result<>();
+        APIBase.asyncPostShared(server.url(path).toString(), body, JsonReader::nextString, reuseMillis, result);
+        return result;
+    }
+
+    @Test
+    public void identicalRequestsInFlightShareOneCall() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"page\"}")
+            .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        Result<String> first = postShared("/v1/shared/in_flight", "{\"page_num\":1}", 0);
+        Result<String> second = postShared("/v1/shared/in_flight", "{\"page_num\":1}", 0);
+
+        first.await();
+        second.await();
+        assertEquals(1, server.getRequestCount());
+        assertEquals("page", first.data);
+        assertSame(first.data, second.data);
+    }
+
+    @Test
+    public void differentBodiesAreNotShared() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"one\"}")
+            .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"two\"}"));
+        Result<String> first = postShared("/v1/shared/bodies", "{\"page_num\":1}", 0);
+        Result<String> second = postShared("/v1/shared/bodies", "{\"page_num\":2}", 0);
+
+        first.await();
+        second.await();
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void successIsReusedForReuseMillis() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"page\"}"));
+        Result<String> first = postShared("/v1/shared/reuse", "{}", 60_000).await();
+        Result<String> second = postShared("/v1/shared/reuse", "{}", 60_000).await();
+
+        assertEquals(1, server.getRequestCount());
+        assertSame(first.data, second.data);
+    }
+
+    @Test
+    public void withoutReuseMillisTheNextRequestIsSent() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"one\"}"));
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"two\"}"));
+        postShared("/v1/shared/no_reuse", "{}", 0).await();
+
+        assertEquals("two", postShared("/v1/shared/no_reuse", "{}", 0).await().data);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void errorsAreNotReused() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("{\"code\":100000,\"message\":\"system error\"}"));
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":\"page\"}"));
+        assertEquals(100000, postShared("/v1/shared/error", "{}", 60_000).await().code);
+
+        Result<String> retry = postShared("/v1/shared/error", "{}", 60_000).await();
+        assertEquals(0, retry.code);
+        assertEquals("page", retry.data);
+        assertEquals(2, server.getRequestCount());
+    }
+}
@@ -0,0 +1,91 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.Dns;
+import org.junit.Test;
+
+public class CachingDnsTest {
+
+    /**
+     * Answers with a fresh address list per lookup, or fails while {@link #down} is set.
+     */
+    private static class FakeDns implements Dns {
+
+        int lookups;
+        boolean down;
+
+        @NonNull
+        @Override
+        public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+            lookups++;
+            if (down) {
+                throw new UnknownHostException(hostname);
+            }
+            return Collections.singletonList(InetAddress.getByAddress(hostname, new byte[]{10, 0, 0, (byte) lookups}));
+        }
+    }
+
+    private final FakeDns delegate = new FakeDns();
+    private final CachingDns dns = new CachingDns(delegate, 1000);
+
+    @Test
+    public void servesFromCacheUntilExpired() throws UnknownHostException {
+        List<InetAddress> first = dns.lookup("api.example.com", 0);
+        assertSame(first, dns.lookup("api.example.com", 999));
+        assertEquals(1, delegate.lookups);
+
+        List<InetAddress> second = dns.lookup("api.example.com", 1000);
+        assertEquals(2, delegate.lookups);
+        assertEquals(2, second.get(0).getAddress()[3]);
+        assertSame(second, dns.lookup("api.example.com", 1999));
+    }
+
+    @Test
+    public void cachesPerHost() throws UnknownHostException {
+        dns.lookup("a.example.com", 0);
+        dns.lookup("b.example.com", 0);
+        dns.lookup("a.example.com", 10);
+        dns.lookup("b.example.com", 10);
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void usesExpiredAddressesWhenLookupFails() throws UnknownHostException {
+        List<InetAddress> first = dns.lookup("api.example.com", 0);
+        delegate.down = true;
+        assertSame(first, dns.lookup("api.example.com", 5000));
+        assertEquals(2, delegate.lookups);
+
+        // tried again on the next lookup, not cached as a failure
+        delegate.down = false;
+        List<InetAddress> fresh = dns.lookup("api.example.com", 5001);
+        assertEquals(3, delegate.lookups);
+        assertEquals(3, fresh.get(0).getAddress()[3]);
+    }
+
+    @Test
+    public void failsWithoutAnyCachedAddress() {
+        delegate.down = true;
+        try {
+            dns.lookup("api.example.com", 0);
+            fail();
+        } catch (UnknownHostException expected) {
+        }
+    }
+
+    @Test
+    public void clearForcesALookup() throws UnknownHostException {
+        dns.lookup("api.example.com", 0);
+        dns.clear();
+        dns.lookup("api.example.com", 1);
+        assertEquals(2, delegate.lookups);
+    }
+}
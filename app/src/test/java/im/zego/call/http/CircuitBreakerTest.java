@@ -0,0 +1,78 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+
+    private void failTimes(int times, long now) {
+        for (int i = 0; i < times; i++) {
+            breaker.allowRequest(now);
+            breaker.onFailure(now);
+        }
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        assertTrue(breaker.allowRequest(0));
+        assertFalse(breaker.onFailure(0));
+        assertFalse(breaker.onFailure(0));
+        assertTrue(breaker.onFailure(0));
+        assertFalse(breaker.allowRequest(500));
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        failTimes(2, 0);
+        breaker.onSuccess();
+        failTimes(2, 0);
+        assertTrue(breaker.allowRequest(0));
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() {
+        failTimes(3, 0);
+        assertFalse(breaker.allowRequest(999));
+        assertTrue(breaker.allowRequest(1000));
+        assertFalse(breaker.allowRequest(1000));
+        assertFalse(breaker.allowRequest(5000));
+    }
+
+    @Test
+    public void successfulTrialCloses() {
+        failTimes(3, 0);
+        assertTrue(breaker.allowRequest(1000));
+        breaker.onSuccess();
+        assertTrue(breaker.allowRequest(1000));
+        assertTrue(breaker.allowRequest(1000));
+    }
+
+    @Test
+    public void failedTrialReopens() {
+        failTimes(3, 0);
+        assertTrue(breaker.allowRequest(1000));
+        assertTrue(breaker.onFailure(1100));
+        assertFalse(breaker.allowRequest(2099));
+        assertTrue(breaker.allowRequest(2100));
+    }
+
+    @Test
+    public void cancelledTrialAllowsAnotherAtOnce() {
+        failTimes(3, 0);
+        assertTrue(breaker.allowRequest(1000));
+        breaker.onCancel(1200);
+        assertTrue(breaker.allowRequest(1200));
+    }
+
+    @Test
+    public void cancelWhileClosedChangesNothing() {
+        failTimes(2, 0);
+        breaker.onCancel(0);
+        assertTrue(breaker.allowRequest(0));
+        assertTrue(breaker.onFailure(0));
+    }
+}
@@ -0,0 +1,77 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sends requests through a client built like the shared one and checks what {@link ConnectionMetrics} counts.
+ */
+public class ConnectionMetricsTest {
+
+    private static final int REQUESTS = 20;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        for (int i = 0; i < REQUESTS; i++) {
+            server.enqueue(new MockResponse().setBody("{\"code\":0}"));
+        }
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private void sendAll(OkHttpClient client) throws IOException {
+        for (int i = 0; i < REQUESTS; i++) {
+            Request request = new Request.Builder().url(server.url("/v1/user/heartbeat")).build();
+            try (Response response = client.newCall(request).execute()) {
+                response.body().string();
+            }
+        }
+    }
+
+    @Test
+    public void pooledConnectionIsReused() throws Exception {
+        ConnectionMetrics metrics = new ConnectionMetrics();
+        OkHttpClient client = APIBase.OkHttpInstance.newClient(NetworkProfile.defaultProfile(), metrics);
+
+        sendAll(client);
+
+        assertEquals(1, metrics.getNewConnections());
+        assertEquals(REQUESTS - 1, metrics.getReusedConnections());
+        assertEquals(1, metrics.getDnsLookups());
+        assertEquals((float) (REQUESTS - 1) / REQUESTS, metrics.getReuseRatio(), 0.0001f);
+        // the sequence number counts the requests on one connection
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber());
+        }
+    }
+
+    @Test
+    public void withoutIdleConnectionsEveryCallConnects() throws IOException {
+        NetworkProfile profile = NetworkProfile.defaultProfile();
+        profile.maxIdleConnections = 0;
+        ConnectionMetrics metrics = new ConnectionMetrics();
+        OkHttpClient client = APIBase.OkHttpInstance.newClient(profile, metrics);
+
+        sendAll(client);
+
+        assertEquals(REQUESTS, metrics.getNewConnections());
+        assertEquals(0, metrics.getReusedConnections());
+        assertEquals(0f, metrics.getReuseRatio(), 0f);
+    }
+}
@@ -0,0 +1,82 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserDelta;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class FullPullDeltaSourceTest {
+
+    static UserBean user(String userID, String userName, String order) {
+        UserBean userBean = new UserBean();
+        userBean.userID = userID;
+        userBean.userName = userName;
+        userBean.order = order;
+        return userBean;
+    }
+
+    private static Map<String, UserBean> snapshot(UserBean... users) {
+        Map<String, UserBean> snapshot = new LinkedHashMap<>();
+        for (UserBean userBean : users) {
+            snapshot.put(userBean.userID, userBean);
+        }
+        return snapshot;
+    }
+
+    @Test
+    public void unchangedListGivesEmptyDelta() {
+        Map<String, UserBean> snapshot = snapshot(user("a", "Ann", "1"), user("b", "Bob", "2"));
+        UserDelta delta = FullPullDeltaSource.diff(snapshot,
+            Arrays.asList(user("a", "Ann", "1"), user("b", "Bob", "2")));
+        assertTrue(delta.isEmpty());
+        assertEquals("2", delta.cursor);
+    }
+
+    @Test
+    public void newAndChangedUsersAreUpserted() {
+        Map<String, UserBean> snapshot = snapshot(user("a", "Ann", "1"), user("b", "Bob", "2"),
+            user("c", "Cid", "3"));
+        List<UserBean> users = Arrays.asList(user("a", "Ann", "1"), user("b", "Bobby", "2"),
+            user("c", "Cid", "5"), user("d", "Dan", "6"));
+        UserDelta delta = FullPullDeltaSource.diff(snapshot, users);
+        assertEquals(3, delta.upserted.size());
+        assertEquals("b", delta.upserted.get(0).userID);
+        assertEquals("c", delta.upserted.get(1).userID);
+        assertEquals("d", delta.upserted.get(2).userID);
+        assertTrue(delta.removed.isEmpty());
+        assertEquals("6", delta.cursor);
+    }
+
+    @Test
+    public void missingUsersAreRemoved() {
+        Map<String, UserBean> snapshot = snapshot(user("a", "Ann", "1"), user("b", "Bob", "2"),
+            user("c", "Cid", "3"));
+        UserDelta delta = FullPullDeltaSource.diff(snapshot, Collections.singletonList(user("b", "Bob", "2")));
+        assertTrue(delta.upserted.isEmpty());
+        assertEquals(Arrays.asList("a", "c"), delta.removed);
+    }
+
+    @Test
+    public void emptyListRemovesEveryone() {
+        Map<String, UserBean> snapshot = snapshot(user("a", "Ann", "1"));
+        UserDelta delta = FullPullDeltaSource.diff(snapshot, Collections.<UserBean>emptyList());
+        assertEquals(Collections.singletonList("a"), delta.removed);
+        assertNull(delta.cursor);
+    }
+
+    @Test
+    public void emptySnapshotUpsertsEveryone() {
+        List<UserBean> users = Arrays.asList(user("a", "Ann", "1"), user("b", null, "2"));
+        UserDelta delta = FullPullDeltaSource.diff(Collections.<String, UserBean>emptyMap(), users);
+        assertEquals(users, delta.upserted);
+        assertTrue(delta.removed.isEmpty());
+    }
+}
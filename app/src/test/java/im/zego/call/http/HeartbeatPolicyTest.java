@@ -0,0 +1,86 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HeartbeatPolicyTest {
+
+    private static HeartbeatPolicy policyWithoutJitter() {
+        return new HeartbeatPolicy(1000, 300, 5000, 0);
+    }
+
+    @Test
+    public void foregroundIntervalIsFixed() {
+        HeartbeatPolicy policy = policyWithoutJitter();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1000, policy.nextDelay());
+        }
+        assertEquals(1000, policy.currentInterval());
+    }
+
+    @Test
+    public void backgroundBacksOffOncePerBeat() {
+        HeartbeatPolicy policy = policyWithoutJitter();
+        policy.setForeground(false);
+        assertEquals(1000, policy.nextDelay());
+        assertEquals(2000, policy.nextDelay());
+        assertEquals(4000, policy.nextDelay());
+        assertEquals(5000, policy.nextDelay());
+        assertEquals(5000, policy.nextDelay());
+    }
+
+    @Test
+    public void currentIntervalDoesNotAdvanceTheBackoff() {
+        HeartbeatPolicy policy = policyWithoutJitter();
+        policy.setForeground(false);
+        policy.nextDelay();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2000, policy.currentInterval());
+            assertEquals(2000, policy.currentDelay());
+        }
+        assertEquals(2000, policy.nextDelay());
+        assertEquals(4000, policy.currentInterval());
+    }
+
+    @Test
+    public void ringingOverridesBackground() {
+        HeartbeatPolicy policy = policyWithoutJitter();
+        policy.setForeground(false);
+        policy.nextDelay();
+        policy.nextDelay();
+        policy.setRinging(true);
+        assertEquals(300, policy.nextDelay());
+        assertEquals(300, policy.nextDelay());
+        policy.setRinging(false);
+        // ringing beats do not advance the backoff
+        assertEquals(4000, policy.currentInterval());
+    }
+
+    @Test
+    public void foregroundResetsTheBackoff() {
+        HeartbeatPolicy policy = policyWithoutJitter();
+        policy.setForeground(false);
+        policy.nextDelay();
+        policy.nextDelay();
+        policy.setForeground(true);
+        assertEquals(1000, policy.currentInterval());
+        policy.setForeground(false);
+        assertEquals(1000, policy.nextDelay());
+    }
+
+    @Test
+    public void jitterStaysWithinBounds() {
+        HeartbeatPolicy policy = new HeartbeatPolicy(10_000, 3000, 30_000, 0.1f);
+        boolean varied = false;
+        long first = policy.currentDelay();
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.currentDelay();
+            assertTrue(String.valueOf(delay), delay >= 9000 && delay <= 11_000);
+            varied |= delay != first;
+        }
+        assertTrue(varied);
+        assertEquals(10_000, policy.currentInterval());
+    }
+}
@@ -0,0 +1,264 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs {@link ResilientCall} and {@link ResilienceInterceptor} against a server that injects errors, slow responses
+ * and dropped connections.
+ */
+public class ResilientCallTest {
+
+    private MockWebServer server;
+    private ScheduledExecutorService scheduler;
+    private ResilienceMetrics metrics;
+    private OkHttpClient client;
+
+    /**
+     * The outcome of one logical request.
+     */
+    private static class Outcome implements Callback {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int code;
+        volatile String body;
+        volatile IOException failure;
+        volatile long elapsedMillis;
+        private final long startTime = System.nanoTime();
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            failure = e;
+            finish();
+        }
+
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+            code = response.code();
+            body = response.body().string();
+            finish();
+        }
+
+        private void finish() {
+            elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+            done.countDown();
+        }
+
+        Outcome await() throws InterruptedException {
+            assertTrue("no outcome", done.await(10, TimeUnit.SECONDS));
+            return this;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        metrics = new ResilienceMetrics();
+        client = new OkHttpClient.Builder()
+            // only ResilientCall may send a request again
+            .retryOnConnectionFailure(false)
+            .addInterceptor(new ResilienceInterceptor(metrics))
+            .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        client.dispatcher().cancelAll();
+        server.shutdown();
+    }
+
+    private Outcome send(RequestPolicy policy) {
+        Request request = new Request.Builder().url(server.url("/v1/user/heartbeat")).build();
+        Outcome outcome = new Outcome();
+        new ResilientCall(client, request, policy, scheduler, metrics, outcome).start();
+        return outcome;
+    }
+
+    private static MockResponse ok(String body) {
+        return new MockResponse().setBody(body);
+    }
+
+    private static MockResponse error(int code) {
+        return new MockResponse().setResponseCode(code);
+    }
+
+    @Test
+    public void serverErrorsAreRetried() throws InterruptedException {
+        server.enqueue(error(503));
+        server.enqueue(error(500));
+        server.enqueue(ok("ok"));
+        Outcome outcome = send(new RequestPolicy(2, 0)).await();
+        assertEquals(200, outcome.code);
+        assertEquals("ok", outcome.body);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, metrics.getRetries());
+    }
+
+    @Test
+    public void lastServerErrorIsDeliveredWhenRetriesRunOut() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(error(502));
+        }
+        Outcome outcome = send(new RequestPolicy(2, 0)).await();
+        assertEquals(502, outcome.code);
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void defaultPolicySendsOnce() throws InterruptedException {
+        server.enqueue(error(503));
+        server.enqueue(ok("ok"));
+        Outcome outcome = send(RequestPolicy.DEFAULT).await();
+        assertEquals(503, outcome.code);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, metrics.getRetries());
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() throws InterruptedException {
+        server.enqueue(error(404));
+        server.enqueue(ok("ok"));
+        Outcome outcome = send(new RequestPolicy(2, 0)).await();
+        assertEquals(404, outcome.code);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void droppedConnectionIsRetried() throws InterruptedException {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(ok("ok"));
+        Outcome outcome = send(new RequestPolicy(1, 0)).await();
+        assertEquals(200, outcome.code);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void droppedConnectionFailsWithoutRetries() throws InterruptedException {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        Outcome outcome = send(RequestPolicy.DEFAULT).await();
+        assertNotNull(outcome.failure);
+    }
+
+    @Test
+    public void hedgeAnswersForASlowRequest() throws InterruptedException {
+        server.enqueue(ok("slow").setHeadersDelay(3, TimeUnit.SECONDS));
+        server.enqueue(ok("hedge"));
+        Outcome outcome = send(new RequestPolicy(1, 100)).await();
+        assertEquals("hedge", outcome.body);
+        assertTrue(outcome.elapsedMillis < 2000);
+        assertEquals(1, metrics.getHedgedRequests());
+        assertEquals(1, metrics.getHedgeWins());
+    }
+
+    @Test
+    public void serverErrorDoesNotWinOverTheHedge() throws InterruptedException {
+        server.enqueue(error(503).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(ok("hedge").setHeadersDelay(600, TimeUnit.MILLISECONDS));
+        Outcome outcome = send(new RequestPolicy(1, 100)).await();
+        assertEquals(200, outcome.code);
+        assertEquals("hedge", outcome.body);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, metrics.getRetries());
+    }
+
+    @Test
+    public void hedgesAndRetriesShareOneBudget() throws InterruptedException {
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(error(503).setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        }
+        Outcome outcome = send(new RequestPolicy(1, 50)).await();
+        assertEquals(503, outcome.code);
+        assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+        assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+        // nothing is sent after the outcome either
+        assertNull(server.takeRequest(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void hedgeIsNotSentWhileARetryWaits() throws InterruptedException {
+        server.enqueue(error(503));
+        server.enqueue(ok("retry"));
+        server.enqueue(ok("extra"));
+        Outcome outcome = send(new RequestPolicy(2, 1000)).await();
+        assertEquals("retry", outcome.body);
+        assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+        assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+        // no hedge once the hedge delay of the retry has passed
+        assertNull(server.takeRequest(1200, TimeUnit.MILLISECONDS));
+        assertEquals(0, metrics.getHedgedRequests());
+    }
+
+    @Test
+    public void openCircuitRejectsWithoutReachingTheServer() throws InterruptedException {
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            server.enqueue(error(500));
+            assertEquals(500, send(RequestPolicy.DEFAULT).await().code);
+        }
+        assertEquals(1, metrics.getCircuitOpens());
+        server.enqueue(ok("ok"));
+        Outcome outcome = send(new RequestPolicy(2, 0)).await();
+        assertTrue(outcome.failure instanceof CircuitOpenException);
+        assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, server.getRequestCount());
+        // the open breaker is not retried
+        assertEquals(0, metrics.getRetries());
+        assertEquals(1, metrics.getShortCircuits());
+    }
+
+    @Test
+    public void failingTrialRequestReopensTheCircuit() throws Exception {
+        boolean[] failTrial = new boolean[1];
+        OkHttpClient client = new OkHttpClient.Builder()
+            .retryOnConnectionFailure(false)
+            .addInterceptor(new ResilienceInterceptor(metrics, 1, 0))
+            .addInterceptor(chain -> {
+                if (failTrial[0]) {
+                    failTrial[0] = false;
+                    throw new IllegalStateException("injected");
+                }
+                return chain.proceed(chain.request());
+            })
+            .build();
+        Request request = new Request.Builder().url(server.url("/v1/user/heartbeat")).build();
+        server.enqueue(error(500));
+        server.enqueue(ok("ok"));
+
+        client.newCall(request).execute().close();
+        // opened by one failure, and open for no time, so the next request is the trial
+        assertEquals(1, metrics.getCircuitOpens());
+        failTrial[0] = true;
+        try {
+            client.newCall(request).execute();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // the failed trial opened the circuit again instead of leaving it half open
+        assertEquals(2, metrics.getCircuitOpens());
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals("ok", response.body().string());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Overlapping requests for the same user list page must reach the server once, and every requester must still get
+ * all users of the page in its sink.
+ */
+public class SharedUserPageTest {
+
+    private static final int USERS = UserListDecoder.BATCH_SIZE * 2 + 3;
+
+    private MockWebServer server;
+
+    /**
+     * Records the users and the threads they came on, and the page delivered to the callback.
+     */
+    private static class Requester implements IUserPageSink, IAsyncGetCallback<UserPage> {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<UserBean> users = new ArrayList<>();
+        final List<String> threads = new ArrayList<>();
+        UserPage pageEnd;
+        volatile int code = -1;
+        volatile UserPage page;
+
+        @Override
+        public synchronized void onUsers(List<UserBean> batch) {
+            users.addAll(batch);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public synchronized void onPageEnd(UserPage page) {
+            pageEnd = page;
+        }
+
+        @Override
+        public void onResponse(int errorCode, @NonNull String message, UserPage response) {
+            code = errorCode;
+            page = response;
+            done.countDown();
+        }
+
+        Requester await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            return this;
+        }
+    }
+
+    private static String userListResponse(String prefix) {
+        StringBuilder builder = new StringBuilder("{\"code\":0,\"message\":\"succeed\",\"data\":{\"user_list\":[");
+        for (int i = 0; i < USERS; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":\"").append(prefix).append(i).append("\",\"name\":\"n").append(i)
+                .append("\",\"order\":\"").append(i).append("\"}");
+        }
+        return builder.append("]}}").toString();
+    }
+
+    private static ByteString body(int pageNum, String from) {
+        return APIBase.jsonBody(writer -> writer
+            .name("page_num").value(pageNum)
+            .name("from").value(from)
+            .name("direct").value(1)
+            .name("type").value(1));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        // no main looper in JVM tests, deliver on the OkHttp thread
+        APIBase.setDeliveryExecutor(Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    private Requester post(String path, ByteString body, long reuseMillis) {
+        Requester requester = new Requester();
+        SharedUserPage.post(server.url(path).toString(), body, reuseMillis, requester, requester);
+        return requester;
+    }
+
+    private static void assertAllUsers(String prefix, Requester requester) {
+        assertEquals(0, requester.code);
+        assertEquals(USERS, requester.page.count);
+        assertEquals(USERS, requester.users.size());
+        for (int i = 0; i < USERS; i++) {
+            assertEquals(prefix + i, requester.users.get(i).userID);
+        }
+        assertSame(requester.page, requester.pageEnd);
+        // in the batches of the decoder
+        assertEquals(3, requester.threads.size());
+    }
+
+    @Test
+    public void overlappingRequestsForOnePageAreSentOnce() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(userListResponse("u"))
+            .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        Requester first = post("/v1/user/get_user_list/overlap", body(100, null), 0);
+        Requester second = post("/v1/user/get_user_list/overlap", body(100, null), 0);
+
+        first.await();
+        second.await();
+        assertEquals(1, server.getRequestCount());
+        assertAllUsers("u", first);
+        assertAllUsers("u", second);
+        assertSame(first.page, second.page);
+    }
+
+    @Test
+    public void onlyTheSenderStreamsWhileParsing() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(userListResponse("u"))
+            .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        Requester first = post("/v1/user/get_user_list/stream", body(100, null), 0);
+        Requester second = post("/v1/user/get_user_list/stream", body(100, null), 0);
+
+        first.await();
+        second.await();
+        // the sender got its batches before the callback, the joiner got them replayed in the delivery
+        for (String thread : first.threads) {
+            assertTrue(thread, thread.startsWith("OkHttp"));
+        }
+        assertEquals(USERS, second.users.size());
+    }
+
+    @Test
+    public void otherCursorsAreNotShared() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(userListResponse("a"))
+            .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody(userListResponse("b")));
+        Requester first = post("/v1/user/get_user_list/cursor", body(100, null), 0);
+        Requester second = post("/v1/user/get_user_list/cursor", body(100, "42"), 0);
+
+        first.await();
+        second.await();
+        assertEquals(2, server.getRequestCount());
+        assertNotEquals(first.page, second.page);
+    }
+
+    @Test
+    public void reusedPageIsReplayedIntoTheSink() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(userListResponse("u")));
+        Requester first = post("/v1/user/get_user_list/reuse", body(100, null), 60_000).await();
+        Requester second = post("/v1/user/get_user_list/reuse", body(100, null), 60_000).await();
+
+        assertEquals(1, server.getRequestCount());
+        assertAllUsers("u", first);
+        assertAllUsers("u", second);
+    }
+
+    @Test
+    public void missingListIsAFormatError() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody("{\"code\":0,\"data\":{}}"));
+        Requester requester = post("/v1/user/get_user_list/empty", body(100, null), 0).await();
+
+        assertEquals(ErrorcodeConstants.ErrorJSONFormatInvalid, requester.code);
+        assertNull(requester.page);
+        assertTrue(requester.users.isEmpty());
+    }
+
+    /**
+     * Two pagers loading the same list, like the online user list and the directory sync, share every page.
+     */
+    @Test
+    public void twoPagersShareTheirPages() throws InterruptedException {
+        server.enqueue(new MockResponse().setBody(userListResponse("u"))
+            .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        String url = server.url("/v1/user/get_user_list/pagers").toString();
+        UserListPager.IPageRequester requester = (pageSize, cursor, sink, callback) ->
+            SharedUserPage.post(url, body(pageSize, cursor), 0, sink, callback);
+        // one page holds all users, so each load is one request
+        CountDownLatch done = new CountDownLatch(2);
+        List<Integer> sizes = new ArrayList<>();
+        IUserListCallback callback = new IUserListCallback() {
+            @Override
+            public void onPage(List<UserBean> page, List<UserBean> users) {
+            }
+
+            @Override
+            public synchronized void onComplete(int errorCode, @NonNull String message, List<UserBean> users) {
+                sizes.add(users.size());
+                done.countDown();
+            }
+        };
+        new UserListPager(100, 2, requester).start(null, callback);
+        new UserListPager(100, 2, requester).start(null, callback);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, sizes.size());
+        assertEquals(USERS, (int) sizes.get(0));
+        assertEquals(USERS, (int) sizes.get(1));
+    }
+}
@@ -0,0 +1,161 @@
+package im.zego.call.http;
+
+import static im.zego.call.http.FullPullDeltaSourceTest.user;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserDelta;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UserDirectoryTest {
+
+    /**
+     * Diffs against a full list set by the test, like {@link FullPullDeltaSource} does after a pull, and completes
+     * when the test says so.
+     */
+    private static class FakeDeltaSource implements IUserDeltaSource {
+
+        List<UserBean> serverUsers = Collections.emptyList();
+        int errorCode;
+        String lastCursor;
+        private Runnable pending;
+
+        @Override
+        public void fetchDelta(String cursor, Map<String, UserBean> snapshot, IAsyncGetCallback<UserDelta> callback) {
+            lastCursor = cursor;
+            pending = () -> {
+                if (errorCode != 0) {
+                    callback.onResponse(errorCode, "error", null);
+                } else {
+                    callback.onResponse(0, "", FullPullDeltaSource.diff(snapshot, serverUsers));
+                }
+            };
+        }
+
+        void complete() {
+            Runnable runnable = pending;
+            pending = null;
+            runnable.run();
+        }
+    }
+
+    private FakeDeltaSource source;
+    private UserDirectory directory;
+    private UserDelta lastDelta;
+    private int lastErrorCode;
+
+    @Before
+    public void setUp() {
+        source = new FakeDeltaSource();
+        directory = new UserDirectory(source);
+    }
+
+    private void sync() {
+        directory.sync((errorCode, message, response) -> {
+            lastErrorCode = errorCode;
+            lastDelta = response;
+        });
+        source.complete();
+    }
+
+    private static List<String> ids(List<UserBean> users) {
+        List<String> ids = new ArrayList<>();
+        for (UserBean userBean : users) {
+            ids.add(userBean.userID);
+        }
+        return ids;
+    }
+
+    @Test
+    public void syncMergesTheDelta() {
+        directory.reset(Arrays.asList(user("a", "Ann", "1"), user("b", "Bob", "2"), user("c", "Cid", "3")));
+        source.serverUsers = Arrays.asList(user("a", "Ann", "1"), user("c", "Cy", "3"), user("d", "Dan", "4"));
+        sync();
+        assertEquals("3", source.lastCursor);
+        assertEquals(Arrays.asList("a", "c", "d"), ids(directory.getUsers()));
+        assertEquals("Cy", directory.getUsers().get(1).userName);
+        assertEquals(Collections.singletonList("b"), lastDelta.removed);
+        assertEquals("4", directory.getCursor());
+    }
+
+    @Test
+    public void newUsersAreSortedByNumericOrder() {
+        directory.reset(Arrays.asList(user("a", "Ann", "9"), user("c", "Cid", "11")));
+        source.serverUsers = Arrays.asList(user("a", "Ann", "9"), user("b", "Bob", "10"), user("c", "Cid", "11"),
+            user("d", "Dan", "100"));
+        sync();
+        assertEquals(Arrays.asList("a", "b", "c", "d"), ids(directory.getUsers()));
+    }
+
+    @Test
+    public void descendingOrderIsKept() {
+        directory.reset(Arrays.asList(user("c", "Cid", "30"), user("a", "Ann", "10")));
+        source.serverUsers = Arrays.asList(user("c", "Cid", "30"), user("b", "Bob", "20"), user("a", "Ann", "10"));
+        sync();
+        assertEquals(Arrays.asList("c", "b", "a"), ids(directory.getUsers()));
+    }
+
+    @Test
+    public void emptyDeltaKeepsTheSnapshot() {
+        directory.reset(Arrays.asList(user("a", "Ann", "1"), user("b", "Bob", "2")));
+        List<UserBean> before = directory.getUsers();
+        int version = directory.getVersion();
+        source.serverUsers = new ArrayList<>(before);
+        sync();
+        assertTrue(lastDelta.isEmpty());
+        assertSame(before, directory.getUsers());
+        assertEquals(version, directory.getVersion());
+    }
+
+    @Test
+    public void changesBumpTheVersion() {
+        directory.reset(Collections.singletonList(user("a", "Ann", "1")));
+        int version = directory.getVersion();
+        source.serverUsers = Collections.emptyList();
+        sync();
+        assertEquals(version + 1, directory.getVersion());
+        assertTrue(directory.getUsers().isEmpty());
+    }
+
+    @Test
+    public void deltaOfAReplacedSnapshotIsDropped() {
+        directory.reset(Collections.singletonList(user("a", "Ann", "1")));
+        source.serverUsers = Collections.singletonList(user("b", "Bob", "2"));
+        directory.sync((errorCode, message, response) -> lastDelta = response);
+        // a full load completes while the sync is running
+        directory.reset(Arrays.asList(user("x", "Xia", "5"), user("y", "Yan", "6")));
+        source.complete();
+        assertTrue(lastDelta.isEmpty());
+        assertEquals("6", lastDelta.cursor);
+        assertEquals(Arrays.asList("x", "y"), ids(directory.getUsers()));
+    }
+
+    @Test
+    public void failedSyncChangesNothing() {
+        directory.reset(Collections.singletonList(user("a", "Ann", "1")));
+        int version = directory.getVersion();
+        source.errorCode = ErrorcodeConstants.ErrorFailNetwork;
+        sync();
+        assertEquals(ErrorcodeConstants.ErrorFailNetwork, lastErrorCode);
+        assertNull(lastDelta);
+        assertEquals(version, directory.getVersion());
+        assertEquals("1", directory.getCursor());
+    }
+
+    @Test
+    public void clearEmptiesTheDirectory() {
+        directory.reset(Collections.singletonList(user("a", "Ann", "1")));
+        directory.clear();
+        assertTrue(directory.getUsers().isEmpty());
+        assertNull(directory.getCursor());
+    }
+}
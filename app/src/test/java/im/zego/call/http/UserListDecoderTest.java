@@ -0,0 +1,221 @@
+package im.zego.call.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.Test;
+
+/**
+ * Decodes user lists with {@link UserListDecoder}, from strings and from a response that is still being received.
+ */
+public class UserListDecoderTest {
+
+    /**
+     * Keeps copies of the batches it gets, as the decoder reuses its list.
+     */
+    private static class RecordingSink implements IUserPageSink {
+
+        final List<List<UserBean>> batches = new ArrayList<>();
+        final List<UserBean> users = new ArrayList<>();
+        UserPage page;
+        int pageEnds;
+
+        @Override
+        public void onUsers(List<UserBean> users) {
+            batches.add(new ArrayList<>(users));
+            this.users.addAll(users);
+        }
+
+        @Override
+        public void onPageEnd(UserPage page) {
+            this.page = page;
+            pageEnds++;
+        }
+    }
+
+    private static String userList(int count) {
+        StringBuilder builder = new StringBuilder("{\"user_list\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":\"u").append(i).append("\",\"name\":\"name").append(i)
+                .append("\",\"order\":\"").append(1000 + i).append("\"}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static UserPage decode(String data, IUserPageSink sink) throws IOException {
+        return UserListDecoder.decode(new JsonReader(new StringReader(data)), sink);
+    }
+
+    @Test
+    public void decodesUsersInBatches() throws IOException {
+        int count = UserListDecoder.BATCH_SIZE * 2 + 5;
+        RecordingSink sink = new RecordingSink();
+
+        UserPage page = decode(userList(count), sink);
+
+        assertEquals(count, page.count);
+        assertEquals("" + (1000 + count - 1), page.lastOrder);
+        assertEquals(3, sink.batches.size());
+        assertEquals(UserListDecoder.BATCH_SIZE, sink.batches.get(0).size());
+        assertEquals(UserListDecoder.BATCH_SIZE, sink.batches.get(1).size());
+        assertEquals(5, sink.batches.get(2).size());
+        assertEquals(1, sink.pageEnds);
+        assertEquals(page, sink.page);
+        for (int i = 0; i < count; i++) {
+            UserBean user = sink.users.get(i);
+            assertEquals("u" + i, user.userID);
+            assertEquals("name" + i, user.userName);
+            assertEquals("" + (1000 + i), user.order);
+        }
+    }
+
+    @Test
+    public void matchesGsonBinding() throws IOException {
+        String list = "[{\"id\":\"a\",\"name\":\"A\",\"order\":\"1\"},"
+            + "{\"id\":\"b\",\"name\":null,\"order\":\"2\",\"extra\":{\"nested\":[1,2]}},"
+            + "{\"name\":\"no id\"},"
+            + "{\"id\":\"c\",\"unknown\":true,\"order\":\"3\"}]";
+        RecordingSink sink = new RecordingSink();
+
+        decode("{\"user_list\":" + list + "}", sink);
+
+        List<UserBean> expected = new Gson().fromJson(list, new TypeToken<List<UserBean>>() {
+        }.getType());
+        assertEquals(expected.size(), sink.users.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), sink.users.get(i).toString());
+        }
+    }
+
+    @Test
+    public void skipsNullUsersAndOtherFields() throws IOException {
+        RecordingSink sink = new RecordingSink();
+
+        UserPage page = decode("{\"total\":3,\"user_list\":[null,{\"id\":\"a\",\"order\":\"7\"},null],"
+            + "\"extra\":{\"user_list\":\"not this one\"}}", sink);
+
+        assertEquals(1, page.count);
+        assertEquals("7", page.lastOrder);
+        assertEquals(1, sink.users.size());
+        assertEquals("a", sink.users.get(0).userID);
+    }
+
+    @Test
+    public void emptyListEndsThePage() throws IOException {
+        RecordingSink sink = new RecordingSink();
+
+        UserPage page = decode("{\"user_list\":[]}", sink);
+
+        assertEquals(0, page.count);
+        assertNull(page.lastOrder);
+        assertTrue(sink.batches.isEmpty());
+        assertEquals(1, sink.pageEnds);
+    }
+
+    @Test
+    public void missingListReturnsNull() throws IOException {
+        RecordingSink sink = new RecordingSink();
+
+        assertNull(decode("{\"user_list\":null,\"total\":0}", sink));
+        assertNull(decode("{}", sink));
+        assertEquals(0, sink.pageEnds);
+    }
+
+    @Test
+    public void readUserReturnsNullForJsonNull() throws IOException {
+        assertNull(UserListDecoder.readUser(new JsonReader(new StringReader("null"))));
+        UserBean user = UserListDecoder.readUser(new JsonReader(new StringReader("{\"id\":\"x\",\"name\":null}")));
+        assertEquals("x", user.userID);
+        assertNull(user.userName);
+    }
+
+    /**
+     * The first batch reaches the sink while the rest of the body is still held back by the server.
+     */
+    @Test
+    public void decodesWhileTheResponseIsReceived() throws Exception {
+        int count = 2000;
+        byte[] body = ("{\"code\":0,\"message\":\"succeed\",\"data\":" + userList(count) + "}")
+            .getBytes(StandardCharsets.UTF_8);
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        boolean[] streamed = new boolean[1];
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = serverSocket.accept()) {
+                    BufferedReader requestReader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    String line;
+                    do {
+                        line = requestReader.readLine();
+                    } while (line != null && !line.isEmpty());
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                        + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.write(body, 0, body.length / 2);
+                    out.flush();
+                    // the rest is only sent once the decoder handed out users from the first half
+                    streamed[0] = firstBatch.await(5, TimeUnit.SECONDS);
+                    out.write(body, body.length / 2, body.length - body.length / 2);
+                    out.flush();
+                } catch (IOException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            server.start();
+            OkHttpClient client = new OkHttpClient();
+            Request request = new Request.Builder()
+                .url("http://127.0.0.1:" + serverSocket.getLocalPort() + "/v1/user/get_user_list")
+                .build();
+
+            RecordingSink sink = new RecordingSink() {
+                @Override
+                public void onUsers(List<UserBean> users) {
+                    super.onUsers(users);
+                    firstBatch.countDown();
+                }
+            };
+            UserPage page = null;
+            try (Response response = client.newCall(request).execute()) {
+                JsonReader reader = new JsonReader(response.body().charStream());
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("data".equals(reader.nextName())) {
+                        page = UserListDecoder.decode(reader, sink);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            server.join();
+
+            assertTrue("no users before the whole body was received", streamed[0]);
+            assertEquals(count, page.count);
+            assertEquals(count, sink.users.size());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package im.zego.call.http;
+
+import static im.zego.call.http.FullPullDeltaSourceTest.user;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.http.bean.UserPage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Drives {@link UserListPager} with requests the test parses and answers in any order, like OkHttp threads
+ * parsing pages and the main thread delivering them.
+ */
+public class UserListPagerTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private static class PendingPage {
+
+        final String cursor;
+        final IUserPageSink sink;
+        final IAsyncGetCallback<UserPage> callback;
+        UserPage page;
+
+        PendingPage(String cursor, IUserPageSink sink, IAsyncGetCallback<UserPage> callback) {
+            this.cursor = cursor;
+            this.sink = sink;
+            this.callback = callback;
+        }
+    }
+
+    private static class RecordingCallback implements IUserListCallback {
+
+        final List<List<UserBean>> pages = new ArrayList<>();
+        int completions;
+        int errorCode = -1;
+        List<UserBean> users;
+
+        @Override
+        public void onPage(List<UserBean> page, List<UserBean> users) {
+            pages.add(new ArrayList<>(page));
+        }
+
+        @Override
+        public void onComplete(int errorCode, @NonNull String message, List<UserBean> users) {
+            completions++;
+            this.errorCode = errorCode;
+            this.users = new ArrayList<>(users);
+        }
+    }
+
+    private final List<PendingPage> requests = new ArrayList<>();
+    private final List<UserBean> streamed = new ArrayList<>();
+    private final RecordingCallback callback = new RecordingCallback();
+
+    private UserListPager pager(int maxInFlight) {
+        return new UserListPager(PAGE_SIZE, maxInFlight,
+            (pageSize, cursor, sink, callback) -> requests.add(new PendingPage(cursor, sink, callback)));
+    }
+
+    // the response of the page is parsed on an OkHttp thread
+    private void parse(int pageIndex, int count) {
+        PendingPage pending = requests.get(pageIndex);
+        List<UserBean> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(user("u" + pageIndex + "_" + i, "name", "o" + pageIndex + "_" + i));
+        }
+        UserPage page = new UserPage();
+        page.count = count;
+        page.lastOrder = count == 0 ? null : users.get(count - 1).order;
+        pending.page = page;
+        pending.sink.onUsers(users);
+        pending.sink.onPageEnd(page);
+    }
+
+    // the parsed page is delivered on the main thread
+    private void respond(int pageIndex) {
+        PendingPage pending = requests.get(pageIndex);
+        pending.callback.onResponse(0, "", pending.page);
+    }
+
+    private void fail(int pageIndex, int errorCode) {
+        requests.get(pageIndex).callback.onResponse(errorCode, "error", null);
+    }
+
+    @Test
+    public void nextPageIsRequestedOnceTheCurrentOneIsParsed() {
+        pager(2).start(streamed::addAll, callback);
+        assertEquals(1, requests.size());
+        assertNull(requests.get(0).cursor);
+
+        parse(0, PAGE_SIZE);
+        // before page 0 is delivered
+        assertEquals(2, requests.size());
+        assertEquals("o0_1", requests.get(1).cursor);
+        assertEquals(PAGE_SIZE, streamed.size());
+        assertTrue(callback.pages.isEmpty());
+    }
+
+    @Test
+    public void pagesInFlightAreCapped() {
+        pager(2).start(null, callback);
+        parse(0, PAGE_SIZE);
+        parse(1, PAGE_SIZE);
+        // two pages requested and not delivered, page 2 waits
+        assertEquals(2, requests.size());
+
+        respond(0);
+        assertEquals(3, requests.size());
+        assertEquals("o1_1", requests.get(2).cursor);
+    }
+
+    @Test
+    public void pagesAreDeliveredInOrder() {
+        pager(3).start(streamed::addAll, callback);
+        parse(0, PAGE_SIZE);
+        parse(1, PAGE_SIZE);
+        parse(2, 1);
+        assertEquals(3, requests.size());
+
+        respond(2);
+        respond(1);
+        assertTrue(callback.pages.isEmpty());
+
+        respond(0);
+        assertEquals(3, callback.pages.size());
+        assertEquals("u0_0", callback.pages.get(0).get(0).userID);
+        assertEquals("u1_0", callback.pages.get(1).get(0).userID);
+        assertEquals("u2_0", callback.pages.get(2).get(0).userID);
+        assertEquals(1, callback.completions);
+        assertEquals(0, callback.errorCode);
+        assertEquals(5, callback.users.size());
+        assertEquals(5, streamed.size());
+    }
+
+    @Test
+    public void shortPageEndsTheLoad() {
+        pager(2).start(null, callback);
+        parse(0, 1);
+        assertEquals(1, requests.size());
+
+        respond(0);
+        assertEquals(1, callback.pages.size());
+        assertEquals(1, callback.completions);
+        assertEquals(1, callback.users.size());
+    }
+
+    @Test
+    public void failedPageCompletesWithTheUsersSoFar() {
+        pager(2).start(null, callback);
+        parse(0, PAGE_SIZE);
+        respond(0);
+        parse(1, PAGE_SIZE);
+
+        fail(1, 500);
+        assertEquals(1, callback.completions);
+        assertEquals(500, callback.errorCode);
+        assertEquals(PAGE_SIZE, callback.users.size());
+
+        // a page requested before the failure is dropped
+        parse(2, 1);
+        respond(2);
+        assertEquals(1, callback.pages.size());
+        assertEquals(1, callback.completions);
+    }
+
+    @Test
+    public void cancelDropsTheRunningLoad() {
+        UserListPager pager = pager(2);
+        pager.start(streamed::addAll, callback);
+        pager.cancel();
+
+        parse(0, PAGE_SIZE);
+        respond(0);
+        assertEquals(1, requests.size());
+        assertTrue(streamed.isEmpty());
+        assertTrue(callback.pages.isEmpty());
+        assertEquals(0, callback.completions);
+    }
+
+    @Test
+    public void startCancelsThePreviousLoad() {
+        UserListPager pager = pager(2);
+        RecordingCallback first = new RecordingCallback();
+        pager.start(null, first);
+        pager.start(null, callback);
+
+        parse(0, 1);
+        respond(0);
+        parse(1, 1);
+        respond(1);
+        assertTrue(first.pages.isEmpty());
+        assertEquals(0, first.completions);
+        assertEquals(1, callback.completions);
+        assertEquals("u1_0", callback.users.get(0).userID);
+    }
+}
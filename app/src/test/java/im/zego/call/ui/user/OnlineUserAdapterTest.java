@@ -0,0 +1,109 @@
+package im.zego.call.ui.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Feeds diff results to the placeholder callback of {@link OnlineUserAdapter} and checks what the RecyclerView is
+ * notified of.
+ */
+public class OnlineUserAdapterTest {
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("insert " + positionStart + "," + itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("remove " + positionStart + "," + itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            events.add("move " + fromPosition + "," + toPosition);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            events.add("change " + positionStart + "," + itemCount);
+        }
+    }
+
+    private final RecordingObserver observer = new RecordingObserver();
+    private OnlineUserAdapter.PlaceholderUpdateCallback callback;
+
+    @Before
+    public void setUp() {
+        OnlineUserAdapter adapter = new OnlineUserAdapter(null);
+        adapter.registerAdapterDataObserver(observer);
+        callback = adapter.new PlaceholderUpdateCallback();
+    }
+
+    private void assertEvents(String... events) {
+        List<String> expected = new ArrayList<>();
+        for (String event : events) {
+            expected.add(event);
+        }
+        assertEquals(expected, observer.events);
+        observer.events.clear();
+    }
+
+    @Test
+    public void firstUsersReplaceThePlaceholder() {
+        callback.onInserted(0, 3);
+        assertEvents("remove 0,1", "insert 0,3");
+
+        callback.onInserted(3, 2);
+        assertEvents("insert 3,2");
+    }
+
+    @Test
+    public void lastUsersRemovedBringThePlaceholderBack() {
+        callback.onInserted(0, 3);
+        observer.events.clear();
+
+        callback.onRemoved(1, 2);
+        assertEvents("remove 1,2");
+
+        callback.onRemoved(0, 1);
+        assertEvents("remove 0,1", "insert 0,1");
+    }
+
+    @Test
+    public void emptyUpdatesAreIgnored() {
+        // the placeholder stays, nothing was inserted
+        callback.onInserted(0, 0);
+        assertTrue(observer.events.isEmpty());
+
+        callback.onInserted(0, 2);
+        observer.events.clear();
+        callback.onRemoved(0, 0);
+        callback.onInserted(2, 0);
+        assertTrue(observer.events.isEmpty());
+
+        // the count is still right
+        callback.onRemoved(0, 2);
+        assertEvents("remove 0,2", "insert 0,1");
+    }
+
+    @Test
+    public void movesAndChangesAreForwarded() {
+        callback.onInserted(0, 3);
+        observer.events.clear();
+
+        callback.onMoved(0, 2);
+        callback.onChanged(1, 2, null);
+        assertEvents("move 0,2", "change 1,2");
+    }
+}
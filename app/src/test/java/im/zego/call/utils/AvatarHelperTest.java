@@ -0,0 +1,59 @@
+package im.zego.call.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import im.zego.call.R;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The resource id tables of {@link AvatarHelper} must give the drawables the old lookup by name found. The index
+ * cache is an android {@code LruCache}, inert in JVM tests, so every lookup here goes to the strategy.
+ */
+public class AvatarHelperTest {
+
+    private static final String[] NAMES = {"Alice", "Bob", "张三", "user_1", "user_2", "user_3", "emoji😀", "",
+        "a very long user name that is still valid"};
+
+    // the old AvatarHelper resolved "user_icon_" + (index + 1) + suffix by name
+    private static int drawableByName(String name) throws ReflectiveOperationException {
+        return R.drawable.class.getField(name).getInt(null);
+    }
+
+    @After
+    public void tearDown() {
+        AvatarHelper.setIndexStrategy(AvatarIndexStrategy.MD5_COMPAT);
+    }
+
+    @Test
+    public void resourceIdsMatchTheOldNames() throws ReflectiveOperationException {
+        for (String name : NAMES) {
+            int index = AvatarHelper.getIndex(name);
+            assertEquals(name, drawableByName("user_icon_" + (index + 1)), AvatarHelper.getResourceID(name, false));
+            assertEquals(name, drawableByName("user_icon_" + (index + 1) + "_big"),
+                AvatarHelper.getResourceID(name, true));
+            assertEquals(name, drawableByName("user_icon_" + (index + 1) + "_blur"),
+                AvatarHelper.getBlurResourceID(name));
+        }
+    }
+
+    @Test
+    public void defaultsToTheCompatibleStrategy() {
+        for (String name : NAMES) {
+            assertEquals(name, AvatarIndexStrategy.MD5_COMPAT.indexOf(name, 6), AvatarHelper.getIndex(name));
+        }
+    }
+
+    @Test
+    public void nullNameGetsTheFirstAvatar() {
+        assertEquals(0, AvatarHelper.getIndex(null));
+    }
+
+    @Test
+    public void strategyCanBeSwitched() {
+        AvatarHelper.setIndexStrategy(AvatarIndexStrategy.FNV1A);
+        for (String name : NAMES) {
+            assertEquals(name, AvatarIndexStrategy.FNV1A.indexOf(name, 6), AvatarHelper.getIndex(name));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package im.zego.call.utils;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Lookup throughput of the avatar index strategies, excluded from the unit tests, run it with
+ * {@code ./gradlew :app:testDebugUnitTest -Pbenchmark --tests '*AvatarIndexStrategyBenchmark'}.
+ */
+public class AvatarIndexStrategyBenchmark {
+
+    private static final int BUCKETS = 6;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static int sink;
+
+    private static long nanosPerLookup(AvatarIndexStrategy strategy, List<String> names) {
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            sink += strategy.indexOf(names.get(i % names.size()), BUCKETS);
+        }
+        return (System.nanoTime() - start) / LOOKUPS;
+    }
+
+    @Test
+    public void fnv1aIsFasterThanMd5Compat() {
+        List<String> names = AvatarIndexStrategyTest.names(10_000);
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            nanosPerLookup(AvatarIndexStrategy.MD5_COMPAT, names);
+            nanosPerLookup(AvatarIndexStrategy.FNV1A, names);
+        }
+        long md5 = nanosPerLookup(AvatarIndexStrategy.MD5_COMPAT, names);
+        long fnv = nanosPerLookup(AvatarIndexStrategy.FNV1A, names);
+        System.out.println("AvatarIndexStrategy ns/lookup: MD5_COMPAT " + md5 + ", FNV1A " + fnv);
+        assertTrue("MD5_COMPAT " + md5 + "ns, FNV1A " + fnv + "ns", fnv * 2 < md5);
+    }
+}
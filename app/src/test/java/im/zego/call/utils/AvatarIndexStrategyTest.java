@@ -0,0 +1,110 @@
+package im.zego.call.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks {@link AvatarIndexStrategy#MD5_COMPAT} against the mapping older versions of the app use, and the
+ * distribution of {@link AvatarIndexStrategy#FNV1A}.
+ */
+public class AvatarIndexStrategyTest {
+
+    private static final int BUCKETS = 6;
+
+    /**
+     * {@code AvatarHelper.getIndex} before the strategies, {@code String.getBytes()} is UTF-8 on Android.
+     */
+    private static int oldGetIndex(String userName) throws NoSuchAlgorithmException {
+        byte[] value = MessageDigest.getInstance("MD5").digest(userName.getBytes(StandardCharsets.UTF_8));
+        if (value.length > 0) {
+            int value0 = value[0] & 0xff;
+            return Math.abs(value0 % BUCKETS);
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Plain FNV-1a over the UTF-16LE bytes of the name.
+     */
+    private static int referenceFnv1a(String userName, int bucketCount) {
+        int hash = 0x811c9dc5;
+        for (byte b : userName.getBytes(StandardCharsets.UTF_16LE)) {
+            hash ^= b & 0xff;
+            hash *= 0x01000193;
+        }
+        return (int) ((hash & 0xffffffffL) % bucketCount);
+    }
+
+    static List<String> names(int count) {
+        List<String> names = new ArrayList<>(count);
+        Random random = new Random(15);
+        String[] samples = {"", "a", "Alice", "user_1", "张三", "Zoë", "emoji😀", "名前 with space"};
+        for (String sample : samples) {
+            names.add(sample);
+        }
+        while (names.size() < count) {
+            StringBuilder builder = new StringBuilder();
+            int length = 1 + random.nextInt(16);
+            for (int i = 0; i < length; i++) {
+                // mostly ascii, some CJK
+                builder.append(random.nextInt(8) == 0 ? (char) (0x4e00 + random.nextInt(0x5000))
+                    : (char) ('!' + random.nextInt(94)));
+            }
+            names.add(builder.toString());
+        }
+        return names;
+    }
+
+    @Test
+    public void md5CompatMatchesOldGetIndex() throws NoSuchAlgorithmException {
+        for (String name : names(50_000)) {
+            assertEquals(name, oldGetIndex(name), AvatarIndexStrategy.MD5_COMPAT.indexOf(name, BUCKETS));
+        }
+    }
+
+    @Test
+    public void fnv1aIsFnv1aOverUtf16() {
+        for (String name : names(10_000)) {
+            assertEquals(name, referenceFnv1a(name, BUCKETS), AvatarIndexStrategy.FNV1A.indexOf(name, BUCKETS));
+        }
+    }
+
+    @Test
+    public void fnv1aSpreadsNamesEvenly() {
+        int count = 60_000;
+        int[] buckets = new int[BUCKETS];
+        for (int i = 0; i < count; i++) {
+            int index = AvatarIndexStrategy.FNV1A.indexOf("user_" + i, BUCKETS);
+            assertTrue(index >= 0 && index < BUCKETS);
+            buckets[index]++;
+        }
+        double expected = (double) count / BUCKETS;
+        double chiSquare = 0;
+        for (int bucket : buckets) {
+            chiSquare += (bucket - expected) * (bucket - expected) / expected;
+        }
+        // 5 degrees of freedom, p = 0.001
+        assertTrue("chi square " + chiSquare, chiSquare < 20.52);
+    }
+
+    @Test
+    public void indexesStayInRange() {
+        for (String name : names(5_000)) {
+            for (int bucketCount = 1; bucketCount <= 16; bucketCount++) {
+                int md5 = AvatarIndexStrategy.MD5_COMPAT.indexOf(name, bucketCount);
+                int fnv = AvatarIndexStrategy.FNV1A.indexOf(name, bucketCount);
+                assertTrue(md5 >= 0 && md5 < bucketCount);
+                assertTrue(fnv >= 0 && fnv < bucketCount);
+            }
+        }
+    }
+}
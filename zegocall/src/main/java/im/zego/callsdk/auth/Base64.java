@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Objects;
@@ -83,6 +84,37 @@ public class Base64 {
     private Base64() {
     }
 
+    // per thread buffer of the encode and decode methods that have no byte array to work in
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[1024];
+        }
+    };
+
+    private static byte[] scratch(int size) {
+        byte[] buf = SCRATCH.get();
+        if (buf.length < size) {
+            buf = new byte[Math.max(size, buf.length * 2)];
+            SCRATCH.set(buf);
+        }
+        return buf;
+    }
+
+    private static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len)
+            throw new IndexOutOfBoundsException(
+                    "Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + length);
+    }
+
+    private static void checkSpace(int length, int off, int needed) {
+        if (off < 0 || off > length)
+            throw new IndexOutOfBoundsException("Offset " + off + " out of bounds for length " + length);
+        if (length - off < needed)
+            throw new IllegalArgumentException(
+                    "Output is too small for the encoded or decoded bytes");
+    }
+
     /**
      * Returns a {@link Encoder} that encodes using the
      * <a href="#basic">Basic</a> type base64 encoding scheme.
@@ -260,7 +292,7 @@ public class Base64 {
         public byte[] encode(byte[] src) {
             int len = outLength(src.length);          // dst array size
             byte[] dst = new byte[len];
-            int ret = encode0(src, 0, src.length, dst);
+            int ret = encode0(src, 0, src.length, dst, 0);
             if (ret != dst.length)
                 return Arrays.copyOf(dst, ret);
             return dst;
@@ -287,7 +319,7 @@ public class Base64 {
             if (dst.length < len)
                 throw new IllegalArgumentException(
                         "Output byte array is too small for encoding all input bytes");
-            return encode0(src, 0, src.length, dst);
+            return encode0(src, 0, src.length, dst, 0);
         }
 
         /**
@@ -333,18 +365,172 @@ public class Base64 {
                 ret = encode0(buffer.array(),
                         buffer.arrayOffset() + buffer.position(),
                         buffer.arrayOffset() + buffer.limit(),
-                        dst);
+                        dst, 0);
                 buffer.position(buffer.limit());
             } else {
                 byte[] src = new byte[buffer.remaining()];
                 buffer.get(src);
-                ret = encode0(src, 0, src.length, dst);
+                ret = encode0(src, 0, src.length, dst, 0);
             }
             if (ret != dst.length)
                 dst = Arrays.copyOf(dst, ret);
             return ByteBuffer.wrap(dst);
         }
 
+        /**
+         * Returns the number of bytes, or chars, the given number of input
+         * bytes are encoded to.
+         *
+         * @param srcLength the number of bytes to encode
+         * @return the length of the encoded output
+         */
+        public int encodedLength(int srcLength) {
+            return outLength(srcLength);
+        }
+
+        /**
+         * Encodes a range of the specified byte array using the {@link Base64}
+         * encoding scheme, writing the resulting bytes to the output byte array
+         * starting at {@code dstOff}. Nothing is allocated.
+         *
+         * @param src    the byte array to encode
+         * @param srcOff the offset of the first byte to encode
+         * @param srcLen the number of bytes to encode
+         * @param dst    the output byte array
+         * @param dstOff the offset the encoded bytes are written at
+         * @return The number of bytes written to the output byte array
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  space after {@code dstOff}, nothing is
+         *                                  written then.
+         */
+        public int encode(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+            checkRange(src.length, srcOff, srcLen);
+            checkSpace(dst.length, dstOff, outLength(srcLen));
+            return encode0(src, srcOff, srcOff + srcLen, dst, dstOff);
+        }
+
+        /**
+         * Encodes a range of the specified byte array using the {@link Base64}
+         * encoding scheme, writing the resulting chars to the output char array
+         * starting at {@code dstOff}.
+         *
+         * @return The number of chars written to the output char array
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  space after {@code dstOff}, nothing is
+         *                                  written then.
+         * @see #encode(byte[], int, int, byte[], int)
+         */
+        public int encode(byte[] src, int srcOff, int srcLen, char[] dst, int dstOff) {
+            checkRange(src.length, srcOff, srcLen);
+            int len = outLength(srcLen);
+            checkSpace(dst.length, dstOff, len);
+            byte[] encoded = scratch(len);
+            encode0(src, srcOff, srcOff + srcLen, encoded, 0);
+            for (int i = 0; i < len; i++) {
+                dst[dstOff + i] = (char) encoded[i];
+            }
+            return len;
+        }
+
+        /**
+         * Encodes all remaining bytes of the source buffer into the remaining
+         * space of the output buffer, which may be direct. The positions of
+         * both buffers are advanced by the bytes read and written.
+         *
+         * @return The number of bytes written to the output buffer
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  space remaining, neither buffer is
+         *                                  changed then.
+         */
+        public int encode(ByteBuffer src, ByteBuffer dst) {
+            int srcLen = src.remaining();
+            int len = outLength(srcLen);
+            checkSpace(dst.remaining(), 0, len);
+            if (src.hasArray() && dst.hasArray()) {
+                encode0(src.array(), src.arrayOffset() + src.position(),
+                        src.arrayOffset() + src.limit(),
+                        dst.array(), dst.arrayOffset() + dst.position());
+                dst.position(dst.position() + len);
+            } else {
+                // the input is copied in front of the output
+                byte[] buf = scratch(srcLen + len);
+                src.duplicate().get(buf, 0, srcLen);
+                encode0(buf, 0, srcLen, buf, srcLen);
+                dst.put(buf, srcLen, len);
+            }
+            src.position(src.limit());
+            return len;
+        }
+
+        /**
+         * Encodes all remaining bytes of the source buffer into the remaining
+         * space of the output char buffer. The positions of both buffers are
+         * advanced by the bytes read and the chars written.
+         *
+         * @return The number of chars written to the output buffer
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  space remaining, neither buffer is
+         *                                  changed then.
+         */
+        public int encode(ByteBuffer src, CharBuffer dst) {
+            int srcLen = src.remaining();
+            int len = outLength(srcLen);
+            checkSpace(dst.remaining(), 0, len);
+            byte[] buf;
+            int encodedOff;
+            if (src.hasArray()) {
+                buf = scratch(len);
+                encodedOff = 0;
+                encode0(src.array(), src.arrayOffset() + src.position(),
+                        src.arrayOffset() + src.limit(), buf, 0);
+            } else {
+                buf = scratch(srcLen + len);
+                encodedOff = srcLen;
+                src.duplicate().get(buf, 0, srcLen);
+                encode0(buf, 0, srcLen, buf, srcLen);
+            }
+            if (dst.hasArray()) {
+                char[] chars = dst.array();
+                int dp = dst.arrayOffset() + dst.position();
+                for (int i = 0; i < len; i++) {
+                    chars[dp + i] = (char) buf[encodedOff + i];
+                }
+                dst.position(dst.position() + len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    dst.put((char) buf[encodedOff + i]);
+                }
+            }
+            src.position(src.limit());
+            return len;
+        }
+
+        /**
+         * Encodes a range of the specified byte array into a String that
+         * starts with the given prefix, in one pass and without the copies of
+         * {@code prefix + encodeToString(src)}.
+         *
+         * @param prefix a prefix of ISO-8859-1 characters, e.g. a version flag
+         * @return A String of the prefix followed by the encoded characters
+         * @throws IllegalArgumentException if the prefix has a character
+         *                                  outside ISO-8859-1
+         */
+        @SuppressWarnings("deprecation")
+        public String encodeToString(String prefix, byte[] src, int srcOff, int srcLen) {
+            checkRange(src.length, srcOff, srcLen);
+            int prefixLen = prefix.length();
+            byte[] dst = new byte[prefixLen + outLength(srcLen)];
+            for (int i = 0; i < prefixLen; i++) {
+                char c = prefix.charAt(i);
+                if (c > 0xff)
+                    throw new IllegalArgumentException(
+                            "Prefix character outside ISO-8859-1 at " + i);
+                dst[i] = (byte) c;
+            }
+            encode0(src, srcOff, srcOff + srcLen, dst, prefixLen);
+            return new String(dst, 0, 0, dst.length);
+        }
+
         /**
          * Wraps an output stream for encoding byte data using the {@link Base64}
          * encoding scheme.
@@ -382,14 +568,14 @@ public class Base64 {
             return new Encoder(isURL, newline, linemax, false);
         }
 
-        private int encode0(byte[] src, int off, int end, byte[] dst) {
+        private int encode0(byte[] src, int off, int end, byte[] dst, int dstOff) {
             char[] base64 = isURL ? toBase64URL : toBase64;
             int sp = off;
             int slen = (end - off) / 3 * 3;
             int sl = off + slen;
             if (linemax > 0 && slen > linemax / 4 * 3)
                 slen = linemax / 4 * 3;
-            int dp = 0;
+            int dp = dstOff;
             while (sp < sl) {
                 int sl0 = Math.min(sp + slen, sl);
                 for (int sp0 = sp, dp0 = dp; sp0 < sl0; ) {
@@ -428,7 +614,7 @@ public class Base64 {
                     }
                 }
             }
-            return dp;
+            return dp - dstOff;
         }
     }
 
@@ -513,7 +699,7 @@ public class Base64 {
          */
         public byte[] decode(byte[] src) {
             byte[] dst = new byte[outLength(src, 0, src.length)];
-            int ret = decode0(src, 0, src.length, dst);
+            int ret = decode0(src, 0, src.length, dst, 0);
             if (ret != dst.length) {
                 dst = Arrays.copyOf(dst, ret);
             }
@@ -564,7 +750,7 @@ public class Base64 {
             if (dst.length < len)
                 throw new IllegalArgumentException(
                         "Output byte array is too small for decoding all input bytes");
-            return decode0(src, 0, src.length, dst);
+            return decode0(src, 0, src.length, dst, 0);
         }
 
         /**
@@ -601,13 +787,128 @@ public class Base64 {
                     sl = src.length;
                 }
                 byte[] dst = new byte[outLength(src, sp, sl)];
-                return ByteBuffer.wrap(dst, 0, decode0(src, sp, sl, dst));
+                return ByteBuffer.wrap(dst, 0, decode0(src, sp, sl, dst, 0));
             } catch (IllegalArgumentException iae) {
                 buffer.position(pos0);
                 throw iae;
             }
         }
 
+        /**
+         * Returns the number of bytes a range of the specified Base64 encoded
+         * byte array decodes to, an upper bound for the MIME decoder.
+         *
+         * @throws IllegalArgumentException if the range is too short to be valid
+         */
+        public int decodedLength(byte[] src, int srcOff, int srcLen) {
+            checkRange(src.length, srcOff, srcLen);
+            return outLength(src, srcOff, srcOff + srcLen);
+        }
+
+        /**
+         * Returns the number of bytes the chars of {@code src} from
+         * {@code start} to {@code end} decode to.
+         *
+         * @see #decodedLength(byte[], int, int)
+         */
+        public int decodedLength(CharSequence src, int start, int end) {
+            checkRange(src.length(), start, end - start);
+            byte[] buf = narrow(src, start, end, 0);
+            return outLength(buf, 0, end - start);
+        }
+
+        /**
+         * Decodes a range of the specified byte array using the {@link Base64}
+         * encoding scheme, writing the results into the output byte array
+         * starting at {@code dstOff}. Nothing is allocated.
+         *
+         * @return The number of bytes written to the output byte array
+         * @throws IllegalArgumentException if {@code src} is not in valid Base64
+         *                                  scheme, or {@code dst} does not have
+         *                                  enough space after {@code dstOff}.
+         */
+        public int decode(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+            checkRange(src.length, srcOff, srcLen);
+            checkSpace(dst.length, dstOff, outLength(src, srcOff, srcOff + srcLen));
+            return decode0(src, srcOff, srcOff + srcLen, dst, dstOff);
+        }
+
+        /**
+         * Decodes the chars of {@code src} from {@code start} to {@code end},
+         * e.g. a token without its prefix, writing the results into the output
+         * byte array starting at {@code dstOff}. Chars outside ISO-8859-1 are
+         * handled like {@link #decode(String)} does.
+         *
+         * @return The number of bytes written to the output byte array
+         * @see #decode(byte[], int, int, byte[], int)
+         */
+        public int decode(CharSequence src, int start, int end, byte[] dst, int dstOff) {
+            checkRange(src.length(), start, end - start);
+            int srcLen = end - start;
+            byte[] buf = narrow(src, start, end, 0);
+            checkSpace(dst.length, dstOff, outLength(buf, 0, srcLen));
+            return decode0(buf, 0, srcLen, dst, dstOff);
+        }
+
+        /**
+         * Decodes all remaining bytes of the source buffer into the remaining
+         * space of the output buffer, which may be direct. The positions of
+         * both buffers are advanced by the bytes read and written.
+         *
+         * @return The number of bytes written to the output buffer
+         * @throws IllegalArgumentException if {@code src} is not in valid Base64
+         *                                  scheme, or {@code dst} does not have
+         *                                  enough space remaining. The source
+         *                                  position is not advanced then.
+         */
+        public int decode(ByteBuffer src, ByteBuffer dst) {
+            int srcLen = src.remaining();
+            byte[] in;
+            int sp;
+            if (src.hasArray()) {
+                in = src.array();
+                sp = src.arrayOffset() + src.position();
+            } else {
+                in = scratch(srcLen);
+                sp = 0;
+                src.duplicate().get(in, 0, srcLen);
+            }
+            int len = outLength(in, sp, sp + srcLen);
+            checkSpace(dst.remaining(), 0, len);
+            int ret;
+            if (dst.hasArray()) {
+                ret = decode0(in, sp, sp + srcLen, dst.array(), dst.arrayOffset() + dst.position());
+                dst.position(dst.position() + ret);
+            } else {
+                byte[] buf;
+                if (src.hasArray()) {
+                    buf = scratch(len);
+                    ret = decode0(in, sp, sp + srcLen, buf, 0);
+                    dst.put(buf, 0, ret);
+                } else {
+                    // the output is written behind the input
+                    buf = scratch(srcLen + len);
+                    if (buf != in) {
+                        src.duplicate().get(buf, 0, srcLen);
+                    }
+                    ret = decode0(buf, 0, srcLen, buf, srcLen);
+                    dst.put(buf, srcLen, ret);
+                }
+            }
+            src.position(src.limit());
+            return ret;
+        }
+
+        // copy the chars into the thread's scratch buffer at off, like String.getBytes(ISO_8859_1)
+        private static byte[] narrow(CharSequence src, int start, int end, int off) {
+            byte[] buf = scratch(off + end - start);
+            for (int i = start; i < end; i++) {
+                char c = src.charAt(i);
+                buf[off++] = c > 0xff ? (byte) '?' : (byte) c;
+            }
+            return buf;
+        }
+
         /**
          * Returns an input stream for decoding {@link Base64} encoded byte stream.
          *
@@ -664,9 +965,9 @@ public class Base64 {
             return 3 * ((len + 3) / 4) - paddings;
         }
 
-        private int decode0(byte[] src, int sp, int sl, byte[] dst) {
+        private int decode0(byte[] src, int sp, int sl, byte[] dst, int dstOff) {
             int[] base64 = isURL ? fromBase64URL : fromBase64;
-            int dp = 0;
+            int dp = dstOff;
             int bits = 0;
             int shiftto = 18;       // pos of first byte of 4-byte atom
             while (sp < sl) {
@@ -721,7 +1022,7 @@ public class Base64 {
                 throw new IllegalArgumentException(
                         "Input byte array has incorrect ending byte at " + sp);
             }
-            return dp;
+            return dp - dstOff;
         }
     }
 
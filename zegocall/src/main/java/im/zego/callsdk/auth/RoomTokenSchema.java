@@ -0,0 +1,68 @@
+package im.zego.callsdk.auth;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Version "03" tokens, which authorize a user in one RTC room with the given privileges.
+ */
+public class RoomTokenSchema implements TokenSchema<RoomTokenSchema.Params> {
+
+    public static final RoomTokenSchema INSTANCE = new RoomTokenSchema();
+
+    public static class Params {
+
+        public final String roomId;
+        public final String userId;
+        public final boolean canLoginRoom;
+        public final boolean canPublishStream;
+
+        public Params(String roomId, String userId, boolean canLoginRoom, boolean canPublishStream) {
+            this.roomId = roomId;
+            this.userId = userId;
+            this.canLoginRoom = canLoginRoom;
+            this.canPublishStream = canPublishStream;
+        }
+    }
+
+    private RoomTokenSchema() {
+    }
+
+    @Override
+    public String versionFlag() {
+        return "03";
+    }
+
+    @Override
+    public String expireField() {
+        return "expire_time";
+    }
+
+    @Override
+    public TokenErrorCode check(Params params) {
+        if (params == null) {
+            return TokenErrorCode.ILLEGAL_PRIVILEGE;
+        }
+        if (params.roomId == null || params.roomId.isEmpty() || params.roomId.length() > 64) {
+            return TokenErrorCode.ILLEGAL_ROOM_ID;
+        }
+        if (params.userId == null || params.userId.isEmpty() || params.userId.length() > 64) {
+            return TokenErrorCode.ILLEGAL_USER_ID;
+        }
+        return TokenErrorCode.SUCCESS;
+    }
+
+    @Override
+    public void writePayload(TokenPayloadWriter writer, long appId, Params params, long createTime,
+        long expireTime) {
+        writer.field("app_id", appId)
+            .field("room_id", params.roomId)
+            .field("user_id", params.userId)
+            .beginObject("privilege")
+            .field("1", params.canLoginRoom ? 1 : 0)
+            .field("2", params.canPublishStream ? 1 : 0)
+            .endObject()
+            .field("create_time", createTime)
+            .field("expire_time", expireTime)
+            .field("nonce", ThreadLocalRandom.current().nextLong());
+    }
+}
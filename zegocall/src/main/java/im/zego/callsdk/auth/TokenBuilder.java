@@ -0,0 +1,213 @@
+package im.zego.callsdk.auth;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Packs, encrypts and encodes the tokens of every {@link TokenSchema} for {@link TokenEngine}:
+ * <pre>
+ * version flag + base64(expire time (8) | IV length (2) | IV | content length (2) | AES-CBC(json payload))
+ * </pre>
+ * Every thread has its own builder, which keeps its {@link Cipher}, the key of the last secret and its buffers, so
+ * minting a token allocates only the token itself. The json payload is written as UTF-8 bytes straight into a
+ * reusable buffer, without an {@code org.json} tree or an intermediate string.
+ * <p>
+ * Usage: {@code TokenBuilder.get().beginPayload()}, then the fields, then {@link #build}.
+ */
+final class TokenBuilder implements TokenPayloadWriter {
+
+    static final int IV_LENGTH = 16;
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    // expire time, IV length, IV and content length
+    private static final int HEADER_LENGTH = 8 + 2 + IV_LENGTH + 2;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<TokenBuilder> BUILDERS = new ThreadLocal<TokenBuilder>() {
+        @Override
+        protected TokenBuilder initialValue() {
+            return new TokenBuilder();
+        }
+    };
+
+    private Cipher cipher;
+    private String keySecret;
+    private SecretKeySpec key;
+    private final byte[] iv = new byte[IV_LENGTH];
+
+    private byte[] payload = new byte[256];
+    private int payloadLength;
+    // false right after an opening brace, when the next field needs no comma
+    private boolean needsComma;
+
+    private byte[] token = new byte[512];
+    private ByteBuffer tokenBuffer = ByteBuffer.wrap(token).order(ByteOrder.BIG_ENDIAN);
+
+    private TokenBuilder() {
+    }
+
+    /**
+     * @return the builder of the calling thread.
+     */
+    static TokenBuilder get() {
+        return BUILDERS.get();
+    }
+
+    TokenBuilder beginPayload() {
+        payloadLength = 0;
+        append((byte) '{');
+        needsComma = false;
+        return this;
+    }
+
+    @Override
+    public TokenBuilder field(String name, long value) {
+        name(name);
+        String digits = Long.toString(value);
+        for (int i = 0; i < digits.length(); i++) {
+            append((byte) digits.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public TokenBuilder field(String name, String value) {
+        name(name);
+        string(value);
+        return this;
+    }
+
+    @Override
+    public TokenBuilder beginObject(String name) {
+        name(name);
+        append((byte) '{');
+        needsComma = false;
+        return this;
+    }
+
+    @Override
+    public TokenBuilder endObject() {
+        append((byte) '}');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Close the payload, encrypt it with the secret and a random IV, and pack it with its header.
+     *
+     * @param secret refers to the 32 characters server secret, used as the AES-256 key.
+     */
+    String build(String versionFlag, long expireTime, String secret) throws GeneralSecurityException {
+        append((byte) '}');
+        ThreadLocalRandom.current().nextBytes(iv);
+        Cipher cipher = cipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key(secret), new IvParameterSpec(iv));
+
+        ensureTokenCapacity(HEADER_LENGTH + cipher.getOutputSize(payloadLength));
+        int contentLength = cipher.doFinal(payload, 0, payloadLength, token, HEADER_LENGTH);
+        tokenBuffer.clear();
+        tokenBuffer.putLong(expireTime);
+        tokenBuffer.putShort((short) IV_LENGTH);
+        tokenBuffer.put(iv);
+        tokenBuffer.putShort((short) contentLength);
+
+        return Base64.getEncoder().encodeToString(versionFlag, token, 0, HEADER_LENGTH + contentLength);
+    }
+
+    /**
+     * @return the decrypted json payload of a token.
+     */
+    byte[] decrypt(byte[] content, int offset, int length, byte[] iv, String secret)
+        throws GeneralSecurityException {
+        Cipher cipher = cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key(secret), new IvParameterSpec(iv));
+        return cipher.doFinal(content, offset, length);
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+        }
+        return cipher;
+    }
+
+    private SecretKeySpec key(String secret) {
+        if (!secret.equals(keySecret)) {
+            byte[] secretKey = secret.getBytes(StandardCharsets.UTF_8);
+            if (secretKey.length != 32) {
+                throw new IllegalArgumentException("secret key's length must be 32 bytes");
+            }
+            key = new SecretKeySpec(secretKey, "AES");
+            keySecret = secret;
+        }
+        return key;
+    }
+
+    private void ensureTokenCapacity(int capacity) {
+        if (token.length < capacity) {
+            token = new byte[Math.max(capacity, token.length * 2)];
+            tokenBuffer = ByteBuffer.wrap(token).order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    private void name(String name) {
+        if (needsComma) {
+            append((byte) ',');
+        }
+        string(name);
+        append((byte) ':');
+        needsComma = true;
+    }
+
+    private void string(String value) {
+        append((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                append((byte) '\\');
+                append((byte) c);
+            } else if (c < 0x20) {
+                append((byte) '\\');
+                append((byte) 'u');
+                append((byte) '0');
+                append((byte) '0');
+                append(HEX[c >> 4]);
+                append(HEX[c & 0xf]);
+            } else if (c < 0x80) {
+                append((byte) c);
+            } else if (c < 0x800) {
+                append((byte) (0xc0 | (c >> 6)));
+                append((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                append((byte) (0xf0 | (codePoint >> 18)));
+                append((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                append((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                append((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced like String.getBytes does
+                append((byte) '?');
+            } else {
+                append((byte) (0xe0 | (c >> 12)));
+                append((byte) (0x80 | ((c >> 6) & 0x3f)));
+                append((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        append((byte) '"');
+    }
+
+    private void append(byte b) {
+        if (payloadLength == payload.length) {
+            payload = Arrays.copyOf(payload, payloadLength * 2);
+        }
+        payload[payloadLength++] = b;
+    }
+}
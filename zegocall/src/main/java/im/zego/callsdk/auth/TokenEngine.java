@@ -0,0 +1,223 @@
+package im.zego.callsdk.auth;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates and decodes the tokens of every {@link TokenSchema}. A token is
+ * <pre>
+ * version flag + base64(expire time (8) | IV length (2) | IV | content length (2) | AES-CBC(json payload))
+ * </pre>
+ * where the payload format depends on the schema and the AES key is the 32 characters server secret.
+ * <p>
+ * {@link UserTokenSchema} and {@link RoomTokenSchema} are registered for decoding, other schemas can be added with
+ * {@link #registerSchema}.
+ */
+public final class TokenEngine {
+
+    private static final ConcurrentHashMap<String, TokenSchema<?>> schemas = new ConcurrentHashMap<>();
+
+    static {
+        registerSchema(UserTokenSchema.INSTANCE);
+        registerSchema(RoomTokenSchema.INSTANCE);
+    }
+
+    private TokenEngine() {
+    }
+
+    public static class Result {
+
+        /**
+         * the token, empty if it could not be generated.
+         */
+        public final String data;
+        public final TokenErrorCode code;
+        public final String message;
+
+        Result(String data, TokenErrorCode code, String message) {
+            this.data = data;
+            this.code = code;
+            this.message = message;
+        }
+
+        static Result error(TokenErrorCode code) {
+            return new Result("", code, code.message);
+        }
+
+        @Override
+        public String toString() {
+            return "Result {\"code\": " + code.value + ", \"message\": \"" + message + "\", \"data\": \"" + data
+                + "\"}";
+        }
+    }
+
+    public static class DecodedToken {
+
+        public final TokenSchema<?> schema;
+        /**
+         * in seconds since the epoch.
+         */
+        public final long expireTime;
+        public final JsonObject payload;
+
+        DecodedToken(TokenSchema<?> schema, long expireTime, JsonObject payload) {
+            this.schema = schema;
+            this.expireTime = expireTime;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Let {@link #decode} accept the tokens of the schema, it replaces a schema with the same version flag.
+     */
+    public static void registerSchema(TokenSchema<?> schema) {
+        if (schema.versionFlag().length() != 2) {
+            throw new IllegalArgumentException("version flag must be 2 characters");
+        }
+        schemas.put(schema.versionFlag(), schema);
+    }
+
+    public static <P> Result generate(TokenSchema<P> schema, long appId, P params, String secret,
+        int effectiveTimeInSeconds) {
+        TokenErrorCode code = check(schema, appId, params, secret, effectiveTimeInSeconds);
+        if (code != TokenErrorCode.SUCCESS) {
+            return Result.error(code);
+        }
+        return generateChecked(schema, appId, params, secret, effectiveTimeInSeconds);
+    }
+
+    /**
+     * Generate a token for each of the params, appId, secret and effective time are checked only once.
+     *
+     * @return the results in the order of the params.
+     */
+    public static <P> List<Result> generate(TokenSchema<P> schema, long appId, List<P> paramsList, String secret,
+        int effectiveTimeInSeconds) {
+        List<Result> results = new ArrayList<>(paramsList.size());
+        TokenErrorCode appIdCode = checkAppId(appId);
+        TokenErrorCode secretCode = checkSecret(secret, effectiveTimeInSeconds);
+        for (P params : paramsList) {
+            TokenErrorCode code = appIdCode != TokenErrorCode.SUCCESS ? appIdCode : schema.check(params);
+            if (code == TokenErrorCode.SUCCESS) {
+                code = secretCode;
+            }
+            results.add(code == TokenErrorCode.SUCCESS
+                ? generateChecked(schema, appId, params, secret, effectiveTimeInSeconds) : Result.error(code));
+        }
+        return results;
+    }
+
+    /**
+     * Check the parameters of a token without generating it, in the order the generators always reported them:
+     * appId, the schema's params, secret, effective time.
+     */
+    static <P> TokenErrorCode check(TokenSchema<P> schema, long appId, P params, String secret,
+        int effectiveTimeInSeconds) {
+        TokenErrorCode code = checkAppId(appId);
+        if (code == TokenErrorCode.SUCCESS) {
+            code = schema.check(params);
+        }
+        return code == TokenErrorCode.SUCCESS ? checkSecret(secret, effectiveTimeInSeconds) : code;
+    }
+
+    /**
+     * Decrypt a token and check that it is well formed. Whether it has expired is up to the caller.
+     *
+     * @throws GeneralSecurityException if the token is malformed, of an unknown version, or was not generated with
+     *                                  the secret.
+     */
+    public static DecodedToken decode(String token, String secret) throws GeneralSecurityException {
+        if (token == null || token.length() < 2) {
+            throw new GeneralSecurityException("malformed token");
+        }
+        TokenSchema<?> schema = schemaOf(token);
+        if (schema == null) {
+            throw new GeneralSecurityException("unknown token version " + token.substring(0, 2));
+        }
+        if (secret == null || secret.length() != 32) {
+            throw new GeneralSecurityException(TokenErrorCode.ILLEGAL_SECRET.message);
+        }
+        byte[] bytes;
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            bytes = new byte[decoder.decodedLength(token, 2, token.length())];
+            decoder.decode(token, 2, token.length(), bytes, 0);
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("malformed token", e);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < 8 + 2 + TokenBuilder.IV_LENGTH + 2) {
+            throw new GeneralSecurityException("malformed token");
+        }
+        long expireTime = buffer.getLong();
+        if ((buffer.getShort() & 0xffff) != TokenBuilder.IV_LENGTH) {
+            throw new GeneralSecurityException("malformed token");
+        }
+        byte[] iv = new byte[TokenBuilder.IV_LENGTH];
+        buffer.get(iv);
+        int contentLength = buffer.getShort() & 0xffff;
+        if (contentLength != buffer.remaining()) {
+            throw new GeneralSecurityException("malformed token");
+        }
+        byte[] content = TokenBuilder.get().decrypt(bytes, buffer.position(), contentLength, iv, secret);
+
+        JsonObject payload;
+        try {
+            payload = JsonParser.parseString(new String(content, StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new GeneralSecurityException("malformed token payload", e);
+        }
+        JsonElement payloadExpire = payload.get(schema.expireField());
+        try {
+            if (payloadExpire == null || payloadExpire.getAsLong() != expireTime) {
+                throw new GeneralSecurityException("token expire time mismatch");
+            }
+        } catch (NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+            throw new GeneralSecurityException("malformed token payload", e);
+        }
+        return new DecodedToken(schema, expireTime, payload);
+    }
+
+    /**
+     * @return the schema of the token's version, or null if it is not registered.
+     */
+    static TokenSchema<?> schemaOf(String token) {
+        return token == null || token.length() < 2 ? null : schemas.get(token.substring(0, 2));
+    }
+
+    private static TokenErrorCode checkAppId(long appId) {
+        return appId == 0 ? TokenErrorCode.ILLEGAL_APP_ID : TokenErrorCode.SUCCESS;
+    }
+
+    private static TokenErrorCode checkSecret(String secret, int effectiveTimeInSeconds) {
+        if (secret == null || secret.length() != 32) {
+            return TokenErrorCode.ILLEGAL_SECRET;
+        }
+        if (effectiveTimeInSeconds <= 0) {
+            return TokenErrorCode.ILLEGAL_EFFECTIVE_TIME;
+        }
+        return TokenErrorCode.SUCCESS;
+    }
+
+    private static <P> Result generateChecked(TokenSchema<P> schema, long appId, P params, String secret,
+        int effectiveTimeInSeconds) {
+        long createTime = System.currentTimeMillis() / 1000;
+        long expireTime = createTime + effectiveTimeInSeconds;
+        try {
+            TokenBuilder builder = TokenBuilder.get().beginPayload();
+            schema.writePayload(builder, appId, params, createTime, expireTime);
+            return new Result(builder.build(schema.versionFlag(), expireTime, secret), TokenErrorCode.SUCCESS, "");
+        } catch (GeneralSecurityException | RuntimeException e) {
+            return new Result("", TokenErrorCode.OTHER, "" + e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package im.zego.callsdk.auth;
+
+/**
+ * Why {@link TokenEngine} could not generate a token, the values are those of the assistants' {@code ErrorCode}.
+ */
+public enum TokenErrorCode {
+    SUCCESS(0, ""),
+    ILLEGAL_APP_ID(1, "illegal appId"),
+    ILLEGAL_ROOM_ID(2, "illegal roomId"),
+    ILLEGAL_USER_ID(3, "illegal userId"),
+    ILLEGAL_PRIVILEGE(4, "privilege can't be null"),
+    ILLEGAL_SECRET(5, "illegal secret"),
+    ILLEGAL_EFFECTIVE_TIME(6, "effectiveTimeInSeconds must > 0"),
+    OTHER(-1, "");
+
+    TokenErrorCode(int code, String message) {
+        this.value = code;
+        this.message = message;
+    }
+
+    public final int value;
+    public final String message;
+}
@@ -0,0 +1,18 @@
+package im.zego.callsdk.auth;
+
+/**
+ * Writes the fields of the json payload of a token, the enclosing braces are written by {@link TokenEngine}.
+ */
+public interface TokenPayloadWriter {
+
+    TokenPayloadWriter field(String name, long value);
+
+    TokenPayloadWriter field(String name, String value);
+
+    /**
+     * start a nested object field, close it with {@link #endObject()}.
+     */
+    TokenPayloadWriter beginObject(String name);
+
+    TokenPayloadWriter endObject();
+}
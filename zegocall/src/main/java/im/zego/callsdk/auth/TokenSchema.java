@@ -0,0 +1,27 @@
+package im.zego.callsdk.auth;
+
+/**
+ * The payload format of one token version, {@link TokenEngine} adds the header, encryption and encoding shared by all
+ * versions.
+ *
+ * @param <P> the parameters of a token besides appId, secret and effective time.
+ */
+public interface TokenSchema<P> {
+
+    /**
+     * @return the two characters that prefix the tokens of this schema, e.g. "04".
+     */
+    String versionFlag();
+
+    /**
+     * @return the name of the payload field that holds the expire time, which must match the token header.
+     */
+    String expireField();
+
+    /**
+     * @return {@link TokenErrorCode#SUCCESS} if a token can be generated with the params.
+     */
+    TokenErrorCode check(P params);
+
+    void writePayload(TokenPayloadWriter writer, long appId, P params, long createTime, long expireTime);
+}
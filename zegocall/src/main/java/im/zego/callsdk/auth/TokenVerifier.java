@@ -0,0 +1,126 @@
+package im.zego.callsdk.auth;
+
+import com.google.gson.JsonElement;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks tokens offline, without a round trip to the ZEGOCLOUD services.
+ * <p>
+ * The expire time is in the plain header of a token, so {@link #peekExpireTime} reads it without the secret, e.g. to
+ * skip a login with an expired token or to schedule its refresh. {@link #verify} also decrypts the payload with the
+ * secret and checks it, the tokens verified are cached so verifying the same token again costs a map lookup.
+ */
+public class TokenVerifier {
+
+    /**
+     * returned by {@link #peekExpireTime} if the expire time can not be read.
+     */
+    public static final long UNKNOWN_EXPIRE_TIME = -1;
+
+    static final int MAX_CACHED_TOKENS = 64;
+    // the expire time is in the first 8 bytes, which are the first 12 base64 characters after the version flag
+    private static final int EXPIRE_TIME_CHARS = 12;
+
+    private final long appId;
+    private final String secret;
+    // verified tokens in access order, guarded by itself
+    private final LinkedHashMap<String, TokenEngine.DecodedToken> verifiedTokens =
+        new LinkedHashMap<String, TokenEngine.DecodedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenEngine.DecodedToken> eldest) {
+                return size() > MAX_CACHED_TOKENS;
+            }
+        };
+
+    /**
+     * @param appId  refers to the appId the tokens must be generated for.
+     * @param secret refers to the 32 characters server secret the tokens are encrypted with.
+     */
+    public TokenVerifier(long appId, String secret) {
+        this.appId = appId;
+        this.secret = secret;
+    }
+
+    /**
+     * Read the expire time of a token without decrypting it. The header is not authenticated, so use it for
+     * scheduling only, never to trust a token.
+     *
+     * @return the expire time in seconds since the epoch, or {@link #UNKNOWN_EXPIRE_TIME} if it is not a token of a
+     * registered version.
+     */
+    public static long peekExpireTime(String token) {
+        if (TokenEngine.schemaOf(token) == null || token.length() < 2 + EXPIRE_TIME_CHARS) {
+            return UNKNOWN_EXPIRE_TIME;
+        }
+        byte[] header = new byte[EXPIRE_TIME_CHARS / 4 * 3];
+        try {
+            Base64.getDecoder().decode(token, 2, 2 + EXPIRE_TIME_CHARS, header, 0);
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN_EXPIRE_TIME;
+        }
+        long expireTime = 0;
+        for (int i = 0; i < 8; i++) {
+            expireTime = (expireTime << 8) | (header[i] & 0xff);
+        }
+        return expireTime;
+    }
+
+    /**
+     * @param marginSeconds a token that expires within this time counts as expired.
+     * @return true if the token is known to expire within the margin, a token whose expire time can not be read is
+     * not.
+     */
+    public static boolean isExpired(String token, long marginSeconds) {
+        return isExpired(token, marginSeconds, System.currentTimeMillis() / 1000);
+    }
+
+    static boolean isExpired(String token, long marginSeconds, long nowSeconds) {
+        long expireTime = peekExpireTime(token);
+        return expireTime != UNKNOWN_EXPIRE_TIME && expireTime - marginSeconds <= nowSeconds;
+    }
+
+    /**
+     * Decrypt the token and check that it is well formed, generated for the appId and not expired.
+     *
+     * @throws GeneralSecurityException if the token is not valid.
+     */
+    public TokenEngine.DecodedToken verify(String token) throws GeneralSecurityException {
+        return verify(token, System.currentTimeMillis() / 1000);
+    }
+
+    TokenEngine.DecodedToken verify(String token, long nowSeconds) throws GeneralSecurityException {
+        TokenEngine.DecodedToken decoded;
+        synchronized (verifiedTokens) {
+            decoded = verifiedTokens.get(token);
+        }
+        if (decoded == null) {
+            decoded = TokenEngine.decode(token, secret);
+            JsonElement tokenAppId = decoded.payload.get("app_id");
+            try {
+                if (tokenAppId == null || tokenAppId.getAsLong() != appId) {
+                    throw new GeneralSecurityException("token of another appId");
+                }
+            } catch (NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+                throw new GeneralSecurityException("malformed token payload", e);
+            }
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(token, decoded);
+            }
+        }
+        if (decoded.expireTime <= nowSeconds) {
+            throw new GeneralSecurityException("token expired");
+        }
+        return decoded;
+    }
+
+    public boolean isValid(String token) {
+        try {
+            verify(token);
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package im.zego.callsdk.auth;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Version "04" tokens, which authorize a user for both ZIM and RTC rooms. The params are the userId.
+ */
+public class UserTokenSchema implements TokenSchema<String> {
+
+    public static final UserTokenSchema INSTANCE = new UserTokenSchema();
+
+    private UserTokenSchema() {
+    }
+
+    @Override
+    public String versionFlag() {
+        return "04";
+    }
+
+    @Override
+    public String expireField() {
+        return "expire";
+    }
+
+    @Override
+    public TokenErrorCode check(String userId) {
+        if (userId == null || userId.isEmpty() || userId.length() > 64) {
+            return TokenErrorCode.ILLEGAL_USER_ID;
+        }
+        return TokenErrorCode.SUCCESS;
+    }
+
+    @Override
+    public void writePayload(TokenPayloadWriter writer, long appId, String userId, long createTime,
+        long expireTime) {
+        writer.field("app_id", appId)
+            .field("user_id", userId)
+            .field("ctime", createTime)
+            .field("expire", expireTime)
+            .field("nonce", ThreadLocalRandom.current().nextInt())
+            .field("payload", "");
+    }
+}
@@ -0,0 +1,16 @@
+package im.zego.callsdk.auth;
+
+/**
+ * Description: Provides a new token when the token the SDK logged in with is about to expire, set it with {@link
+ * im.zego.callsdk.service.ZegoRoomManager#setTokenProvider}.
+ */
+public interface ZegoTokenProvider {
+
+    /**
+     * Called on the main thread, so it should return quickly, e.g. from a token generated in advance.
+     *
+     * @param userID refers to the ID of the logged-in user.
+     * @return a newly generated token of the user, or null or empty if there is none, the SDK does not renew then.
+     */
+    String getToken(String userID);
+}
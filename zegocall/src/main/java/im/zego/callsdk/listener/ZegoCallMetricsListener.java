@@ -0,0 +1,22 @@
+package im.zego.callsdk.listener;
+
+import im.zego.callsdk.metrics.ZegoCallPhase;
+
+/**
+ * The listener related to call setup latency.
+ * <p>Description: Callbacks that be triggered when a phase of the call setup completes.</>
+ */
+public interface ZegoCallMetricsListener {
+
+    /**
+     * Callback for a completed call phase
+     * <p>
+     * Description: This callback will be triggered on the thread that completes the phase, which may not be the main
+     * thread.
+     *
+     * @param phase          refers to the completed phase.
+     * @param durationMillis refers to how long the phase took, in milliseconds.
+     * @param errorCode      refers to the result of the phase, 0 means success.
+     */
+    void onPhaseCompleted(ZegoCallPhase phase, long durationMillis, int errorCode);
+}
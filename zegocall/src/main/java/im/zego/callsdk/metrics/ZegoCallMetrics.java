@@ -0,0 +1,20 @@
+package im.zego.callsdk.metrics;
+
+/**
+ * Sink for call setup latency.
+ * <p>
+ * Description: The SDK measures every {@link ZegoCallPhase} with a monotonic clock and reports it here. The default
+ * implementation is {@link ZegoCallMetricsCollector}, set your own with {@code ZegoRoomManager.setCallMetrics} to
+ * forward the samples to another monitoring system.
+ */
+public interface ZegoCallMetrics {
+
+    /**
+     * Called when a phase completes, may be called on any thread.
+     *
+     * @param phase          the completed phase
+     * @param durationMillis how long the phase took, in milliseconds
+     * @param errorCode      0 if the phase succeeded, otherwise the error code of the ZIM or Express SDK
+     */
+    void onPhaseCompleted(ZegoCallPhase phase, long durationMillis, int errorCode);
+}
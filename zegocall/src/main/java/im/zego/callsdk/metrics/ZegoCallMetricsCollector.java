@@ -0,0 +1,66 @@
+package im.zego.callsdk.metrics;
+
+import im.zego.callsdk.listener.ZegoCallMetricsListener;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The default {@link ZegoCallMetrics}, aggregates the latency of every phase in a {@link ZegoLatencyHistogram}.
+ * <p>
+ * Description: Read the p50/p95/p99 with {@link #snapshot()}, or register a {@link ZegoCallMetricsListener} to get
+ * every sample as it is recorded.
+ */
+public class ZegoCallMetricsCollector implements ZegoCallMetrics {
+
+    private static final ZegoCallPhase[] PHASES = ZegoCallPhase.values();
+
+    private final ZegoLatencyHistogram[] histograms = new ZegoLatencyHistogram[PHASES.length];
+    private final AtomicLongArray failures = new AtomicLongArray(PHASES.length);
+    private final List<ZegoCallMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ZegoCallMetricsCollector() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new ZegoLatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onPhaseCompleted(ZegoCallPhase phase, long durationMillis, int errorCode) {
+        if (errorCode == 0) {
+            histograms[phase.ordinal()].record(durationMillis);
+        } else {
+            failures.incrementAndGet(phase.ordinal());
+        }
+        for (ZegoCallMetricsListener listener : listeners) {
+            listener.onPhaseCompleted(phase, durationMillis, errorCode);
+        }
+    }
+
+    public void addListener(ZegoCallMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ZegoCallMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    public ZegoCallMetricsSnapshot snapshot() {
+        EnumMap<ZegoCallPhase, ZegoCallMetricsSnapshot.PhaseStats> phases = new EnumMap<>(ZegoCallPhase.class);
+        for (ZegoCallPhase phase : PHASES) {
+            ZegoLatencyHistogram histogram = histograms[phase.ordinal()];
+            phases.put(phase, new ZegoCallMetricsSnapshot.PhaseStats(histogram.getCount(),
+                failures.get(phase.ordinal()), histogram.getMean(), histogram.getPercentile(50),
+                histogram.getPercentile(95), histogram.getPercentile(99), histogram.getMax()));
+        }
+        return new ZegoCallMetricsSnapshot(phases);
+    }
+
+    public void reset() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].reset();
+            failures.set(i, 0);
+        }
+    }
+}
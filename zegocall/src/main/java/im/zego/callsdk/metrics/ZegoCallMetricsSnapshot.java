@@ -0,0 +1,66 @@
+package im.zego.callsdk.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Point-in-time latency statistics of every {@link ZegoCallPhase}, in milliseconds.
+ */
+public class ZegoCallMetricsSnapshot {
+
+    public static class PhaseStats {
+
+        // successful samples
+        public final long count;
+        public final long failures;
+        public final long mean;
+        public final long p50;
+        public final long p95;
+        public final long p99;
+        public final long max;
+
+        PhaseStats(long count, long failures, long mean, long p50, long p95, long p99, long max) {
+            this.count = count;
+            this.failures = failures;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        @Override
+        public String toString() {
+            return "PhaseStats{" +
+                "count=" + count +
+                ", failures=" + failures +
+                ", mean=" + mean +
+                ", p50=" + p50 +
+                ", p95=" + p95 +
+                ", p99=" + p99 +
+                ", max=" + max +
+                '}';
+        }
+    }
+
+    public final Map<ZegoCallPhase, PhaseStats> phases;
+
+    ZegoCallMetricsSnapshot(EnumMap<ZegoCallPhase, PhaseStats> phases) {
+        this.phases = Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * @return the statistics of the phase, never null.
+     */
+    public PhaseStats get(ZegoCallPhase phase) {
+        return phases.get(phase);
+    }
+
+    @Override
+    public String toString() {
+        return "ZegoCallMetricsSnapshot{" +
+            "phases=" + phases +
+            '}';
+    }
+}
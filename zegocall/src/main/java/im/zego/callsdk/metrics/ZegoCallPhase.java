@@ -0,0 +1,23 @@
+package im.zego.callsdk.metrics;
+
+/**
+ * The phases of a call whose latency is recorded.
+ */
+public enum ZegoCallPhase {
+    // ZIM login, from login request to result
+    ZIM_LOGIN,
+    // ZIM createRoom, from request to result
+    CREATE_ROOM,
+    // ZIM joinRoom, from request to result
+    JOIN_ROOM,
+    // ZIM sendPeerMessage of a call message, from send to ack
+    SEND_MESSAGE,
+    // Express loginRoom, from request to connected
+    RTC_LOGIN,
+    // from the publishing request to the local stream being published
+    FIRST_PUBLISH,
+    // from the RTC login request to the first remote audio or video frame
+    FIRST_REMOTE_FRAME,
+    // from the call being accepted, on either side, to the first remote frame
+    ACCEPT_TO_CONNECTED
+}
@@ -20,6 +20,9 @@ public class ZegoCallMessage {
     public List<String> target;
     @SerializedName("content")
     public ContentBean content;
+    // highest binary codec version the sender can decode, 0 or absent means JSON only
+    @SerializedName("codec_version")
+    public int codecVersion;
 
     public static class ContentBean {
 
@@ -0,0 +1,72 @@
+package im.zego.callsdk.service;
+
+import android.os.SystemClock;
+import android.util.Log;
+import im.zego.callsdk.metrics.ZegoCallMetrics;
+import im.zego.callsdk.metrics.ZegoCallPhase;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Times the {@link ZegoCallPhase}s with a monotonic clock and reports them to the {@link ZegoCallMetrics} set on
+ * {@link ZegoRoomManager}.
+ * <p>
+ * Phases that start and end in the same request are timed with {@link #now()} and {@link #record}. Phases that end in
+ * an event callback are started with {@link #begin} and completed with {@link #end}, each of them is pending at most
+ * once.
+ */
+class CallPhaseTimer {
+
+    private static final String TAG = "CallPhaseTimer";
+    private static final int PHASE_COUNT = ZegoCallPhase.values().length;
+
+    // start time of each pending phase, 0 if the phase is not pending
+    private final AtomicLongArray startTimes = new AtomicLongArray(PHASE_COUNT);
+
+    static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    void begin(ZegoCallPhase phase) {
+        startTimes.set(phase.ordinal(), now());
+    }
+
+    /**
+     * Start a phase only while {@code until} is still pending. A phase whose closing event has already happened is
+     * skipped, it would otherwise stay pending for the whole call as its {@link #end} was a no-op.
+     */
+    void beginBefore(ZegoCallPhase phase, ZegoCallPhase until) {
+        if (startTimes.get(until.ordinal()) != 0) {
+            begin(phase);
+        } else {
+            Log.d(TAG, phase + " skipped, " + until + " already completed");
+        }
+    }
+
+    /**
+     * Complete a pending phase, does nothing if the phase is not pending.
+     */
+    void end(ZegoCallPhase phase, int errorCode) {
+        long startTime = startTimes.getAndSet(phase.ordinal(), 0);
+        if (startTime != 0) {
+            record(phase, startTime, errorCode);
+        }
+    }
+
+    /**
+     * Drop all pending phases, e.g. when the call is torn down before they complete.
+     */
+    void cancelAll() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            startTimes.set(i, 0);
+        }
+    }
+
+    void record(ZegoCallPhase phase, long startTime, int errorCode) {
+        long durationMillis = (now() - startTime) / 1_000_000;
+        Log.d(TAG, phase + " took " + durationMillis + "ms, errorCode:" + errorCode);
+        ZegoCallMetrics metrics = ZegoRoomManager.getInstance().getCallMetrics();
+        if (metrics != null) {
+            metrics.onPhaseCompleted(phase, durationMillis, errorCode);
+        }
+    }
+}
@@ -9,9 +9,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import im.zego.callsdk.ZegoZIMManager;
+import im.zego.callsdk.auth.TokenVerifier;
+import im.zego.callsdk.auth.ZegoTokenProvider;
 import im.zego.callsdk.callback.ZegoRoomCallback;
+import im.zego.callsdk.metrics.ZegoCallMetrics;
+import im.zego.callsdk.metrics.ZegoCallMetricsCollector;
+import im.zego.callsdk.metrics.ZegoCallPhase;
 import im.zego.zegoexpress.ZegoExpressEngine;
 import im.zego.zegoexpress.callback.IZegoEventHandler;
+import im.zego.zegoexpress.constants.ZegoPublisherState;
+import im.zego.zegoexpress.constants.ZegoRoomState;
 import im.zego.zegoexpress.constants.ZegoScenario;
 import im.zego.zegoexpress.constants.ZegoStreamQualityLevel;
 import im.zego.zegoexpress.constants.ZegoUpdateType;
@@ -25,6 +32,7 @@ import im.zego.zim.entity.ZIMRoomAttributesUpdateInfo;
 import im.zego.zim.entity.ZIMUserInfo;
 import im.zego.zim.enums.ZIMConnectionEvent;
 import im.zego.zim.enums.ZIMConnectionState;
+import im.zego.zim.enums.ZIMErrorCode;
 import im.zego.zim.enums.ZIMRoomEvent;
 import im.zego.zim.enums.ZIMRoomState;
 
@@ -65,6 +73,12 @@ public class ZegoRoomManager {
     public ZegoUserService userService;
 
     private static final String TAG = "RoomManager";
+    // a token that expires sooner is replaced before logging in with it
+    private static final long MIN_TOKEN_VALIDITY_SECONDS = 30;
+
+    private volatile ZegoCallMetrics callMetrics = new ZegoCallMetricsCollector();
+    final CallPhaseTimer phaseTimer = new CallPhaseTimer();
+    private volatile ZegoTokenProvider tokenProvider;
 
     /**
      * Initialize the SDK.
@@ -104,6 +118,51 @@ public class ZegoRoomManager {
 
             }
 
+            @Override
+            public void onRoomStateUpdate(String roomID, ZegoRoomState state, int errorCode,
+                JSONObject extendedData) {
+                super.onRoomStateUpdate(roomID, state, errorCode, extendedData);
+                if (state == ZegoRoomState.CONNECTED) {
+                    phaseTimer.end(ZegoCallPhase.RTC_LOGIN, errorCode);
+                } else if (state == ZegoRoomState.DISCONNECTED && errorCode != 0) {
+                    phaseTimer.end(ZegoCallPhase.RTC_LOGIN, errorCode);
+                }
+            }
+
+            @Override
+            public void onPublisherStateUpdate(String streamID, ZegoPublisherState state, int errorCode,
+                JSONObject extendedData) {
+                super.onPublisherStateUpdate(streamID, state, errorCode, extendedData);
+                if (state == ZegoPublisherState.PUBLISHING || errorCode != 0) {
+                    phaseTimer.end(ZegoCallPhase.FIRST_PUBLISH, errorCode);
+                }
+            }
+
+            @Override
+            public void onPlayerRecvAudioFirstFrame(String streamID) {
+                super.onPlayerRecvAudioFirstFrame(streamID);
+                phaseTimer.end(ZegoCallPhase.FIRST_REMOTE_FRAME, 0);
+                phaseTimer.end(ZegoCallPhase.ACCEPT_TO_CONNECTED, 0);
+            }
+
+            @Override
+            public void onPlayerRecvVideoFirstFrame(String streamID) {
+                super.onPlayerRecvVideoFirstFrame(streamID);
+                phaseTimer.end(ZegoCallPhase.FIRST_REMOTE_FRAME, 0);
+                phaseTimer.end(ZegoCallPhase.ACCEPT_TO_CONNECTED, 0);
+            }
+
+            @Override
+            public void onRoomTokenWillExpire(String roomID, int remainTimeInSecond) {
+                super.onRoomTokenWillExpire(roomID, remainTimeInSecond);
+                Log.d(TAG, "onRoomTokenWillExpire() called with: roomID = [" + roomID + "], remainTimeInSecond = ["
+                    + remainTimeInSecond + "]");
+                String token = provideToken();
+                if (token != null) {
+                    ZegoExpressEngine.getEngine().renewToken(roomID, token);
+                }
+            }
+
             @Override
             public void onRoomStreamUpdate(String roomID, ZegoUpdateType updateType, ArrayList<ZegoStream> streamList,
                 JSONObject extendedData) {
@@ -137,6 +196,15 @@ public class ZegoRoomManager {
             @Override
             public void onTokenWillExpire(ZIM zim, int second) {
                 super.onTokenWillExpire(zim, second);
+                Log.d(TAG, "onTokenWillExpire() called with: second = [" + second + "]");
+                String token = provideToken();
+                if (token != null) {
+                    zim.renewToken(token, (renewedToken, errorInfo) -> {
+                        if (errorInfo.code != ZIMErrorCode.SUCCESS) {
+                            Log.w(TAG, "renewToken failed: " + errorInfo.code);
+                        }
+                    });
+                }
             }
 
             @Override
@@ -192,6 +260,9 @@ public class ZegoRoomManager {
             public void onRoomAttributesBatchUpdated(ZIM zim, ArrayList<ZIMRoomAttributesUpdateInfo> infos,
                 String roomID) {
                 super.onRoomAttributesBatchUpdated(zim, infos, roomID);
+                if (userService != null) {
+                    userService.onRoomAttributesBatchUpdated(zim, infos, roomID);
+                }
             }
         });
     }
@@ -207,6 +278,71 @@ public class ZegoRoomManager {
         ZegoExpressEngine.destroyEngine(null);
     }
 
+    /**
+     * Get the receiver of the call setup latency metrics.
+     * <p>Description: By default this is a {@link ZegoCallMetricsCollector}, which keeps a latency histogram for
+     * every {@link ZegoCallPhase} and notifies its listeners of each completed phase.</>
+     *
+     * @return the current metrics receiver, or null if metrics are disabled.
+     */
+    public ZegoCallMetrics getCallMetrics() {
+        return callMetrics;
+    }
+
+    /**
+     * Set the receiver of the call setup latency metrics.
+     * <p>Call this method at: Any time, set null to disable metrics.</>
+     *
+     * @param callMetrics refers to the receiver that the duration of every completed phase is reported to.
+     */
+    public void setCallMetrics(ZegoCallMetrics callMetrics) {
+        this.callMetrics = callMetrics;
+    }
+
+    /**
+     * Set the provider of new tokens, which the SDK uses to renew its tokens before they expire.
+     * <p>Call this method at: Any time, we recommend you call this method right after {@link #init}. Without a
+     * provider, the SDK is logged out when its tokens expire.</>
+     *
+     * @param tokenProvider refers to the provider that generates a new token of the logged-in user.
+     */
+    public void setTokenProvider(ZegoTokenProvider tokenProvider) {
+        this.tokenProvider = tokenProvider;
+    }
+
+    /**
+     * @return a new token of the logged-in user, or null if there is none.
+     */
+    private String provideToken() {
+        ZegoTokenProvider provider = tokenProvider;
+        if (provider == null || userService == null || userService.localUserInfo == null) {
+            return null;
+        }
+        String token = provider.getToken(userService.localUserInfo.userID);
+        if (token == null || token.isEmpty() || TokenVerifier.isExpired(token, 0)) {
+            Log.w(TAG, "provideToken: no valid token to renew with");
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * @return the token if it does not expire soon, else a new one from the token provider, so a login is not
+     * attempted with a token the server will reject anyway.
+     */
+    String freshToken(String userID, String token) {
+        if (!TokenVerifier.isExpired(token, MIN_TOKEN_VALIDITY_SECONDS)) {
+            return token;
+        }
+        ZegoTokenProvider provider = tokenProvider;
+        String newToken = provider == null ? null : provider.getToken(userID);
+        if (newToken == null || newToken.isEmpty() || TokenVerifier.isExpired(newToken, 0)) {
+            Log.w(TAG, "freshToken: token of " + userID + " expired and no new token is provided");
+            return token;
+        }
+        return newToken;
+    }
+
     /**
      * Upload local logs to the ZEGOCLOUD server.
      * <p>Description: You can call this method to upload the local logs to the ZEGOCLOUD Server for troubleshooting
@@ -6,8 +6,10 @@ import com.google.gson.Gson;
 
 import im.zego.callsdk.ZegoZIMManager;
 import im.zego.callsdk.callback.ZegoRoomCallback;
+import im.zego.callsdk.metrics.ZegoCallPhase;
 import im.zego.callsdk.model.ZegoRoomInfo;
 import im.zego.callsdk.model.ZegoUserInfo;
+import im.zego.callsdk.utils.GsonHelper;
 import im.zego.zegoexpress.ZegoExpressEngine;
 import im.zego.zegoexpress.entity.ZegoRoomConfig;
 import im.zego.zegoexpress.entity.ZegoUser;
@@ -29,7 +31,7 @@ public class ZegoRoomService {
 
     public static final String KEY_ROOM_INFO = "room_info";
     private static final String TAG = "RoomService";
-    private static Gson mGson = new Gson();
+    private static Gson mGson = GsonHelper.getGson();
 
     /**
      * Create a room
@@ -49,6 +51,9 @@ public class ZegoRoomService {
         roomInfo.roomID = (roomID);
         roomInfo.roomName = (roomName);
 
+        // the RTC room does not depend on the ZIM room, log in and publish while ZIM creates it
+        loginRTCRoom(roomID, token, localUserInfo);
+
         ZIMRoomInfo zimRoomInfo = new ZIMRoomInfo();
         zimRoomInfo.roomID = roomID;
         zimRoomInfo.roomName = roomName;
@@ -58,9 +63,12 @@ public class ZegoRoomService {
         ZIMRoomAdvancedConfig config = new ZIMRoomAdvancedConfig();
         config.roomAttributes = roomAttributes;
 
+        CallPhaseTimer phaseTimer = ZegoRoomManager.getInstance().phaseTimer;
+        long startTime = CallPhaseTimer.now();
         ZegoZIMManager.getInstance().zim.createRoom(zimRoomInfo, config, (roomInfo, errorInfo) -> {
-            if (errorInfo.code == ZIMErrorCode.SUCCESS) {
-                loginRTCRoom(roomID, token, localUserInfo);
+            phaseTimer.record(ZegoCallPhase.CREATE_ROOM, startTime, errorInfo.code.value());
+            if (errorInfo.code != ZIMErrorCode.SUCCESS) {
+                logoutRTCRoom(roomID);
             }
             if (callback != null) {
                 callback.onRoomCallback(errorInfo.code.value());
@@ -82,11 +90,18 @@ public class ZegoRoomService {
     public void joinRoom(String roomID, String token, ZegoRoomCallback callback) {
         ZegoUserInfo localUserInfo = ZegoRoomManager.getInstance().userService.localUserInfo;
 
+        // the RTC room does not depend on the ZIM room, log in and publish while joining it
+        loginRTCRoom(roomID, token, localUserInfo);
+
+        CallPhaseTimer phaseTimer = ZegoRoomManager.getInstance().phaseTimer;
+        long startTime = CallPhaseTimer.now();
         ZegoZIMManager.getInstance().zim.joinRoom(roomID, (roomInfo, errorInfo) -> {
+            phaseTimer.record(ZegoCallPhase.JOIN_ROOM, startTime, errorInfo.code.value());
             if (errorInfo.code == ZIMErrorCode.SUCCESS) {
-                loginRTCRoom(roomID, token, localUserInfo);
                 this.roomInfo.roomID = (roomInfo.baseInfo.roomID);
                 this.roomInfo.roomName = (roomInfo.baseInfo.roomName);
+            } else {
+                logoutRTCRoom(roomID);
             }
             if (callback != null) {
                 callback.onRoomCallback(errorInfo.code.value());
@@ -109,10 +124,7 @@ public class ZegoRoomService {
             userService.leaveRoom();
         }
 
-        ZegoExpressEngine.getEngine().stopSoundLevelMonitor();
-        ZegoExpressEngine.getEngine().stopPublishingStream();
-
-        ZegoExpressEngine.getEngine().logoutRoom(roomInfo.roomID);
+        logoutRTCRoom(roomInfo.roomID);
 
         ZegoZIMManager.getInstance().zim.leaveRoom(roomInfo.roomID, errorInfo -> {
             Log.d(TAG, "leaveRoom() called with: errorInfo = [" + errorInfo.code + "]" + errorInfo.message);
@@ -122,12 +134,32 @@ public class ZegoRoomService {
         });
     }
 
-    private void loginRTCRoom(String roomID, String token, ZegoUserInfo localUserInfo) {
+    /**
+     * Log in to the RTC room and start publishing the local stream, the engine queues the publishing until the login
+     * completes.
+     */
+    void loginRTCRoom(String roomID, String token, ZegoUserInfo localUserInfo) {
         ZegoUser user = new ZegoUser(localUserInfo.userID, localUserInfo.userName);
         ZegoRoomConfig roomConfig = new ZegoRoomConfig();
-        roomConfig.token = token;
+        roomConfig.token = ZegoRoomManager.getInstance().freshToken(localUserInfo.userID, token);
+        CallPhaseTimer phaseTimer = ZegoRoomManager.getInstance().phaseTimer;
+        phaseTimer.begin(ZegoCallPhase.RTC_LOGIN);
+        phaseTimer.begin(ZegoCallPhase.FIRST_PUBLISH);
+        phaseTimer.begin(ZegoCallPhase.FIRST_REMOTE_FRAME);
         ZegoExpressEngine.getEngine().loginRoom(roomID, user, roomConfig);
         ZegoExpressEngine.getEngine().startSoundLevelMonitor(500);
+        ZegoExpressEngine.getEngine().startPublishingStream(getStreamID(roomID, localUserInfo.userID));
+    }
+
+    void logoutRTCRoom(String roomID) {
+        ZegoRoomManager.getInstance().phaseTimer.cancelAll();
+        ZegoExpressEngine.getEngine().stopSoundLevelMonitor();
+        ZegoExpressEngine.getEngine().stopPublishingStream();
+        ZegoExpressEngine.getEngine().logoutRoom(roomID);
+    }
+
+    static String getStreamID(String roomID, String userID) {
+        return String.format("%s_%s_%s", roomID, userID, "main");
     }
 
     public void updateRoomInfo(ZegoRoomInfo roomInfo) {
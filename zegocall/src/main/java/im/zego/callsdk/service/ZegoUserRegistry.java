@@ -0,0 +1,74 @@
+package im.zego.callsdk.service;
+
+import im.zego.callsdk.model.ZegoUserInfo;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * In-room user registry keyed by userID.
+ * <p>
+ * Description: Join, leave and lookup are O(1) and keep the join order. ZIM callbacks and UI threads can use it
+ * concurrently, readers get an immutable snapshot that is rebuilt lazily after the registry changes, so iterating it
+ * never blocks or races with writers.
+ */
+class ZegoUserRegistry {
+
+    private final LinkedHashMap<String, ZegoUserInfo> users = new LinkedHashMap<>();
+    // null when the registry changed since the last snapshot was taken
+    private volatile List<ZegoUserInfo> snapshot = Collections.emptyList();
+
+    /**
+     * @return false if a user with the same userID is already in the registry, the registry is not changed then.
+     */
+    synchronized boolean add(ZegoUserInfo userInfo) {
+        if (users.containsKey(userInfo.userID)) {
+            return false;
+        }
+        users.put(userInfo.userID, userInfo);
+        snapshot = null;
+        return true;
+    }
+
+    /**
+     * @return the removed user, or null if the user is not in the registry.
+     */
+    synchronized ZegoUserInfo remove(String userID) {
+        ZegoUserInfo removed = users.remove(userID);
+        if (removed != null) {
+            snapshot = null;
+        }
+        return removed;
+    }
+
+    synchronized ZegoUserInfo get(String userID) {
+        return users.get(userID);
+    }
+
+    synchronized int size() {
+        return users.size();
+    }
+
+    synchronized void clear() {
+        users.clear();
+        snapshot = Collections.emptyList();
+    }
+
+    /**
+     * @return an immutable list of the users in join order.
+     */
+    List<ZegoUserInfo> snapshot() {
+        List<ZegoUserInfo> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = Collections.unmodifiableList(new ArrayList<>(users.values()));
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+}
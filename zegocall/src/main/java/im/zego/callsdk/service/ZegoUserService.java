@@ -1,18 +1,19 @@
 package im.zego.callsdk.service;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.TextureView;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import org.json.JSONObject;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -21,6 +22,7 @@ import java.util.Objects;
 import im.zego.callsdk.ZegoZIMManager;
 import im.zego.callsdk.callback.ZegoRoomCallback;
 import im.zego.callsdk.listener.ZegoUserServiceListener;
+import im.zego.callsdk.metrics.ZegoCallPhase;
 import im.zego.callsdk.model.ZegoCallMessage;
 import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
 import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
@@ -30,7 +32,8 @@ import im.zego.callsdk.model.ZegoNetWorkQuality;
 import im.zego.callsdk.model.ZegoResponseType;
 import im.zego.callsdk.model.ZegoRoomInfo;
 import im.zego.callsdk.model.ZegoUserInfo;
-import im.zego.callsdk.utils.CustomTypeAdapterFactory;
+import im.zego.callsdk.utils.GsonHelper;
+import im.zego.callsdk.utils.ZegoCallMessageCodec;
 import im.zego.zegoexpress.ZegoExpressEngine;
 import im.zego.zegoexpress.constants.ZegoOrientation;
 import im.zego.zegoexpress.constants.ZegoStreamQualityLevel;
@@ -63,8 +66,8 @@ public class ZegoUserService {
     // The local logged-in user information.
     public ZegoUserInfo localUserInfo;
 
-    // In-room user list, can be used when displaying the user list in the room.
-    private List<ZegoUserInfo> userList;
+    // In-room users keyed by userID, can be used when displaying the user list in the room.
+    private final ZegoUserRegistry userRegistry = new ZegoUserRegistry();
 
     private static final String TAG = "UserService";
 
@@ -72,14 +75,31 @@ public class ZegoUserService {
     private ZegoUserServiceListener listener;
     private ZegoRoomService roomService;
     private static Gson mGson;
+    private ZegoCallMessageCodec callMessageCodec;
     private Map<String, String> streamMap = new HashMap();
 
+    /**
+     * Toggles of the microphone and camera made within this window, in milliseconds, are sent in one update.
+     */
+    public static final long DEVICE_STATE_BATCH_WINDOW = 50;
+    // device state batching, only touched on the main thread
+    private final Handler deviceStateHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushDeviceStateRunnable = this::flushDeviceState;
+    private final List<ZegoRoomCallback> pendingDeviceStateCallbacks = new ArrayList<>();
+    private boolean deviceStateFlushScheduled;
+    private boolean deviceStateInFlight;
+    // the room the batch is sent to, captured when the first toggle of the batch is scheduled
+    private String deviceStateRoomID;
+    // bumped on leaving the room, an update still in flight from an older room does not touch the current batch
+    private int deviceStateGeneration;
+    // the device state last accepted by the room attributes, restored when an update fails
+    private boolean confirmedMic;
+    private boolean confirmedCamera;
+
     public ZegoUserService() {
         roomService = new ZegoRoomService();
-        GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapterFactory(new CustomTypeAdapterFactory());
-        mGson = builder.create();
-        userList = new ArrayList<>();
+        mGson = GsonHelper.getGson();
+        callMessageCodec = new ZegoCallMessageCodec(mGson);
     }
 
     /**
@@ -97,9 +117,12 @@ public class ZegoUserService {
         ZIMUserInfo zimUserInfo = new ZIMUserInfo();
         zimUserInfo.userID = userInfo.userID;
         zimUserInfo.userName = userInfo.userName;
-        ZegoZIMManager.getInstance().zim.login(zimUserInfo, token, new ZIMLoggedInCallback() {
+        long startTime = CallPhaseTimer.now();
+        String loginToken = ZegoRoomManager.getInstance().freshToken(userInfo.userID, token);
+        ZegoZIMManager.getInstance().zim.login(zimUserInfo, loginToken, new ZIMLoggedInCallback() {
             @Override
             public void onLoggedIn(ZIMError errorInfo) {
+                phaseTimer().record(ZegoCallPhase.ZIM_LOGIN, startTime, errorInfo.code.value());
                 if (errorInfo.code == ZIMErrorCode.SUCCESS) {
                     localUserInfo = new ZegoUserInfo();
                     localUserInfo.userID = userInfo.userID;
@@ -122,11 +145,13 @@ public class ZegoUserService {
     public void logout() {
         Log.d(TAG, "logout() called");
         ZegoZIMManager.getInstance().zim.logout();
+        callMessageCodec.reset();
         leaveRoom();
     }
 
     void leaveRoom() {
-        userList.clear();
+        userRegistry.clear();
+        cancelDeviceState();
     }
 
     /**
@@ -147,6 +172,8 @@ public class ZegoUserService {
                 + createRoomToken + "], callback = [" + callback + "]");
         if (localUserInfo != null) {
             String roomID = localUserInfo.userID;
+            // createRoom logs in to the RTC room and starts publishing at once, the invite waits for the ZIM room
+            // only, because the callee needs it to join
             roomService.createRoom(roomID, localUserInfo.userName, createRoomToken, errorCode -> {
                 if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                     ZegoCallMessage callMessage = new ZegoCallMessage();
@@ -156,15 +183,14 @@ public class ZegoUserService {
                     contentBean.userInfo = new UserInfoBean(localUserInfo.userID, localUserInfo.userName);
                     contentBean.callType = callType;
                     callMessage.content = contentBean;
-                    String messageJson = mGson.toJson(callMessage);
-                    ZIMCustomMessage custom = new ZIMCustomMessage();
-                    custom.message = messageJson.getBytes(StandardCharsets.UTF_8);
-                    ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID, (message, errorInfo) -> {
+                    sendCallMessage(callMessage, userID, errorCode1 -> {
+                        if (errorCode1 != ZIMErrorCode.SUCCESS.value()) {
+                            roomService.leaveRoom(null);
+                        }
                         if (callback != null) {
-                            callback.onRoomCallback(errorInfo.code.value());
+                            callback.onRoomCallback(errorCode1);
                         }
                     });
-                    ZegoExpressEngine.getEngine().startPublishingStream(getStreamIDFromUser(localUserInfo.userID));
                 } else {
                     if (callback != null) {
                         callback.onRoomCallback(errorCode);
@@ -199,14 +225,7 @@ public class ZegoUserService {
             contentBean.userInfo = new UserInfoBean(localUserInfo.userID, localUserInfo.userName);
             contentBean.cancelType = cancelType;
             callMessage.content = contentBean;
-            String messageJson = mGson.toJson(callMessage);
-            ZIMCustomMessage custom = new ZIMCustomMessage();
-            custom.message = messageJson.getBytes(StandardCharsets.UTF_8);
-            ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID, (message, errorInfo) -> {
-                if (callback != null) {
-                    callback.onRoomCallback(errorInfo.code.value());
-                }
-            });
+            sendCallMessage(callMessage, userID, callback);
             roomService.leaveRoom(errorCode -> {
 
             });
@@ -233,12 +252,15 @@ public class ZegoUserService {
             + joinRoomToken + "], callback = [" + callback + "]");
         if (localUserInfo != null) {
             if (type == ZegoResponseType.Accept) {
+                phaseTimer().begin(ZegoCallPhase.ACCEPT_TO_CONNECTED);
+                // joinRoom logs in to the RTC room and starts publishing at once, the response waits for the ZIM
+                // room only
                 roomService.joinRoom(userID, joinRoomToken, errorCode -> {
                     if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                         responseCallInner(type, userID, errorCode1 -> {
-                            if (errorCode1 == ZIMErrorCode.SUCCESS.value()) {
-                                ZegoExpressEngine.getEngine()
-                                    .startPublishingStream(getStreamIDFromUser(localUserInfo.userID));
+                            if (errorCode1 != ZIMErrorCode.SUCCESS.value()) {
+                                // the ZIM room was joined too, leave both rooms
+                                roomService.leaveRoom(null);
                             }
                             if (callback != null) {
                                 callback.onRoomCallback(errorCode1);
@@ -268,12 +290,17 @@ public class ZegoUserService {
         contentBean.userInfo = new UserInfoBean(localUserInfo.userID, localUserInfo.userName);
         contentBean.responseType = type;
         callMessage.content = contentBean;
-        String messageJson = mGson.toJson(callMessage);
+        sendCallMessage(callMessage, userID, callback);
+    }
+
+    private void sendCallMessage(ZegoCallMessage callMessage, String userID, ZegoRoomCallback callback) {
         ZIMCustomMessage custom = new ZIMCustomMessage();
-        custom.message = messageJson.getBytes(StandardCharsets.UTF_8);
+        custom.message = callMessageCodec.encode(callMessage, userID);
+        long startTime = CallPhaseTimer.now();
         ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID, (message, errorInfo) -> {
-            Log.d(TAG, "responseCallInner() called with: message = [" + message + "], errorInfo = [" + errorInfo.message
-                + "]");
+            phaseTimer().record(ZegoCallPhase.SEND_MESSAGE, startTime, errorInfo.code.value());
+            Log.d(TAG, "sendCallMessage() called with: actionType = [" + callMessage.actionType + "], errorInfo = ["
+                + errorInfo.message + "]");
             if (callback != null) {
                 callback.onRoomCallback(errorInfo.code.value());
             }
@@ -307,32 +334,10 @@ public class ZegoUserService {
      *
      * @param enable   indicates whether to enable or disable the microphone. true: Enable. false: Disable.
      * @param callback refers to the callback for enable or disable the microphone.
+     * @see #updateDeviceState(boolean, boolean, ZegoRoomCallback)
      */
     public void enableMic(boolean enable, ZegoRoomCallback callback) {
-        boolean micState = localUserInfo.mic;
-        localUserInfo.mic = enable;
-        HashMap<String, String> seatAttributes = new HashMap<>();
-        seatAttributes.put(localUserInfo.userID, mGson.toJson(localUserInfo));
-
-        String roomID = roomService.roomInfo.roomID;
-        ZIMRoomAttributesSetConfig setConfig = new ZIMRoomAttributesSetConfig();
-        setConfig.isForce = true;
-        setConfig.isDeleteAfterOwnerLeft = true;
-
-        Log.d(TAG, "micOperate() called with: seatAttributes = [" + seatAttributes + "],roomID:" + roomID);
-
-        ZegoZIMManager.getInstance().zim.setRoomAttributes(seatAttributes, roomID, setConfig, errorInfo -> {
-            Log.d(TAG, "micOperate: errorInfo " + errorInfo.message + ",localUserInfo:" + localUserInfo);
-            if (errorInfo.code.equals(ZIMErrorCode.SUCCESS)) {
-                if (listener != null) {
-                    listener.onUserInfoUpdated(localUserInfo);
-                }
-            } else {
-                localUserInfo.mic = micState;
-            }
-            ZegoExpressEngine.getEngine().muteMicrophone(!localUserInfo.mic);
-            callback.onRoomCallback(errorInfo.code.value());
-        });
+        scheduleDeviceState(enable, null, callback);
     }
 
     /**
@@ -344,40 +349,155 @@ public class ZegoUserService {
      *
      * @param open     indicates whether to enable or disable the camera. true: Enable. false: Disable.
      * @param callback refers to the callback for enable or disable the camera.
+     * @see #updateDeviceState(boolean, boolean, ZegoRoomCallback)
      */
     public void enableCamera(boolean open, ZegoRoomCallback callback) {
-        boolean cameraState = localUserInfo.camera;
-        localUserInfo.camera = open;
+        scheduleDeviceState(null, open, callback);
+    }
+
+    /**
+     * Microphone and camera related operation
+     * <p>
+     * Description: This method can be used to set the microphone and the camera state together. The new state is
+     * applied to the local devices at once, and toggles made within {@link #DEVICE_STATE_BATCH_WINDOW} milliseconds,
+     * including those made by {@link #enableMic} and {@link #enableCamera}, are sent to the room in one attributes
+     * update carrying the final state. If the update fails, the devices are rolled back to the last state the room
+     * accepted.
+     * <p>
+     * Call this method at: After the call is connected, on the main thread
+     *
+     * @param mic      indicates whether to enable or disable the microphone.
+     * @param camera   indicates whether to enable or disable the camera.
+     * @param callback refers to the callback for the update, it is called once the batch containing this update is
+     *                 done.
+     */
+    public void updateDeviceState(boolean mic, boolean camera, ZegoRoomCallback callback) {
+        scheduleDeviceState(mic, camera, callback);
+    }
+
+    private void scheduleDeviceState(Boolean mic, Boolean camera, ZegoRoomCallback callback) {
+        if (localUserInfo == null) {
+            if (callback != null) {
+                callback.onRoomCallback(ZIMErrorCode.NO_LOGIN.value());
+            }
+            return;
+        }
+        boolean idle = !deviceStateFlushScheduled && !deviceStateInFlight;
+        if (idle) {
+            ZegoRoomInfo roomInfo = roomService.roomInfo;
+            deviceStateRoomID = roomInfo == null ? null : roomInfo.roomID;
+            if (deviceStateRoomID == null) {
+                if (callback != null) {
+                    callback.onRoomCallback(ZIMErrorCode.FAILED.value());
+                }
+                return;
+            }
+            confirmedMic = localUserInfo.mic;
+            confirmedCamera = localUserInfo.camera;
+        }
+        // apply optimistically, the attributes update only tells the other users
+        if (mic != null) {
+            localUserInfo.mic = mic;
+            ZegoExpressEngine.getEngine().muteMicrophone(!mic);
+        }
+        if (camera != null) {
+            localUserInfo.camera = camera;
+            ZegoExpressEngine.getEngine().enableCamera(camera);
+        }
+        pendingDeviceStateCallbacks.add(callback);
+        if (idle) {
+            deviceStateFlushScheduled = true;
+            deviceStateHandler.postDelayed(flushDeviceStateRunnable, DEVICE_STATE_BATCH_WINDOW);
+        }
+    }
+
+    private void flushDeviceState() {
+        deviceStateFlushScheduled = false;
+        if (localUserInfo == null || pendingDeviceStateCallbacks.isEmpty()) {
+            return;
+        }
+        List<ZegoRoomCallback> callbacks = new ArrayList<>(pendingDeviceStateCallbacks);
+        pendingDeviceStateCallbacks.clear();
+        final boolean mic = localUserInfo.mic;
+        final boolean camera = localUserInfo.camera;
+
         HashMap<String, String> seatAttributes = new HashMap<>();
         seatAttributes.put(localUserInfo.userID, mGson.toJson(localUserInfo));
 
-        String roomID = roomService.roomInfo.roomID;
+        String roomID = deviceStateRoomID;
+        int generation = deviceStateGeneration;
         ZIMRoomAttributesSetConfig setConfig = new ZIMRoomAttributesSetConfig();
         setConfig.isForce = true;
         setConfig.isDeleteAfterOwnerLeft = true;
 
-        Log.d(TAG, "cameraOperate() called with: seatAttributes = [" + seatAttributes + "],roomID:" + roomID);
+        Log.d(TAG, "flushDeviceState() called with: seatAttributes = [" + seatAttributes + "],roomID:" + roomID
+            + ",batched:" + callbacks.size());
 
+        deviceStateInFlight = true;
         ZegoZIMManager.getInstance().zim.setRoomAttributes(seatAttributes, roomID, setConfig, errorInfo -> {
-            Log.d(TAG, "cameraOperate: errorInfo " + errorInfo.message + ",localUserInfo:" + localUserInfo);
+            if (generation != deviceStateGeneration) {
+                // the room was left meanwhile, the devices are no longer ours to restore
+                notifyDeviceState(callbacks, errorInfo.code.value());
+                return;
+            }
+            deviceStateInFlight = false;
+            Log.d(TAG, "flushDeviceState: errorInfo " + errorInfo.message + ",localUserInfo:" + localUserInfo);
             if (errorInfo.code.equals(ZIMErrorCode.SUCCESS)) {
+                confirmedMic = mic;
+                confirmedCamera = camera;
                 if (listener != null) {
                     listener.onUserInfoUpdated(localUserInfo);
                 }
-            } else {
-                localUserInfo.camera = cameraState;
+            } else if (pendingDeviceStateCallbacks.isEmpty()) {
+                // newer toggles keep their optimistic state, they are sent by the next batch
+                localUserInfo.mic = confirmedMic;
+                localUserInfo.camera = confirmedCamera;
+                ZegoExpressEngine.getEngine().muteMicrophone(!confirmedMic);
+                ZegoExpressEngine.getEngine().enableCamera(confirmedCamera);
+            }
+            notifyDeviceState(callbacks, errorInfo.code.value());
+            if (!pendingDeviceStateCallbacks.isEmpty() && !deviceStateFlushScheduled) {
+                deviceStateFlushScheduled = true;
+                deviceStateHandler.postDelayed(flushDeviceStateRunnable, DEVICE_STATE_BATCH_WINDOW);
             }
-            ZegoExpressEngine.getEngine().enableCamera(localUserInfo.camera);
-            callback.onRoomCallback(errorInfo.code.value());
         });
     }
 
+    /**
+     * Drop the batch of the room being left, its callbacks fail as the update is never sent.
+     */
+    private void cancelDeviceState() {
+        deviceStateHandler.removeCallbacks(flushDeviceStateRunnable);
+        deviceStateGeneration++;
+        deviceStateFlushScheduled = false;
+        deviceStateInFlight = false;
+        deviceStateRoomID = null;
+        List<ZegoRoomCallback> callbacks = new ArrayList<>(pendingDeviceStateCallbacks);
+        pendingDeviceStateCallbacks.clear();
+        notifyDeviceState(callbacks, ZIMErrorCode.FAILED.value());
+    }
+
+    private static void notifyDeviceState(List<ZegoRoomCallback> callbacks, int errorCode) {
+        for (ZegoRoomCallback callback : callbacks) {
+            if (callback != null) {
+                callback.onRoomCallback(errorCode);
+            }
+        }
+    }
+
     public void setListener(ZegoUserServiceListener listener) {
         this.listener = listener;
     }
 
+    /**
+     * Get the in-room user list
+     * <p>
+     * Description: The returned list is an immutable snapshot in join order, it can be read from any thread.
+     *
+     * @return the users in the room, including the local user.
+     */
     public List<ZegoUserInfo> getUserList() {
-        return userList;
+        return userRegistry.snapshot();
     }
 
     void onConnectionStateChanged(ZIM zim, ZIMConnectionState state, ZIMConnectionEvent event,
@@ -391,8 +511,11 @@ public class ZegoUserService {
         for (ZIMMessage zimMessage : messageList) {
             if (zimMessage.type == ZIMMessageType.CUSTOM) {
                 ZIMCustomMessage customMessage = (ZIMCustomMessage) zimMessage;
-                String messageJson = new String(customMessage.message);
-                ZegoCallMessage callMessage = mGson.fromJson(messageJson, ZegoCallMessage.class);
+                ZegoCallMessage callMessage = callMessageCodec.decode(customMessage.message, fromUserID);
+                if (callMessage == null || callMessage.target == null || callMessage.content == null
+                    || callMessage.content.userInfo == null) {
+                    continue;
+                }
                 if (callMessage.target.contains(localUserInfo.userID)) {
                     ZegoUserInfo userInfo = new ZegoUserInfo();
                     userInfo.userID = callMessage.content.userInfo.userID;
@@ -412,6 +535,11 @@ public class ZegoUserService {
                             listener.onReceiveCallCanceled(userInfo, callMessage.content.cancelType);
                         }
                     } else if (callMessage.actionType == ZegoCallMessage.RESPONSE_CALL) {
+                        if (callMessage.content.responseType == ZegoResponseType.Accept) {
+                            // the callee publishes before it responds, its first frame may be here already
+                            phaseTimer().beginBefore(ZegoCallPhase.ACCEPT_TO_CONNECTED,
+                                ZegoCallPhase.FIRST_REMOTE_FRAME);
+                        }
                         if (listener != null) {
                             listener.onReceiveCallResponse(userInfo, callMessage.content.responseType);
                         }
@@ -428,9 +556,7 @@ public class ZegoUserService {
         while (iterator.hasNext()) {
             ZegoUserInfo next = iterator.next();
             Log.d(TAG, "onRoomMemberJoined() called with: joinUser = [" + next);
-            if (!userList.contains(next)) {
-                userList.add(next); // avoid duplicate
-            } else {
+            if (!userRegistry.add(next)) {
                 // if duplicate,don't notify outside
                 iterator.remove();
             }
@@ -441,10 +567,10 @@ public class ZegoUserService {
         List<ZegoUserInfo> leaveUsers = generateRoomUsers(memberList);
         for (ZegoUserInfo leaveUser : leaveUsers) {
             stopPlaying(leaveUser.userID);
-            userList.remove(leaveUser);
+            userRegistry.remove(leaveUser.userID);
         }
         Log.d(TAG, "onRoomMemberLeft: " + leaveUsers);
-        if (userList.size() <= 1 && listener != null) {
+        if (userRegistry.size() <= 1 && listener != null) {
             // only self left
             listener.onReceiveCallEnded();
         }
@@ -462,57 +588,84 @@ public class ZegoUserService {
         return roomUsers;
     }
 
+    private static CallPhaseTimer phaseTimer() {
+        return ZegoRoomManager.getInstance().phaseTimer;
+    }
+
     private String getStreamIDFromUser(String userID) {
-        String roomID = roomService.roomInfo.roomID;
-        return String.format("%s_%s_%s", roomID, userID, "main");
+        return ZegoRoomService.getStreamID(roomService.roomInfo.roomID, userID);
     }
 
     void onRoomAttributesUpdated(ZIM zim, ZIMRoomAttributesUpdateInfo info, String roomID) {
-        HashMap<String, String> roomAttributes = info.roomAttributes;
-        Log.d(TAG,
-            "onRoomAttributesUpdated() called with: zim = [" + zim + "], roomAttributes = [" + roomAttributes + "]");
-        if (info.action == ZIMRoomAttributesUpdateAction.SET) {
-            for (Entry<String, String> entry : roomAttributes.entrySet()) {
-                Log.d(TAG, "onRoomAttributesUpdated,entry : " + entry);
-                String key = entry.getKey();
-                String value = entry.getValue();
-                if (Objects.equals(key, ZegoRoomService.KEY_ROOM_INFO)) {
-                    ZegoRoomInfo roomInfo = mGson.fromJson(roomAttributes.get(key), ZegoRoomInfo.class);
-                    roomService.updateRoomInfo(roomInfo);
-                    if (roomInfo == null && listener != null) {
-                        listener.onReceiveCallEnded();
-                    }
-                } else {
-                    ZegoUserInfo attrUserInfo = mGson.fromJson(value, ZegoUserInfo.class);
-                    for (ZegoUserInfo userInfo : userList) {
-                        if (Objects.equals(userInfo.userID, localUserInfo.userID)) {
-                            // skip self
-                            continue;
-                        }
-                        if (Objects.equals(userInfo.userID, attrUserInfo.userID)) {
-                            // update user state
-                            final boolean nameChanged = Objects.equals(userInfo.userName, attrUserInfo.userName);
-                            final boolean micChanged = Objects.equals(userInfo.mic, attrUserInfo.mic);
-                            final boolean cameraChanged = Objects.equals(userInfo.camera, attrUserInfo.camera);
-                            userInfo.userName = attrUserInfo.userName;
-                            userInfo.mic = attrUserInfo.mic;
-                            userInfo.camera = attrUserInfo.camera;
-                            if (nameChanged || micChanged || cameraChanged) {
-                                if (listener != null) {
-                                    listener.onUserInfoUpdated(userInfo);
-                                }
-                            }
-                            break;
-                        }
+        ArrayList<ZIMRoomAttributesUpdateInfo> infos = new ArrayList<>(1);
+        infos.add(info);
+        onRoomAttributesBatchUpdated(zim, infos, roomID);
+    }
+
+    /**
+     * Apply a batch of room attribute changes in one pass.
+     * <p>
+     * Description: Only the last value of each key in the batch is parsed, and {@link
+     * ZegoUserServiceListener#onUserInfoUpdated} is called once per user whose state really changed.
+     */
+    void onRoomAttributesBatchUpdated(ZIM zim, ArrayList<ZIMRoomAttributesUpdateInfo> infos, String roomID) {
+        Log.d(TAG, "onRoomAttributesBatchUpdated() called with: infos = [" + infos.size() + "], roomID = [" + roomID
+            + "]");
+        // the latest value of every key, in the order the keys first appear
+        Map<String, String> latestAttributes = new LinkedHashMap<>();
+        boolean deleted = false;
+        for (ZIMRoomAttributesUpdateInfo info : infos) {
+            Log.d(TAG, "onRoomAttributesBatchUpdated,action:" + info.action + ",attributes:" + info.roomAttributes);
+            if (info.action == ZIMRoomAttributesUpdateAction.SET) {
+                if (info.roomAttributes != null) {
+                    latestAttributes.putAll(info.roomAttributes);
+                }
+            } else {
+                deleted = true;
+            }
+        }
+
+        boolean roomEnded = deleted;
+        Map<String, ZegoUserInfo> changedUsers = new LinkedHashMap<>();
+        for (Entry<String, String> entry : latestAttributes.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (Objects.equals(key, ZegoRoomService.KEY_ROOM_INFO)) {
+                ZegoRoomInfo roomInfo = mGson.fromJson(value, ZegoRoomInfo.class);
+                roomService.updateRoomInfo(roomInfo);
+                if (roomInfo == null) {
+                    roomEnded = true;
+                }
+            } else {
+                ZegoUserInfo attrUserInfo = mGson.fromJson(value, ZegoUserInfo.class);
+                if (attrUserInfo == null || Objects.equals(attrUserInfo.userID, localUserInfo.userID)) {
+                    // skip self
+                    continue;
+                }
+                ZegoUserInfo userInfo = userRegistry.get(attrUserInfo.userID);
+                if (userInfo != null) {
+                    // update user state
+                    final boolean nameChanged = !Objects.equals(userInfo.userName, attrUserInfo.userName);
+                    final boolean micChanged = userInfo.mic != attrUserInfo.mic;
+                    final boolean cameraChanged = userInfo.camera != attrUserInfo.camera;
+                    userInfo.userName = attrUserInfo.userName;
+                    userInfo.mic = attrUserInfo.mic;
+                    userInfo.camera = attrUserInfo.camera;
+                    if (nameChanged || micChanged || cameraChanged) {
+                        changedUsers.put(userInfo.userID, userInfo);
                     }
                 }
             }
-        } else {
-            if (listener != null) {
+        }
+
+        if (listener != null) {
+            for (ZegoUserInfo userInfo : changedUsers.values()) {
+                listener.onUserInfoUpdated(userInfo);
+            }
+            if (roomEnded) {
                 listener.onReceiveCallEnded();
             }
         }
-
     }
 
     public void speakerOperate(boolean open) {
@@ -541,7 +694,15 @@ public class ZegoUserService {
         }
     }
 
-    private void stopPlaying(String userID) {
+    /**
+     * Stop playing video streams data
+     * <p>
+     * Description: This can be used to stop the preview of the local user, or the stream playing of a remote user.
+     * Call this method at: After {@link #startPlaying}
+     *
+     * @param userID refers to the ID of the user you want to stop playing.
+     */
+    public void stopPlaying(String userID) {
         if (Objects.equals(localUserInfo.userID, userID)) {
             ZegoExpressEngine.getEngine().stopPreview();
         } else {
@@ -9,13 +9,18 @@ import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * if enum class construct with int value ,and need to
  * serialized to int,use this.
+ * <p>
+ * The int value of every constant is read by reflection once, when the adapter is created. Reading a numeric token
+ * is then a table lookup without allocation, string tokens (either the number or the constant name) are resolved by
+ * a hash lookup.
  */
 public class CustomTypeAdapterFactory implements TypeAdapterFactory {
 
@@ -25,82 +30,140 @@ public class CustomTypeAdapterFactory implements TypeAdapterFactory {
     public static final String LONG = "long";
     public static final String BOOLEAN = "boolean";
 
+    // value range above which the reverse table is searched instead of indexed
+    private static final int MAX_DENSE_SPAN = 256;
+
     @Override
     public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
         Class<T> rawType = (Class<T>) type.getRawType();
-        if (rawType.isEnum()) {
-            Map<T, TypeAndValue> map = new HashMap<>();
-            for (T enumConstant : rawType.getEnumConstants()) {
-                if (enumConstant == null) {
-                    continue;
-                }
-                for (Field field : enumConstant.getClass().getDeclaredFields()) {
-                    if (INT.equals(field.getType().getName())) {
-                        field.setAccessible(true);
-                        try {
-                            int intValue = field.getInt(enumConstant);
-                            TypeAndValue data = new TypeAndValue(INT, intValue);
-                            map.put(enumConstant, data);
-                        } catch (IllegalAccessException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
+        if (!rawType.isEnum()) {
+            return null;
+        }
+        Field valueField = findIntField(rawType);
+        if (valueField == null) {
+            // no int value to serialize, let gson use the constant names
+            return null;
+        }
+        T[] constants = rawType.getEnumConstants();
+        int[] values = new int[constants.length];
+        try {
+            for (int i = 0; i < constants.length; i++) {
+                values[i] = valueField.getInt(constants[i]);
             }
-            return new TypeAdapter<T>() {
-                public void write(JsonWriter out, T value) throws IOException {
-                    if (value == null) {
-                        out.nullValue();
-                    } else {
-                        TypeAndValue typeAndValue = map.get(value);
-                        if (INT.equals(typeAndValue.type)) {
-                            out.value((int) typeAndValue.value);
-                        }
-                    }
-                }
-
-                public T read(JsonReader reader) throws IOException {
-                    if (reader.peek() == JsonToken.NULL) {
-                        reader.nextNull();
-                    } else {
-                        T enumConstant = null;
-                        String string = reader.nextString();
-                        for (Entry<T, TypeAndValue> entry : map.entrySet()) {
-                            T key = entry.getKey();
-                            TypeAndValue typeAndValue = entry.getValue();
-                            if (typeAndValue.value.toString().equals(string)) {
-                                enumConstant = key;
-                                break;
-                            }
-                        }
-                        return enumConstant;
-                    }
-                    return null;
-                }
-            };
-        } else {
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
             return null;
         }
+        return new EnumAdapter<>(constants, values);
+    }
+
+    private static Field findIntField(Class<?> enumClass) {
+        for (Field field : enumClass.getDeclaredFields()) {
+            if (INT.equals(field.getType().getName()) && !Modifier.isStatic(field.getModifiers())
+                && !field.isSynthetic()) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        return null;
     }
 
-    static class TypeAndValue {
+    static class EnumAdapter<T> extends TypeAdapter<T> {
+
+        // int value of each constant, indexed by ordinal
+        private final int[] values;
+        // dense reverse table indexed by (value - minValue), null if the values are too sparse
+        private final T[] denseTable;
+        private final int minValue;
+        // sparse reverse table, sortedValues[i] maps to sortedConstants[i]
+        private final int[] sortedValues;
+        private final T[] sortedConstants;
+        // fallback for string tokens, keyed by both the value and the constant name
+        private final Map<String, T> byString;
+
+        @SuppressWarnings("unchecked")
+        EnumAdapter(T[] constants, int[] values) {
+            this.values = values;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int value : values) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            minValue = min;
 
-        // INT,STRING,LONG,etc.
-        public String type;
-        // enum's field's value
-        public Object value;
+            byString = new HashMap<>(constants.length * 4);
+            for (int i = 0; i < constants.length; i++) {
+                byString.put(((Enum<?>) constants[i]).name(), constants[i]);
+            }
+            // put values last, so a numeric string always resolves by value, and backwards so the first constant
+            // wins on duplicated values, as it does for numbers
+            for (int i = constants.length - 1; i >= 0; i--) {
+                byString.put(String.valueOf(values[i]), constants[i]);
+            }
 
-        public TypeAndValue(String type, Object value) {
-            this.type = type;
-            this.value = value;
+            if (constants.length > 0 && (long) max - min < MAX_DENSE_SPAN) {
+                denseTable = (T[]) new Object[max - min + 1];
+                // iterate backwards so the first constant wins on duplicated values
+                for (int i = constants.length - 1; i >= 0; i--) {
+                    denseTable[values[i] - min] = constants[i];
+                }
+                sortedValues = null;
+                sortedConstants = null;
+            } else {
+                denseTable = null;
+                Integer[] order = new Integer[constants.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Integer.compare(values[a], values[b]));
+                sortedValues = new int[constants.length];
+                sortedConstants = (T[]) new Object[constants.length];
+                for (int i = 0; i < order.length; i++) {
+                    sortedValues[i] = values[order[i]];
+                    sortedConstants[i] = constants[order[i]];
+                }
+            }
         }
 
         @Override
-        public String toString() {
-            return "TypeAndValue{" +
-                "type='" + type + '\'' +
-                ", value=" + value +
-                '}';
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(values[((Enum<?>) value).ordinal()]);
+            }
+        }
+
+        @Override
+        public T read(JsonReader reader) throws IOException {
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            } else if (token == JsonToken.NUMBER) {
+                try {
+                    return forValue(reader.nextInt());
+                } catch (NumberFormatException e) {
+                    // a fraction or a number out of the int range matches no constant, the reader kept it buffered
+                    reader.nextString();
+                    return null;
+                }
+            } else {
+                return byString.get(reader.nextString());
+            }
+        }
+
+        /**
+         * @return the constant with the given int value, or null if there is none
+         */
+        T forValue(int value) {
+            if (denseTable != null) {
+                int index = value - minValue;
+                return index >= 0 && index < denseTable.length ? denseTable[index] : null;
+            }
+            int index = Arrays.binarySearch(sortedValues, value);
+            return index >= 0 ? sortedConstants[index] : null;
         }
     }
 }
@@ -0,0 +1,25 @@
+package im.zego.callsdk.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The Gson instance shared by all services of the SDK, with the model adapters registered.
+ */
+public final class GsonHelper {
+
+    private static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+        .registerTypeAdapterFactory(new CustomTypeAdapterFactory())
+        .create();
+
+    private GsonHelper() {
+    }
+
+    /**
+     * @return the shared Gson instance, it is thread safe and can be used from any thread.
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+}
@@ -0,0 +1,350 @@
+package im.zego.callsdk.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.model.ZegoUserInfo;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written streaming adapters for the classes in {@code im.zego.callsdk.model}, so Gson never binds them by
+ * reflection. Field names must stay in sync with the {@code @SerializedName} annotations of the models, which are
+ * kept for documentation and for any Gson instance created without this factory.
+ * <p>
+ * Enum fields are delegated to {@code gson.getAdapter}, so they are still handled by
+ * {@link CustomTypeAdapterFactory}.
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == ZegoUserInfo.class) {
+            return (TypeAdapter<T>) new UserInfoAdapter();
+        } else if (rawType == ZegoRoomInfo.class) {
+            return (TypeAdapter<T>) new RoomInfoAdapter();
+        } else if (rawType == ZegoCallMessage.class) {
+            return (TypeAdapter<T>) new CallMessageAdapter(gson.getAdapter(ContentBean.class));
+        } else if (rawType == ContentBean.class) {
+            return (TypeAdapter<T>) new ContentAdapter(gson.getAdapter(UserInfoBean.class),
+                gson.getAdapter(ZegoResponseType.class), gson.getAdapter(ZegoCallType.class),
+                gson.getAdapter(ZegoCancelType.class));
+        } else if (rawType == UserInfoBean.class) {
+            return (TypeAdapter<T>) new UserInfoBeanAdapter();
+        }
+        return null;
+    }
+
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static class UserInfoAdapter extends TypeAdapter<ZegoUserInfo> {
+
+        @Override
+        public void write(JsonWriter out, ZegoUserInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (value.userID != null) {
+                out.name("id").value(value.userID);
+            }
+            if (value.userName != null) {
+                out.name("name").value(value.userName);
+            }
+            out.name("mic").value(value.mic);
+            out.name("camera").value(value.camera);
+            out.endObject();
+        }
+
+        @Override
+        public ZegoUserInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ZegoUserInfo userInfo = new ZegoUserInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        userInfo.userID = nextStringOrNull(in);
+                        break;
+                    case "name":
+                        userInfo.userName = nextStringOrNull(in);
+                        break;
+                    case "mic":
+                        userInfo.mic = in.nextBoolean();
+                        break;
+                    case "camera":
+                        userInfo.camera = in.nextBoolean();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return userInfo;
+        }
+    }
+
+    private static class RoomInfoAdapter extends TypeAdapter<ZegoRoomInfo> {
+
+        @Override
+        public void write(JsonWriter out, ZegoRoomInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (value.roomID != null) {
+                out.name("id").value(value.roomID);
+            }
+            if (value.roomName != null) {
+                out.name("name").value(value.roomName);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ZegoRoomInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ZegoRoomInfo roomInfo = new ZegoRoomInfo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        roomInfo.roomID = nextStringOrNull(in);
+                        break;
+                    case "name":
+                        roomInfo.roomName = nextStringOrNull(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return roomInfo;
+        }
+    }
+
+    private static class CallMessageAdapter extends TypeAdapter<ZegoCallMessage> {
+
+        private final TypeAdapter<ContentBean> contentAdapter;
+
+        CallMessageAdapter(TypeAdapter<ContentBean> contentAdapter) {
+            this.contentAdapter = contentAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, ZegoCallMessage value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("action_type").value(value.actionType);
+            if (value.target != null) {
+                out.name("target").beginArray();
+                for (String userID : value.target) {
+                    out.value(userID);
+                }
+                out.endArray();
+            }
+            if (value.content != null) {
+                out.name("content");
+                contentAdapter.write(out, value.content);
+            }
+            out.name("codec_version").value(value.codecVersion);
+            out.endObject();
+        }
+
+        @Override
+        public ZegoCallMessage read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ZegoCallMessage message = new ZegoCallMessage();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "action_type":
+                        message.actionType = in.nextInt();
+                        break;
+                    case "target":
+                        message.target = readTarget(in);
+                        break;
+                    case "content":
+                        message.content = contentAdapter.read(in);
+                        break;
+                    case "codec_version":
+                        message.codecVersion = in.nextInt();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return message;
+        }
+
+        private static List<String> readTarget(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<String> target = new ArrayList<>(1);
+            in.beginArray();
+            while (in.hasNext()) {
+                target.add(nextStringOrNull(in));
+            }
+            in.endArray();
+            return target;
+        }
+    }
+
+    private static class ContentAdapter extends TypeAdapter<ContentBean> {
+
+        private final TypeAdapter<UserInfoBean> userInfoAdapter;
+        private final TypeAdapter<ZegoResponseType> responseTypeAdapter;
+        private final TypeAdapter<ZegoCallType> callTypeAdapter;
+        private final TypeAdapter<ZegoCancelType> cancelTypeAdapter;
+
+        ContentAdapter(TypeAdapter<UserInfoBean> userInfoAdapter, TypeAdapter<ZegoResponseType> responseTypeAdapter,
+            TypeAdapter<ZegoCallType> callTypeAdapter, TypeAdapter<ZegoCancelType> cancelTypeAdapter) {
+            this.userInfoAdapter = userInfoAdapter;
+            this.responseTypeAdapter = responseTypeAdapter;
+            this.callTypeAdapter = callTypeAdapter;
+            this.cancelTypeAdapter = cancelTypeAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, ContentBean value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (value.userInfo != null) {
+                out.name("user_info");
+                userInfoAdapter.write(out, value.userInfo);
+            }
+            if (value.responseType != null) {
+                out.name("response_type");
+                responseTypeAdapter.write(out, value.responseType);
+            }
+            if (value.callType != null) {
+                out.name("call_type");
+                callTypeAdapter.write(out, value.callType);
+            }
+            if (value.cancelType != null) {
+                out.name("cancel_type");
+                cancelTypeAdapter.write(out, value.cancelType);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ContentBean read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ContentBean content = new ContentBean();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "user_info":
+                        content.userInfo = userInfoAdapter.read(in);
+                        break;
+                    case "response_type":
+                        content.responseType = responseTypeAdapter.read(in);
+                        break;
+                    case "call_type":
+                        content.callType = callTypeAdapter.read(in);
+                        break;
+                    case "cancel_type":
+                        content.cancelType = cancelTypeAdapter.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return content;
+        }
+    }
+
+    private static class UserInfoBeanAdapter extends TypeAdapter<UserInfoBean> {
+
+        @Override
+        public void write(JsonWriter out, UserInfoBean value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (value.userID != null) {
+                out.name("id").value(value.userID);
+            }
+            if (value.userName != null) {
+                out.name("name").value(value.userName);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public UserInfoBean read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String userID = null;
+            String userName = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        userID = nextStringOrNull(in);
+                        break;
+                    case "name":
+                        userName = nextStringOrNull(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new UserInfoBean(userID, userName);
+        }
+    }
+}
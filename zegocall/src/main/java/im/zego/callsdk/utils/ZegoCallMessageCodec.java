@@ -0,0 +1,293 @@
+package im.zego.callsdk.utils;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encode and decode {@link ZegoCallMessage} for the ZIM custom message payload.
+ * <p>
+ * Description: Peers that only know the JSON form keep receiving JSON. Every JSON message we send carries
+ * {@code codec_version}, and once a peer announces it (or sends us a binary frame) we switch to the binary form for
+ * that peer. Binary frames start with {@link #MAGIC}, which can never start a JSON document, so the receive side
+ * detects the form from the first byte.
+ * <pre>
+ * frame   := MAGIC version:u8 actionType:u8 targetCount:u16 string* hasContent:u8 [content]
+ * content := hasUser:u8 [string(id) string(name)] responseType:u8 callType:u8 cancelType:u8
+ * string  := length:u16 utf8-bytes          (length 0xFFFF means null)
+ * </pre>
+ * Enum fields are written as their int value, 0 means null. All integers are big-endian.
+ */
+public class ZegoCallMessageCodec {
+
+    private static final String TAG = "CallMessageCodec";
+
+    public static final int VERSION = 1;
+    public static final byte MAGIC = (byte) 0xCA;
+
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int MAX_STRING_LENGTH = 0xFFFE;
+
+    private static final ZegoCallType[] CALL_TYPES = ZegoCallType.values();
+    private static final ZegoCancelType[] CANCEL_TYPES = ZegoCancelType.values();
+    private static final ZegoResponseType[] RESPONSE_TYPES = ZegoResponseType.values();
+
+    private final Gson gson;
+    // peers known to decode binary frames of our VERSION
+    private final Set<String> binaryPeers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    public ZegoCallMessageCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * Encode a message for the given peer, binary if the peer has announced support, JSON otherwise.
+     *
+     * @param message the message to send
+     * @param peerID  the receiver's userID
+     * @return payload for {@code ZIMCustomMessage.message}
+     */
+    public byte[] encode(ZegoCallMessage message, String peerID) {
+        message.codecVersion = VERSION;
+        if (peerID != null && binaryPeers.contains(peerID)) {
+            byte[] frame = encodeBinary(message);
+            if (frame != null) {
+                return frame;
+            }
+        }
+        return gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode a received payload of either form, and remember whether the sender can receive binary frames.
+     *
+     * @param data       payload of {@code ZIMCustomMessage.message}
+     * @param fromUserID the sender's userID
+     * @return the decoded message, or null if the payload is malformed
+     */
+    public ZegoCallMessage decode(byte[] data, String fromUserID) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        ZegoCallMessage message;
+        if (data[0] == MAGIC) {
+            message = decodeBinary(data);
+        } else {
+            try {
+                message = gson.fromJson(new String(data, StandardCharsets.UTF_8), ZegoCallMessage.class);
+            } catch (JsonParseException e) {
+                Log.w(TAG, "decode: invalid json message from " + fromUserID, e);
+                message = null;
+            }
+        }
+        if (message != null && fromUserID != null) {
+            if (message.codecVersion >= VERSION) {
+                binaryPeers.add(fromUserID);
+            } else {
+                // peer downgraded, e.g. reinstalled an older app
+                binaryPeers.remove(fromUserID);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Forget negotiated peers, call this when the local user logs out.
+     */
+    public void reset() {
+        binaryPeers.clear();
+    }
+
+    /**
+     * @return the binary frame, or null if a string is too long to be length-prefixed with u16
+     */
+    public static byte[] encodeBinary(ZegoCallMessage message) {
+        List<String> target = message.target == null ? Collections.emptyList() : message.target;
+        ContentBean content = message.content;
+        UserInfoBean userInfo = content == null ? null : content.userInfo;
+
+        byte[][] targetBytes = new byte[target.size()][];
+        int size = 5 + 1;
+        for (int i = 0; i < targetBytes.length; i++) {
+            targetBytes[i] = utf8(target.get(i));
+            if (length(targetBytes[i]) > MAX_STRING_LENGTH) {
+                return null;
+            }
+            size += 2 + length(targetBytes[i]);
+        }
+        byte[] userIDBytes = null;
+        byte[] userNameBytes = null;
+        if (content != null) {
+            size += 1 + 3;
+            if (userInfo != null) {
+                userIDBytes = utf8(userInfo.userID);
+                userNameBytes = utf8(userInfo.userName);
+                size += 4 + length(userIDBytes) + length(userNameBytes);
+            }
+        }
+        if (target.size() > MAX_STRING_LENGTH || length(userIDBytes) > MAX_STRING_LENGTH
+            || length(userNameBytes) > MAX_STRING_LENGTH) {
+            return null;
+        }
+
+        byte[] frame = new byte[size];
+        int pos = 0;
+        frame[pos++] = MAGIC;
+        frame[pos++] = VERSION;
+        frame[pos++] = (byte) message.actionType;
+        pos = putShort(frame, pos, targetBytes.length);
+        for (byte[] bytes : targetBytes) {
+            pos = putString(frame, pos, bytes);
+        }
+        frame[pos++] = (byte) (content == null ? 0 : 1);
+        if (content != null) {
+            frame[pos++] = (byte) (userInfo == null ? 0 : 1);
+            if (userInfo != null) {
+                pos = putString(frame, pos, userIDBytes);
+                pos = putString(frame, pos, userNameBytes);
+            }
+            frame[pos++] = (byte) (content.responseType == null ? 0 : content.responseType.getValue());
+            frame[pos++] = (byte) (content.callType == null ? 0 : content.callType.getValue());
+            frame[pos] = (byte) (content.cancelType == null ? 0 : content.cancelType.getValue());
+        }
+        return frame;
+    }
+
+    /**
+     * @return the decoded message, or null if the frame is malformed or of an unknown version
+     */
+    public static ZegoCallMessage decodeBinary(byte[] frame) {
+        Reader reader = new Reader(frame);
+        try {
+            if (reader.u8() != (MAGIC & 0xFF)) {
+                return null;
+            }
+            int version = reader.u8();
+            if (version != VERSION) {
+                Log.w(TAG, "decodeBinary: unsupported version " + version);
+                return null;
+            }
+            ZegoCallMessage message = new ZegoCallMessage();
+            message.codecVersion = version;
+            message.actionType = reader.u8();
+            int targetCount = reader.u16();
+            List<String> target = new ArrayList<>(targetCount);
+            for (int i = 0; i < targetCount; i++) {
+                target.add(reader.string());
+            }
+            message.target = target;
+            if (reader.u8() != 0) {
+                ContentBean content = new ContentBean();
+                if (reader.u8() != 0) {
+                    String userID = reader.string();
+                    String userName = reader.string();
+                    content.userInfo = new UserInfoBean(userID, userName);
+                }
+                content.responseType = responseType(reader.u8());
+                content.callType = callType(reader.u8());
+                content.cancelType = cancelType(reader.u8());
+                message.content = content;
+            }
+            return message;
+        } catch (IndexOutOfBoundsException e) {
+            Log.w(TAG, "decodeBinary: truncated frame, length " + frame.length);
+            return null;
+        }
+    }
+
+    private static ZegoCallType callType(int value) {
+        for (ZegoCallType type : CALL_TYPES) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static ZegoCancelType cancelType(int value) {
+        for (ZegoCancelType type : CANCEL_TYPES) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static ZegoResponseType responseType(int value) {
+        for (ZegoResponseType type : RESPONSE_TYPES) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static int putShort(byte[] frame, int pos, int value) {
+        frame[pos] = (byte) (value >>> 8);
+        frame[pos + 1] = (byte) value;
+        return pos + 2;
+    }
+
+    private static int putString(byte[] frame, int pos, byte[] bytes) {
+        if (bytes == null) {
+            return putShort(frame, pos, NULL_STRING);
+        }
+        pos = putShort(frame, pos, bytes.length);
+        System.arraycopy(bytes, 0, frame, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static class Reader {
+
+        private final byte[] frame;
+        private int pos;
+
+        Reader(byte[] frame) {
+            this.frame = frame;
+        }
+
+        int u8() {
+            if (pos >= frame.length) {
+                throw new IndexOutOfBoundsException();
+            }
+            return frame[pos++] & 0xFF;
+        }
+
+        int u16() {
+            return (u8() << 8) | u8();
+        }
+
+        String string() {
+            int length = u16();
+            if (length == NULL_STRING) {
+                return null;
+            }
+            if (pos + length > frame.length) {
+                throw new IndexOutOfBoundsException();
+            }
+            String value = new String(frame, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Time and allocation of encoding and decoding a token sized input with {@link Base64} and with
+ * {@link java.util.Base64}, excluded from the unit tests, run it with
+ * {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*Base64Benchmark'}.
+ * <p>
+ * On HotSpot the JDK encoder is an intrinsic, which ART does not have, so only the allocations compare the same way
+ * on a device.
+ */
+public class Base64Benchmark {
+
+    private static final int ITERATIONS = 500_000;
+    private static final int WARMUP_ROUNDS = 3;
+    // the binary part of a "04" token
+    private static final int TOKEN_BYTES = 220;
+
+    private static int sink;
+
+    private interface Operation {
+
+        int run();
+    }
+
+    /**
+     * ns and allocated bytes per operation.
+     */
+    private static class Cost {
+
+        final long nanos;
+        final long bytes;
+
+        Cost(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return nanos + " ns/op, " + bytes + " B/op";
+        }
+    }
+
+    private static Cost measure(Operation operation) {
+        Object threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("no allocation counter on this JVM", threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        long thread = Thread.currentThread().getId();
+        long bytes = bean.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += operation.run();
+        }
+        long nanos = System.nanoTime() - start;
+        return new Cost(nanos / ITERATIONS, (bean.getThreadAllocatedBytes(thread) - bytes) / ITERATIONS);
+    }
+
+    @Test
+    public void tokenSizedInput() {
+        byte[] src = new byte[TOKEN_BYTES];
+        new Random(25).nextBytes(src);
+        Base64.Encoder encoder = Base64.getEncoder();
+        Base64.Decoder decoder = Base64.getDecoder();
+        java.util.Base64.Encoder jdkEncoder = java.util.Base64.getEncoder();
+        java.util.Base64.Decoder jdkDecoder = java.util.Base64.getDecoder();
+        String token = "04" + jdkEncoder.encodeToString(src);
+        byte[] decoded = new byte[TOKEN_BYTES];
+        ByteBuffer directSrc = ByteBuffer.allocateDirect(TOKEN_BYTES);
+        directSrc.put(src).flip();
+        ByteBuffer directDst = ByteBuffer.allocateDirect(encoder.encodedLength(TOKEN_BYTES));
+        assertEquals(token, encoder.encodeToString("04", src, 0, src.length));
+
+        Operation prefixed = () -> encoder.encodeToString("04", src, 0, src.length).length();
+        Operation concatenated = () -> ("04" + encoder.encodeToString(src)).length();
+        Operation jdkConcatenated = () -> ("04" + jdkEncoder.encodeToString(src)).length();
+        Operation direct = () -> {
+            directSrc.rewind();
+            directDst.clear();
+            return encoder.encode(directSrc, directDst);
+        };
+        Operation decodeRange = () -> decoder.decode(token, 2, token.length(), decoded, 0);
+        Operation jdkDecodeSubstring = () -> jdkDecoder.decode(token.substring(2)).length;
+        Operation[] operations = {prefixed, concatenated, jdkConcatenated, direct, decodeRange, jdkDecodeSubstring};
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (Operation operation : operations) {
+                measure(operation);
+            }
+        }
+        Cost[] costs = new Cost[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            costs[i] = measure(operations[i]);
+        }
+        System.out.println("Base64 " + TOKEN_BYTES + " bytes: encodeToString(prefix) " + costs[0]
+            + "; \"04\" + encodeToString " + costs[1] + "; \"04\" + java.util encodeToString " + costs[2]
+            + "; direct ByteBuffer encode " + costs[3] + "; decode(token, 2, end) " + costs[4]
+            + "; java.util decode(substring) " + costs[5]);
+        assertArrayEquals(src, decoded);
+        assertTrue("prefixed " + costs[0].bytes + " B/op, concatenated " + costs[1].bytes + " B/op",
+            costs[0].bytes < costs[1].bytes);
+        assertTrue("direct encode " + costs[3].bytes + " B/op", costs[3].bytes < costs[0].bytes);
+        assertTrue("decode range " + costs[4].bytes + " B/op, substring " + costs[5].bytes + " B/op",
+            costs[4].bytes < costs[5].bytes);
+    }
+}
@@ -0,0 +1,376 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Checks every encode and decode variant of {@link Base64} against {@link java.util.Base64}, for heap and direct
+ * buffers, offsets, undersized targets and prefixes.
+ */
+public class Base64Test {
+
+    private static final int[] LENGTHS = {0, 1, 2, 3, 4, 5, 56, 57, 58, 76, 220, 1023, 3000};
+    private static final byte[] SEPARATOR = {'#', '\n'};
+
+    private final Random random = new Random(25);
+
+    private static Base64.Encoder[] encoders() {
+        return new Base64.Encoder[]{
+            Base64.getEncoder(), Base64.getUrlEncoder(), Base64.getMimeEncoder(),
+            Base64.getEncoder().withoutPadding(), Base64.getUrlEncoder().withoutPadding(),
+            Base64.getMimeEncoder(8, SEPARATOR)};
+    }
+
+    private static java.util.Base64.Encoder[] jdkEncoders() {
+        return new java.util.Base64.Encoder[]{
+            java.util.Base64.getEncoder(), java.util.Base64.getUrlEncoder(), java.util.Base64.getMimeEncoder(),
+            java.util.Base64.getEncoder().withoutPadding(), java.util.Base64.getUrlEncoder().withoutPadding(),
+            java.util.Base64.getMimeEncoder(8, SEPARATOR)};
+    }
+
+    // the decoder of each encoder above
+    private static Base64.Decoder[] decoders() {
+        return new Base64.Decoder[]{
+            Base64.getDecoder(), Base64.getUrlDecoder(), Base64.getMimeDecoder(),
+            Base64.getDecoder(), Base64.getUrlDecoder(), Base64.getMimeDecoder()};
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    /**
+     * @return a heap buffer whose array has bytes before and after the content, so its array offset is not 0.
+     */
+    private static ByteBuffer sliced(byte[] bytes) {
+        byte[] array = new byte[bytes.length + 10];
+        Arrays.fill(array, (byte) '!');
+        System.arraycopy(bytes, 0, array, 3, bytes.length);
+        return ByteBuffer.wrap(array, 3, bytes.length).slice();
+    }
+
+    private static ByteBuffer[] sources(byte[] bytes) {
+        return new ByteBuffer[]{ByteBuffer.wrap(bytes), direct(bytes), sliced(bytes)};
+    }
+
+    private static ByteBuffer[] targets(int capacity) {
+        return new ByteBuffer[]{ByteBuffer.allocate(capacity), ByteBuffer.allocateDirect(capacity),
+            ByteBuffer.wrap(new byte[capacity + 7], 2, capacity).slice()};
+    }
+
+    private static byte[] remainingOf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static void assertIllegalArgument(Runnable call) {
+        try {
+            call.run();
+            fail("no IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void encodesLikeTheJdk() {
+        Base64.Encoder[] encoders = encoders();
+        java.util.Base64.Encoder[] jdkEncoders = jdkEncoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] src = randomBytes(length);
+                byte[] expected = jdkEncoders[e].encode(src);
+
+                assertArrayEquals(expected, encoders[e].encode(src));
+                assertEquals(jdkEncoders[e].encodeToString(src), encoders[e].encodeToString(src));
+                assertEquals(expected.length, encoders[e].encodedLength(length));
+                byte[] dst = new byte[expected.length];
+                assertEquals(expected.length, encoders[e].encode(src, dst));
+                assertArrayEquals(expected, dst);
+            }
+        }
+    }
+
+    @Test
+    public void encodesRangesAtOffsets() {
+        Base64.Encoder[] encoders = encoders();
+        java.util.Base64.Encoder[] jdkEncoders = jdkEncoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] src = randomBytes(length + 9);
+                int srcOff = random.nextInt(10);
+                byte[] expected = jdkEncoders[e].encode(Arrays.copyOfRange(src, srcOff, srcOff + length));
+
+                byte[] dst = new byte[expected.length + 12];
+                Arrays.fill(dst, (byte) '~');
+                assertEquals(expected.length, encoders[e].encode(src, srcOff, length, dst, 5));
+                assertArrayEquals(expected, Arrays.copyOfRange(dst, 5, 5 + expected.length));
+                assertEquals('~', dst[4]);
+                assertEquals('~', dst[5 + expected.length]);
+
+                char[] chars = new char[expected.length + 12];
+                Arrays.fill(chars, '~');
+                assertEquals(expected.length, encoders[e].encode(src, srcOff, length, chars, 7));
+                assertEquals(new String(expected, StandardCharsets.ISO_8859_1),
+                    new String(chars, 7, expected.length));
+                assertEquals('~', chars[6]);
+                assertEquals('~', chars[7 + expected.length]);
+            }
+        }
+    }
+
+    @Test
+    public void encodesByteBuffers() {
+        Base64.Encoder[] encoders = encoders();
+        java.util.Base64.Encoder[] jdkEncoders = jdkEncoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] bytes = randomBytes(length);
+                byte[] expected = jdkEncoders[e].encode(bytes);
+                for (ByteBuffer src : sources(bytes)) {
+                    assertArrayEquals(expected, remainingOf(encoders[e].encode(src.duplicate())));
+                    for (ByteBuffer dst : targets(expected.length + 4)) {
+                        ByteBuffer in = src.duplicate();
+                        dst.position(3);
+                        assertEquals(expected.length, encoders[e].encode(in, dst));
+                        assertEquals(0, in.remaining());
+                        assertEquals(3 + expected.length, dst.position());
+                        dst.flip().position(3);
+                        assertArrayEquals(expected, remainingOf(dst));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void encodesIntoCharBuffers() {
+        Base64.Encoder[] encoders = encoders();
+        java.util.Base64.Encoder[] jdkEncoders = jdkEncoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] bytes = randomBytes(length);
+                String expected = jdkEncoders[e].encodeToString(bytes);
+                CharBuffer[] targets = {
+                    CharBuffer.allocate(expected.length() + 2),
+                    CharBuffer.wrap(new char[expected.length() + 9], 4, expected.length() + 2).slice(),
+                    // no array
+                    ByteBuffer.allocateDirect(2 * expected.length() + 4).asCharBuffer()};
+                for (ByteBuffer src : sources(bytes)) {
+                    for (CharBuffer dst : targets) {
+                        dst.clear().position(1);
+                        ByteBuffer in = src.duplicate();
+                        assertEquals(expected.length(), encoders[e].encode(in, dst));
+                        assertEquals(0, in.remaining());
+                        assertEquals(1 + expected.length(), dst.position());
+                        dst.flip().position(1);
+                        assertEquals(expected, dst.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void encodesWithAPrefix() {
+        Base64.Encoder[] encoders = encoders();
+        java.util.Base64.Encoder[] jdkEncoders = jdkEncoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] src = randomBytes(length + 6);
+                for (String prefix : new String[]{"", "04", "éÿ\u0000prefix"}) {
+                    String expected = prefix + jdkEncoders[e].encodeToString(Arrays.copyOfRange(src, 2, 2 + length));
+                    assertEquals(expected, encoders[e].encodeToString(prefix, src, 2, length));
+                }
+            }
+        }
+        assertIllegalArgument(() -> Base64.getEncoder().encodeToString("€", new byte[3], 0, 3));
+    }
+
+    @Test
+    public void decodesLikeTheJdk() {
+        Base64.Encoder[] encoders = encoders();
+        Base64.Decoder[] decoders = decoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] expected = randomBytes(length);
+                byte[] encoded = encoders[e].encode(expected);
+                String string = new String(encoded, StandardCharsets.ISO_8859_1);
+
+                assertArrayEquals(expected, decoders[e].decode(encoded));
+                assertArrayEquals(expected, decoders[e].decode(string));
+                byte[] dst = new byte[length];
+                assertEquals(length, decoders[e].decode(encoded, dst));
+                assertArrayEquals(expected, dst);
+                if (e < 2) {
+                    assertEquals(length, decoders[e].decodedLength(encoded, 0, encoded.length));
+                    assertEquals(length, decoders[e].decodedLength(string, 0, string.length()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decodesRangesAtOffsets() {
+        Base64.Encoder[] encoders = encoders();
+        Base64.Decoder[] decoders = decoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] expected = randomBytes(length);
+                String encoded = "xx" + encoders[e].encodeToString(expected) + "yyy";
+                byte[] src = encoded.getBytes(StandardCharsets.ISO_8859_1);
+                int end = encoded.length() - 3;
+
+                byte[] dst = new byte[length + 8];
+                Arrays.fill(dst, (byte) '~');
+                assertEquals(length, decoders[e].decode(src, 2, end - 2, dst, 4));
+                assertArrayEquals(expected, Arrays.copyOfRange(dst, 4, 4 + length));
+                assertEquals('~', dst[3]);
+                assertEquals('~', dst[4 + length]);
+
+                Arrays.fill(dst, (byte) '~');
+                assertEquals(length, decoders[e].decode(encoded, 2, end, dst, 1));
+                assertArrayEquals(expected, Arrays.copyOfRange(dst, 1, 1 + length));
+                assertEquals(length, decoders[e].decode(new StringBuilder(encoded), 2, end, dst, 0));
+                assertArrayEquals(expected, Arrays.copyOf(dst, length));
+            }
+        }
+    }
+
+    @Test
+    public void decodesByteBuffers() {
+        Base64.Encoder[] encoders = encoders();
+        Base64.Decoder[] decoders = decoders();
+        for (int e = 0; e < encoders.length; e++) {
+            for (int length : LENGTHS) {
+                byte[] expected = randomBytes(length);
+                byte[] encoded = encoders[e].encode(expected);
+                for (ByteBuffer src : sources(encoded)) {
+                    assertArrayEquals(expected, remainingOf(decoders[e].decode(src.duplicate())));
+                    for (ByteBuffer dst : targets(length + 3)) {
+                        ByteBuffer in = src.duplicate();
+                        dst.position(2);
+                        assertEquals(length, decoders[e].decode(in, dst));
+                        assertEquals(0, in.remaining());
+                        assertEquals(2 + length, dst.position());
+                        dst.flip().position(2);
+                        assertArrayEquals(expected, remainingOf(dst));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUndersizedTargets() {
+        byte[] src = randomBytes(30);
+        byte[] encoded = java.util.Base64.getEncoder().encode(src);
+        Base64.Encoder encoder = Base64.getEncoder();
+        Base64.Decoder decoder = Base64.getDecoder();
+
+        byte[] bytes = new byte[encoded.length + 1];
+        assertIllegalArgument(() -> encoder.encode(src, 0, src.length, bytes, 2));
+        assertArrayEquals(new byte[bytes.length], bytes);
+        char[] chars = new char[encoded.length + 1];
+        assertIllegalArgument(() -> encoder.encode(src, 0, src.length, chars, 2));
+        assertArrayEquals(new char[chars.length], chars);
+        assertIllegalArgument(() -> encoder.encode(src, new byte[encoded.length - 1]));
+
+        for (ByteBuffer in : sources(src)) {
+            for (ByteBuffer out : targets(encoded.length - 1)) {
+                assertIllegalArgument(() -> encoder.encode(in, out));
+                assertEquals(0, in.position());
+                assertEquals(0, out.position());
+            }
+            CharBuffer charOut = CharBuffer.allocate(encoded.length - 1);
+            assertIllegalArgument(() -> encoder.encode(in, charOut));
+            assertEquals(0, in.position());
+            assertEquals(0, charOut.position());
+        }
+
+        assertIllegalArgument(() -> decoder.decode(encoded, 0, encoded.length, new byte[src.length + 2], 3));
+        assertIllegalArgument(() -> decoder.decode(new String(encoded, StandardCharsets.ISO_8859_1), 0,
+            encoded.length, new byte[src.length - 1], 0));
+        assertIllegalArgument(() -> decoder.decode(encoded, new byte[src.length - 1]));
+        for (ByteBuffer in : sources(encoded)) {
+            for (ByteBuffer out : targets(src.length - 1)) {
+                assertIllegalArgument(() -> decoder.decode(in, out));
+                assertEquals(0, in.position());
+                assertEquals(0, out.position());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsRangesOutOfBounds() {
+        byte[] src = new byte[10];
+        byte[] dst = new byte[100];
+        for (int[] range : new int[][]{{-1, 5}, {0, 11}, {8, 3}, {5, -1}}) {
+            try {
+                Base64.getEncoder().encode(src, range[0], range[1], dst, 0);
+                fail(Arrays.toString(range));
+            } catch (IndexOutOfBoundsException expected) {
+            }
+            try {
+                Base64.getDecoder().decode(src, range[0], range[1], dst, 0);
+                fail(Arrays.toString(range));
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+        try {
+            Base64.getEncoder().encode(src, 0, 3, dst, 101);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            Base64.getDecoder().decode("AAAA", 2, 6, dst, 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsWhatTheJdkRejects() {
+        String[] inputs = {"A", "AAAAA", "AA=A", "AA==AA", "A===", "AAA*", "AA\nAA", "AAAA====", "=AAA", "AB=",
+            "Zm9vé", "Zm9vYg=", "Zm9vYmE"};
+        for (String input : inputs) {
+            boolean jdkRejects;
+            try {
+                java.util.Base64.getDecoder().decode(input);
+                jdkRejects = false;
+            } catch (IllegalArgumentException e) {
+                jdkRejects = true;
+            }
+            boolean rejects;
+            try {
+                Base64.getDecoder().decode(input);
+                rejects = false;
+            } catch (IllegalArgumentException e) {
+                rejects = true;
+            }
+            assertEquals(input, jdkRejects, rejects);
+            if (!jdkRejects) {
+                assertArrayEquals(input, java.util.Base64.getDecoder().decode(input),
+                    Base64.getDecoder().decode(input));
+            }
+        }
+        String mime = "Zm9v\r\nYmFy*YmF6é";
+        assertArrayEquals(java.util.Base64.getMimeDecoder().decode(mime), Base64.getMimeDecoder().decode(mime));
+    }
+}
@@ -0,0 +1,114 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Time and allocation of minting "04" tokens with the per-thread {@link TokenBuilder}, against minting them with a
+ * new cipher, key, json tree and buffer per token as the assistants did before. Excluded from the unit tests, run it
+ * with {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*TokenBuilderBenchmark'}.
+ */
+public class TokenBuilderBenchmark {
+
+    private static final int ITERATIONS = 100_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final String USER_ID = "user_123456";
+
+    private static int sink;
+
+    private interface Minter {
+
+        String mint() throws GeneralSecurityException;
+    }
+
+    /**
+     * ns and allocated bytes per token.
+     */
+    private static class Cost {
+
+        final long nanos;
+        final long bytes;
+
+        Cost(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return 1_000_000_000L / nanos + " tokens/s, " + bytes + " B/token";
+        }
+    }
+
+    private static String builderToken() {
+        return TokenServerAssistant.generateToken(TokenEngineTest.APP_ID, USER_ID, TokenEngineTest.SECRET, 3600).data;
+    }
+
+    // the per-token objects of the assistants before TokenBuilder, with Gson in place of org.json
+    private static String allocatingToken() throws GeneralSecurityException {
+        long createTime = System.currentTimeMillis() / 1000;
+        long expireTime = createTime + 3600;
+        JsonObject json = new JsonObject();
+        json.addProperty("app_id", TokenEngineTest.APP_ID);
+        json.addProperty("user_id", USER_ID);
+        json.addProperty("ctime", createTime);
+        json.addProperty("expire", expireTime);
+        json.addProperty("nonce", ThreadLocalRandom.current().nextInt());
+        json.addProperty("payload", "");
+        byte[] iv = new byte[TokenBuilder.IV_LENGTH];
+        ThreadLocalRandom.current().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE,
+            new SecretKeySpec(TokenEngineTest.SECRET.getBytes(StandardCharsets.UTF_8), "AES"),
+            new IvParameterSpec(iv));
+        byte[] content = cipher.doFinal(json.toString().getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 2 + iv.length + 2 + content.length);
+        buffer.putLong(expireTime);
+        buffer.putShort((short) iv.length);
+        buffer.put(iv);
+        buffer.putShort((short) content.length);
+        buffer.put(content);
+        return "04" + java.util.Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static Cost measure(Minter minter) throws GeneralSecurityException {
+        Object threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("no allocation counter on this JVM", threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        long thread = Thread.currentThread().getId();
+        long bytes = bean.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += minter.mint().length();
+        }
+        long nanos = System.nanoTime() - start;
+        return new Cost(nanos / ITERATIONS, (bean.getThreadAllocatedBytes(thread) - bytes) / ITERATIONS);
+    }
+
+    @Test
+    public void builderAllocatesLess() throws GeneralSecurityException {
+        assertEquals(TokenEngine.decode(allocatingToken(), TokenEngineTest.SECRET).payload.keySet(),
+            TokenEngine.decode(builderToken(), TokenEngineTest.SECRET).payload.keySet());
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            measure(TokenBuilderBenchmark::builderToken);
+            measure(TokenBuilderBenchmark::allocatingToken);
+        }
+        Cost builder = measure(TokenBuilderBenchmark::builderToken);
+        Cost allocating = measure(TokenBuilderBenchmark::allocatingToken);
+        System.out.println("04 tokens: TokenBuilder " + builder + ", allocating per token " + allocating);
+        assertTrue("TokenBuilder " + builder.bytes + " B/token, allocating " + allocating.bytes + " B/token",
+            builder.bytes < allocating.bytes);
+    }
+}
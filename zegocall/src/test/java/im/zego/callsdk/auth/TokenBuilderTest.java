@@ -0,0 +1,213 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * Mints tokens with {@link TokenBuilder} and opens them with {@code javax.crypto}, {@code java.util.Base64} and Gson
+ * only, so the escaping and the layout are checked independently of {@link TokenEngine#decode}.
+ */
+public class TokenBuilderTest {
+
+    private static final String SECRET = TokenEngineTest.SECRET;
+    private static final String OTHER_SECRET = "abcdefghijklmnopqrstuvwxyz012345";
+
+    /**
+     * @return the json payload of the token, parsed by Gson, with the expire time of the header as "header_expire".
+     */
+    static JsonObject open(String token, String secret) throws GeneralSecurityException {
+        ByteBuffer buffer = ByteBuffer.wrap(java.util.Base64.getDecoder().decode(token.substring(2)));
+        long expireTime = buffer.getLong();
+        byte[] iv = new byte[buffer.getShort()];
+        buffer.get(iv);
+        byte[] content = new byte[buffer.getShort()];
+        buffer.get(content);
+        assertEquals("trailing bytes", 0, buffer.remaining());
+
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "AES"),
+            new IvParameterSpec(iv));
+        JsonObject payload = JsonParser.parseString(new String(cipher.doFinal(content), StandardCharsets.UTF_8))
+            .getAsJsonObject();
+        payload.addProperty("header_expire", expireTime);
+        return payload;
+    }
+
+    private static String mint(String name, String value, String secret) throws GeneralSecurityException {
+        return TokenBuilder.get().beginPayload()
+            .field(name, value)
+            .beginObject("nested")
+            .field("n", -42)
+            .endObject()
+            .field("expire", 1700000000L)
+            .build("04", 1700000000L, secret);
+    }
+
+    private static void assertRoundTrip(String value) throws GeneralSecurityException {
+        JsonObject payload = open(mint("value", value, SECRET), SECRET);
+        assertEquals(value, payload.get("value").getAsString());
+        assertEquals(-42, payload.getAsJsonObject("nested").get("n").getAsLong());
+        assertEquals(1700000000L, payload.get("expire").getAsLong());
+        assertEquals(1700000000L, payload.get("header_expire").getAsLong());
+    }
+
+    @Test
+    public void escapesQuotesAndBackslashes() throws GeneralSecurityException {
+        assertRoundTrip("");
+        assertRoundTrip("\"");
+        assertRoundTrip("a\"b\\c\\\"d");
+        assertRoundTrip("\\u0041");
+        assertRoundTrip("</script>'");
+    }
+
+    @Test
+    public void escapesControlCharacters() throws GeneralSecurityException {
+        StringBuilder controls = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) {
+            controls.append(c);
+        }
+        assertRoundTrip(controls.toString());
+        assertRoundTrip("line\nbreak\ttab\r\u0000end\u007f");
+    }
+
+    @Test
+    public void encodesUtf8() throws GeneralSecurityException {
+        assertRoundTrip("Zoë ß é");
+        assertRoundTrip("张三李四");
+        assertRoundTrip("名前テスト한국어");
+        // the last 2 byte, first 3 byte and last 3 byte characters
+        assertRoundTrip("\u07ff\u0800\uffff");
+        // surrogate pairs
+        assertRoundTrip("emoji😀 and 𝄞 and 𠀀");
+        assertRoundTrip("😀😀😀");
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() throws GeneralSecurityException {
+        String value = "a\ud83db\ude00c\ud83d";
+        JsonObject payload = open(mint("value", value, SECRET), SECRET);
+        assertEquals("a?b?c?", payload.get("value").getAsString());
+        assertEquals(new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+            payload.get("value").getAsString());
+    }
+
+    @Test
+    public void escapesFieldNames() throws GeneralSecurityException {
+        JsonObject payload = open(mint("we\"ird\nname", "v", SECRET), SECRET);
+        assertEquals("v", payload.get("we\"ird\nname").getAsString());
+    }
+
+    @Test
+    public void growsItsBuffers() throws GeneralSecurityException {
+        char[] chars = new char[5000];
+        Arrays.fill(chars, '张');
+        String value = new String(chars);
+        assertRoundTrip(value);
+        // and the grown buffers still mint small tokens
+        assertRoundTrip("small");
+    }
+
+    @Test
+    public void switchesSecretsOnOneThread() throws GeneralSecurityException {
+        String first = mint("value", "first", SECRET);
+        String second = mint("value", "second", OTHER_SECRET);
+        String third = mint("value", "third", SECRET);
+
+        assertEquals("first", open(first, SECRET).get("value").getAsString());
+        assertEquals("second", open(second, OTHER_SECRET).get("value").getAsString());
+        assertEquals("third", open(third, SECRET).get("value").getAsString());
+        try {
+            open(second, SECRET);
+            fail("opened with the previous secret");
+        } catch (GeneralSecurityException | RuntimeException expected) {
+        }
+    }
+
+    @Test
+    public void rejectsSecretsOfOtherByteLengths() {
+        try {
+            // 32 chars, but 33 UTF-8 bytes
+            mint("value", "v", "é123456789abcdef0123456789abcdef");
+            fail();
+        } catch (GeneralSecurityException e) {
+            fail(e.toString());
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void mintsOnManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String value = "user_" + i + "_😀";
+                String secret = i % 2 == 0 ? SECRET : OTHER_SECRET;
+                tokens.add(executor.submit(() -> mint("value", value, secret)));
+            }
+            for (int i = 0; i < tokens.size(); i++) {
+                String secret = i % 2 == 0 ? SECRET : OTHER_SECRET;
+                assertEquals("user_" + i + "_😀", open(tokens.get(i).get(), secret).get("value").getAsString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void userBatchMatchesSingleTokens() throws GeneralSecurityException {
+        List<String> userIds = Arrays.asList("plain", "quote\"d", "张三", "emoji😀", "tab\tnull\u0000");
+        List<TokenServerAssistant.TokenInfo> tokens = TokenServerAssistant.generateTokens(TokenEngineTest.APP_ID,
+            userIds, SECRET, 3600);
+
+        assertEquals(userIds.size(), tokens.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            TokenServerAssistant.TokenInfo token = tokens.get(i);
+            assertEquals(TokenServerAssistant.ErrorCode.SUCCESS, token.error.code);
+            assertTrue(token.data.startsWith("04"));
+            JsonObject payload = open(token.data, SECRET);
+            assertEquals(userIds.get(i), payload.get("user_id").getAsString());
+            assertEquals(TokenEngineTest.APP_ID, payload.get("app_id").getAsLong());
+            assertEquals(payload.get("header_expire"), payload.get("expire"));
+        }
+        String single = TokenServerAssistant.generateToken(TokenEngineTest.APP_ID, "张三", SECRET, 3600).data;
+        assertEquals(open(single, SECRET).keySet(), open(tokens.get(2).data, SECRET).keySet());
+    }
+
+    @Test
+    public void roomBatchMatchesSingleTokens() throws GeneralSecurityException {
+        ZegoRTCServerAssistant.Privileges privilege = new ZegoRTCServerAssistant.Privileges();
+        privilege.canPublishStream = true;
+        List<String> userIds = Arrays.asList("a", "b\\\"", "李四");
+        List<ZegoRTCServerAssistant.TokenInfo> tokens = ZegoRTCServerAssistant.generateTokens(TokenEngineTest.APP_ID,
+            "房间\n1", userIds, privilege, SECRET, 3600);
+
+        assertEquals(userIds.size(), tokens.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            assertTrue(tokens.get(i).data.startsWith("03"));
+            JsonObject payload = open(tokens.get(i).data, SECRET);
+            assertEquals(userIds.get(i), payload.get("user_id").getAsString());
+            assertEquals("房间\n1", payload.get("room_id").getAsString());
+            assertEquals(0, payload.getAsJsonObject("privilege").get("1").getAsInt());
+            assertEquals(1, payload.getAsJsonObject("privilege").get("2").getAsInt());
+            assertEquals(payload.get("header_expire"), payload.get("expire_time"));
+        }
+    }
+}
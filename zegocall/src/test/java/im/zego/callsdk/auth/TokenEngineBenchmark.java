@@ -0,0 +1,65 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertEquals;
+
+import java.security.GeneralSecurityException;
+import org.junit.Test;
+
+/**
+ * Throughput of generating and decoding "03" and "04" tokens on one thread, excluded from the unit tests, run it
+ * with {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*TokenEngineBenchmark'}.
+ */
+public class TokenEngineBenchmark {
+
+    private static final int ITERATIONS = 100_000;
+    private static final RoomTokenSchema.Params ROOM_PARAMS =
+        new RoomTokenSchema.Params("room_123456", "user_123456", true, true);
+
+    private static int sink;
+
+    private static <P> long generateNanos(TokenSchema<P> schema, P params) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += TokenEngine.generate(schema, TokenEngineTest.APP_ID, params, TokenEngineTest.SECRET, 3600)
+                .data.length();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static long decodeNanos(String token) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += TokenEngine.decode(token, TokenEngineTest.SECRET).payload.size();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static String format(String version, long generateNanos, long decodeNanos) {
+        return version + " generate " + 1_000_000_000L / generateNanos + " tokens/s, decode "
+            + 1_000_000_000L / decodeNanos + " tokens/s";
+    }
+
+    @Test
+    public void generateAndDecode() throws GeneralSecurityException {
+        String userToken = TokenEngine.generate(UserTokenSchema.INSTANCE, TokenEngineTest.APP_ID, "user_123456",
+            TokenEngineTest.SECRET, 3600).data;
+        String roomToken = TokenEngine.generate(RoomTokenSchema.INSTANCE, TokenEngineTest.APP_ID, ROOM_PARAMS,
+            TokenEngineTest.SECRET, 3600).data;
+        // warm up
+        generateNanos(UserTokenSchema.INSTANCE, "user_123456");
+        generateNanos(RoomTokenSchema.INSTANCE, ROOM_PARAMS);
+        decodeNanos(userToken);
+        decodeNanos(roomToken);
+
+        long userGenerate = generateNanos(UserTokenSchema.INSTANCE, "user_123456");
+        long userDecode = decodeNanos(userToken);
+        long roomGenerate = generateNanos(RoomTokenSchema.INSTANCE, ROOM_PARAMS);
+        long roomDecode = decodeNanos(roomToken);
+        System.out.println("TokenEngine: " + format("04", userGenerate, userDecode) + "; "
+            + format("03", roomGenerate, roomDecode));
+        assertEquals("user_123456",
+            TokenEngine.decode(userToken, TokenEngineTest.SECRET).payload.get("user_id").getAsString());
+        assertEquals("room_123456",
+            TokenEngine.decode(roomToken, TokenEngineTest.SECRET).payload.get("room_id").getAsString());
+    }
+}
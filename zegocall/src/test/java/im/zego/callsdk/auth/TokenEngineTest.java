@@ -0,0 +1,213 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonObject;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Generates "03" and "04" tokens with {@link TokenEngine}, decodes them back and rejects tokens that were tampered
+ * with. Also checks the order the assistants report invalid parameters in.
+ */
+public class TokenEngineTest {
+
+    static final long APP_ID = 1234567890L;
+    static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final String OTHER_SECRET = "fedcba9876543210fedcba9876543210";
+
+    static String userToken(String userId, int effectiveTimeInSeconds) {
+        TokenEngine.Result result = TokenEngine.generate(UserTokenSchema.INSTANCE, APP_ID, userId, SECRET,
+            effectiveTimeInSeconds);
+        assertEquals(result.message, TokenErrorCode.SUCCESS, result.code);
+        return result.data;
+    }
+
+    private static String roomToken() {
+        TokenEngine.Result result = TokenEngine.generate(RoomTokenSchema.INSTANCE, APP_ID,
+            new RoomTokenSchema.Params("room1", "user1", true, false), SECRET, 3600);
+        assertEquals(result.message, TokenErrorCode.SUCCESS, result.code);
+        return result.data;
+    }
+
+    /**
+     * @return the token with its binary part cut or padded to the length and the expire time of its header replaced.
+     */
+    private static String rewrite(String token, int newLength, long expireTime) {
+        byte[] bytes = java.util.Base64.getDecoder().decode(token.substring(2));
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, newLength));
+        buffer.putLong(0, expireTime);
+        return token.substring(0, 2) + java.util.Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static long headerExpireTime(String token) {
+        return ByteBuffer.wrap(java.util.Base64.getDecoder().decode(token.substring(2))).getLong();
+    }
+
+    private static void assertRejected(String token, String secret) {
+        try {
+            TokenEngine.decode(token, secret);
+            fail("decoded " + token);
+        } catch (GeneralSecurityException expected) {
+        }
+    }
+
+    @Test
+    public void userTokenRoundTrip() throws GeneralSecurityException {
+        long before = System.currentTimeMillis() / 1000;
+        String token = userToken("user1", 3600);
+        long after = System.currentTimeMillis() / 1000;
+
+        assertTrue(token.startsWith("04"));
+        TokenEngine.DecodedToken decoded = TokenEngine.decode(token, SECRET);
+        assertSame(UserTokenSchema.INSTANCE, decoded.schema);
+        assertTrue(decoded.expireTime >= before + 3600 && decoded.expireTime <= after + 3600);
+        JsonObject payload = decoded.payload;
+        assertEquals(APP_ID, payload.get("app_id").getAsLong());
+        assertEquals("user1", payload.get("user_id").getAsString());
+        assertEquals(decoded.expireTime, payload.get("expire").getAsLong());
+        assertEquals(decoded.expireTime - 3600, payload.get("ctime").getAsLong());
+        assertTrue(payload.get("nonce").getAsJsonPrimitive().isNumber());
+        assertEquals("", payload.get("payload").getAsString());
+    }
+
+    @Test
+    public void roomTokenRoundTrip() throws GeneralSecurityException {
+        String token = roomToken();
+
+        assertTrue(token.startsWith("03"));
+        TokenEngine.DecodedToken decoded = TokenEngine.decode(token, SECRET);
+        assertSame(RoomTokenSchema.INSTANCE, decoded.schema);
+        JsonObject payload = decoded.payload;
+        assertEquals(APP_ID, payload.get("app_id").getAsLong());
+        assertEquals("room1", payload.get("room_id").getAsString());
+        assertEquals("user1", payload.get("user_id").getAsString());
+        assertEquals(1, payload.getAsJsonObject("privilege").get("1").getAsInt());
+        assertEquals(0, payload.getAsJsonObject("privilege").get("2").getAsInt());
+        assertEquals(decoded.expireTime, payload.get("expire_time").getAsLong());
+        assertEquals(decoded.expireTime - 3600, payload.get("create_time").getAsLong());
+    }
+
+    @Test
+    public void tokensDifferInIv() {
+        assertTrue(!userToken("user1", 3600).equals(userToken("user1", 3600)));
+    }
+
+    @Test
+    public void rejectsWrongSecret() {
+        assertRejected(userToken("user1", 3600), OTHER_SECRET);
+        assertRejected(roomToken(), OTHER_SECRET);
+        assertRejected(roomToken(), "short");
+        assertRejected(roomToken(), null);
+    }
+
+    @Test
+    public void rejectsTruncatedTokens() {
+        String token = userToken("user1", 3600);
+        // without its padding, which the decoder does not require
+        String unpadded = token.replaceAll("=+$", "");
+        for (int length = 0; length < unpadded.length(); length += 3) {
+            assertRejected(unpadded.substring(0, length), SECRET);
+        }
+        assertRejected(unpadded.substring(0, unpadded.length() - 1), SECRET);
+        assertRejected(null, SECRET);
+        // well formed base64 without the last cipher block
+        int bytes = java.util.Base64.getDecoder().decode(token.substring(2)).length;
+        assertRejected(rewrite(token, bytes - 16, headerExpireTime(token)), SECRET);
+    }
+
+    @Test
+    public void rejectsCorruptedBase64() {
+        String token = roomToken();
+        int middle = token.length() / 2;
+        assertRejected(token.substring(0, middle) + '*' + token.substring(middle + 1), SECRET);
+        assertRejected(token.substring(0, middle) + ' ' + token.substring(middle), SECRET);
+        assertRejected(token + "==", SECRET);
+    }
+
+    @Test
+    public void rejectsUnknownVersionFlags() {
+        String token = userToken("user1", 3600);
+        assertRejected("05" + token.substring(2), SECRET);
+        assertRejected("40" + token.substring(2), SECRET);
+        assertRejected(token.substring(2), SECRET);
+    }
+
+    @Test
+    public void rejectsExpireTimeMismatch() throws GeneralSecurityException {
+        String token = userToken("user1", 3600);
+        long expireTime = headerExpireTime(token);
+        int length = java.util.Base64.getDecoder().decode(token.substring(2)).length;
+        // unchanged it still decodes
+        TokenEngine.decode(rewrite(token, length, expireTime), SECRET);
+
+        assertRejected(rewrite(token, length, expireTime + 1), SECRET);
+        assertRejected(rewrite(token, length, expireTime + 86400), SECRET);
+        String room = roomToken();
+        int roomLength = java.util.Base64.getDecoder().decode(room.substring(2)).length;
+        assertRejected(rewrite(room, roomLength, headerExpireTime(room) - 1), SECRET);
+    }
+
+    @Test
+    public void rtcAssistantChecksSchemaBeforeSecret() {
+        ZegoRTCServerAssistant.Privileges privilege = new ZegoRTCServerAssistant.Privileges();
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_APP_ID,
+            ZegoRTCServerAssistant.generateToken(0, "", "", null, "bad", 0).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_ROOM_ID,
+            ZegoRTCServerAssistant.generateToken(1, "", "u", privilege, "bad", 60).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_USER_ID,
+            ZegoRTCServerAssistant.generateToken(1, "r", "", privilege, "bad", 0).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_SECRET,
+            ZegoRTCServerAssistant.generateToken(1, "r", "u", privilege, "bad", 0).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_EFFECTIVE_TIME,
+            ZegoRTCServerAssistant.generateToken(1, "r", "u", privilege, SECRET, 0).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.SUCCESS,
+            ZegoRTCServerAssistant.generateToken(1, "r", "u", privilege, SECRET, 60).error.code);
+    }
+
+    @Test
+    public void rtcAssistantChecksPrivilegeLast() {
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_ROOM_ID,
+            ZegoRTCServerAssistant.generateToken(1, "", "u", null, SECRET, 60).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_SECRET,
+            ZegoRTCServerAssistant.generateToken(1, "r", "u", null, "bad", 60).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_EFFECTIVE_TIME,
+            ZegoRTCServerAssistant.generateToken(1, "r", "u", null, SECRET, -1).error.code);
+        ZegoRTCServerAssistant.TokenInfo token = ZegoRTCServerAssistant.generateToken(1, "r", "u", null, SECRET, 60);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_PRIVILEGE, token.error.code);
+        assertEquals("", token.data);
+
+        List<ZegoRTCServerAssistant.TokenInfo> tokens = ZegoRTCServerAssistant.generateTokens(1, "r",
+            Arrays.asList("u", ""), null, SECRET, 60);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_PRIVILEGE, tokens.get(0).error.code);
+        assertEquals(ZegoRTCServerAssistant.ErrorCode.ILLEGAL_USER_ID, tokens.get(1).error.code);
+    }
+
+    @Test
+    public void userAssistantChecksUserIdBeforeSecret() {
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_APP_ID,
+            TokenServerAssistant.generateToken(0, "", "bad", 0).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_USER_ID,
+            TokenServerAssistant.generateToken(1, "", "bad", 60).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_USER_ID,
+            TokenServerAssistant.generateToken(1, null, SECRET, 0).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_SECRET,
+            TokenServerAssistant.generateToken(1, "u", "bad", 0).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_EFFECTIVE_TIME,
+            TokenServerAssistant.generateToken(1, "u", SECRET, 0).error.code);
+
+        List<TokenServerAssistant.TokenInfo> tokens = TokenServerAssistant.generateTokens(1,
+            Arrays.asList("", "u", null), "bad", 60);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_USER_ID, tokens.get(0).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_SECRET, tokens.get(1).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_USER_ID, tokens.get(2).error.code);
+        assertEquals(TokenServerAssistant.ErrorCode.ILLEGAL_APP_ID,
+            TokenServerAssistant.generateTokens(0, Arrays.asList("", "u"), "bad", 60).get(0).error.code);
+    }
+}
@@ -0,0 +1,179 @@
+package im.zego.callsdk.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Reads expire times from token headers, checks expiry margins and verifies tokens with {@link TokenVerifier},
+ * with the current time passed in.
+ */
+public class TokenVerifierTest {
+
+    private static final long APP_ID = TokenEngineTest.APP_ID;
+    private static final String SECRET = TokenEngineTest.SECRET;
+    private static final long NOW = 1_700_000_000L;
+
+    private final TokenVerifier verifier = new TokenVerifier(APP_ID, SECRET);
+
+    private static String userToken(long appId, String userId, long expireTime) throws GeneralSecurityException {
+        TokenBuilder builder = TokenBuilder.get().beginPayload();
+        UserTokenSchema.INSTANCE.writePayload(builder, appId, userId, expireTime - 3600, expireTime);
+        return builder.build("04", expireTime, SECRET);
+    }
+
+    private static String roomToken(long expireTime) throws GeneralSecurityException {
+        TokenBuilder builder = TokenBuilder.get().beginPayload();
+        RoomTokenSchema.INSTANCE.writePayload(builder, APP_ID,
+            new RoomTokenSchema.Params("room1", "user1", true, true), expireTime - 3600, expireTime);
+        return builder.build("03", expireTime, SECRET);
+    }
+
+    private void assertRejected(String token, long now) {
+        try {
+            verifier.verify(token, now);
+            fail("verified " + token);
+        } catch (GeneralSecurityException expected) {
+        }
+    }
+
+    @Test
+    public void peeksTheHeaderExpireTime() throws GeneralSecurityException {
+        assertEquals(NOW, TokenVerifier.peekExpireTime(userToken(APP_ID, "u", NOW)));
+        assertEquals(NOW + 1, TokenVerifier.peekExpireTime(roomToken(NOW + 1)));
+        assertEquals(0, TokenVerifier.peekExpireTime(userToken(APP_ID, "u", 0)));
+        assertEquals(1L << 40, TokenVerifier.peekExpireTime(userToken(APP_ID, "u", 1L << 40)));
+        String token = TokenServerAssistant.generateToken(APP_ID, "u", SECRET, 3600).data;
+        assertEquals(TokenEngine.decode(token, SECRET).expireTime, TokenVerifier.peekExpireTime(token));
+    }
+
+    @Test
+    public void peeksOnlyTheFirstTwelveCharacters() throws GeneralSecurityException {
+        String token = userToken(APP_ID, "u", NOW);
+
+        assertEquals(NOW, TokenVerifier.peekExpireTime(token.substring(0, 14)));
+        assertEquals(NOW, TokenVerifier.peekExpireTime(token.substring(0, 14) + "not base64 at all!"));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime(token.substring(0, 13)));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME,
+            TokenVerifier.peekExpireTime(token.substring(0, 13) + "*" + token.substring(14)));
+    }
+
+    @Test
+    public void peeksNothingFromOtherStrings() throws GeneralSecurityException {
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime(null));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime(""));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime("04"));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime("not a token, just text"));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime("04************"));
+        String token = userToken(APP_ID, "u", NOW);
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime("05" + token.substring(2)));
+        assertEquals(TokenVerifier.UNKNOWN_EXPIRE_TIME, TokenVerifier.peekExpireTime(token.substring(2)));
+    }
+
+    @Test
+    public void isExpiredWithinTheMargin() throws GeneralSecurityException {
+        String token = userToken(APP_ID, "u", NOW + 100);
+
+        assertFalse(TokenVerifier.isExpired(token, 0, NOW));
+        assertFalse(TokenVerifier.isExpired(token, 99, NOW));
+        assertTrue(TokenVerifier.isExpired(token, 100, NOW));
+        assertTrue(TokenVerifier.isExpired(token, 1000, NOW));
+        assertFalse(TokenVerifier.isExpired(token, 0, NOW + 99));
+        assertTrue(TokenVerifier.isExpired(token, 0, NOW + 100));
+        assertFalse(TokenVerifier.isExpired(token, -10, NOW + 105));
+        assertTrue(TokenVerifier.isExpired(token, -10, NOW + 110));
+    }
+
+    @Test
+    public void unreadableTokensAreNotExpired() {
+        assertFalse(TokenVerifier.isExpired(null, 0, NOW));
+        assertFalse(TokenVerifier.isExpired("not a token", 0, NOW));
+        assertFalse(TokenVerifier.isExpired("04AAAA", Long.MAX_VALUE / 2, NOW));
+    }
+
+    @Test
+    public void isExpiredAgainstTheClock() throws GeneralSecurityException {
+        String token = TokenServerAssistant.generateToken(APP_ID, "u", SECRET, 3600).data;
+        assertFalse(TokenVerifier.isExpired(token, 30));
+        assertTrue(TokenVerifier.isExpired(token, 3600));
+        assertTrue(TokenVerifier.isExpired(userToken(APP_ID, "u", NOW), 0));
+    }
+
+    @Test
+    public void verifiesTokensOfTheAppId() throws GeneralSecurityException {
+        String token = roomToken(NOW + 60);
+
+        TokenEngine.DecodedToken decoded = verifier.verify(token, NOW);
+        assertEquals(NOW + 60, decoded.expireTime);
+        assertEquals("room1", decoded.payload.get("room_id").getAsString());
+        assertFalse(new TokenVerifier(APP_ID + 1, SECRET).isValid(token));
+        assertRejected(userToken(APP_ID + 1, "u", NOW + 60), NOW);
+        assertRejected(userToken(0, "u", NOW + 60), NOW);
+    }
+
+    @Test
+    public void rejectsWrongSecretsAndOtherStrings() throws GeneralSecurityException {
+        String token = userToken(APP_ID, "u", NOW + 60);
+        TokenVerifier otherSecret = new TokenVerifier(APP_ID, "fedcba9876543210fedcba9876543210");
+        try {
+            otherSecret.verify(token, NOW);
+            fail();
+        } catch (GeneralSecurityException expected) {
+        }
+        assertRejected(null, NOW);
+        assertRejected("", NOW);
+        assertRejected("not a token, just text", NOW);
+        assertRejected(token.substring(0, 14), NOW);
+        assertRejected(token.substring(0, token.length() / 2), NOW);
+        assertFalse(verifier.isValid("04"));
+    }
+
+    @Test
+    public void rejectsExpiredTokens() throws GeneralSecurityException {
+        String token = userToken(APP_ID, "u", NOW);
+
+        assertRejected(token, NOW);
+        assertRejected(token, NOW + 1);
+        assertEquals(NOW, verifier.verify(token, NOW - 1).expireTime);
+        assertFalse(verifier.isValid(token));
+    }
+
+    @Test
+    public void cachesVerifiedTokens() throws GeneralSecurityException {
+        String token = userToken(APP_ID, "u", NOW + 60);
+
+        TokenEngine.DecodedToken decoded = verifier.verify(token, NOW);
+        assertSame(decoded, verifier.verify(token, NOW));
+        // a cached token still expires
+        assertRejected(token, NOW + 60);
+        assertSame(decoded, verifier.verify(token, NOW + 59));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyVerifiedToken() throws GeneralSecurityException {
+        List<String> tokens = new ArrayList<>();
+        List<TokenEngine.DecodedToken> decoded = new ArrayList<>();
+        for (int i = 0; i < TokenVerifier.MAX_CACHED_TOKENS; i++) {
+            tokens.add(userToken(APP_ID, "user" + i, NOW + 60));
+            decoded.add(verifier.verify(tokens.get(i), NOW));
+        }
+        // touch the first, so the second is the eldest
+        assertSame(decoded.get(0), verifier.verify(tokens.get(0), NOW));
+
+        verifier.verify(userToken(APP_ID, "one more", NOW + 60), NOW);
+
+        assertSame(decoded.get(0), verifier.verify(tokens.get(0), NOW));
+        assertSame(decoded.get(2), verifier.verify(tokens.get(2), NOW));
+        TokenEngine.DecodedToken again = verifier.verify(tokens.get(1), NOW);
+        assertNotSame(decoded.get(1), again);
+        assertEquals("user1", again.payload.get("user_id").getAsString());
+    }
+}
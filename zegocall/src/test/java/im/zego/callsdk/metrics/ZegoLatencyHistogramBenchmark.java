@@ -0,0 +1,39 @@
+package im.zego.callsdk.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Cost of recording a sample and of reading a percentile, excluded from the unit tests, run it with
+ * {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*ZegoLatencyHistogramBenchmark'}.
+ */
+public class ZegoLatencyHistogramBenchmark {
+
+    private static final int ITERATIONS = 2_000_000;
+    private static final int PERCENTILE_READS = 1000;
+
+    @Test
+    public void recordAndPercentile() {
+        ZegoLatencyHistogram histogram = new ZegoLatencyHistogram();
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            histogram.record(i & 4095);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            histogram.record(i & 4095);
+        }
+        long recordNanos = (System.nanoTime() - start) / ITERATIONS;
+        start = System.nanoTime();
+        long p99 = 0;
+        for (int i = 0; i < PERCENTILE_READS; i++) {
+            p99 += histogram.getPercentile(99);
+        }
+        long percentileNanos = (System.nanoTime() - start) / PERCENTILE_READS;
+        System.out.println("ZegoLatencyHistogram: record " + recordNanos + " ns/op, getPercentile "
+            + percentileNanos + " ns/op");
+        assertEquals(2L * ITERATIONS, histogram.getCount());
+        assertEquals(PERCENTILE_READS * histogram.getPercentile(99), p99);
+    }
+}
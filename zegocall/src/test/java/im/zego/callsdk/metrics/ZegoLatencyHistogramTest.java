@@ -0,0 +1,113 @@
+package im.zego.callsdk.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class ZegoLatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        ZegoLatencyHistogram histogram = new ZegoLatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        ZegoLatencyHistogram histogram = new ZegoLatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(5, histogram.getMean());
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(95));
+        assertEquals(10, histogram.getPercentile(100));
+        assertEquals(10, histogram.getMax());
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        ZegoLatencyHistogram histogram = new ZegoLatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        for (long value = 0; value < 1 << 16; value++) {
+            int index = ZegoLatencyHistogram.indexOf(value);
+            assertTrue(value <= ZegoLatencyHistogram.upperBoundOf(index));
+            if (index > 0) {
+                assertTrue(value > ZegoLatencyHistogram.upperBoundOf(index - 1));
+            }
+        }
+        long huge = 1L << 40;
+        assertEquals(Long.MAX_VALUE, ZegoLatencyHistogram.upperBoundOf(ZegoLatencyHistogram.indexOf(huge)));
+    }
+
+    @Test
+    public void percentilesStayWithinOneSixteenth() {
+        ZegoLatencyHistogram histogram = new ZegoLatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // log-normal like call setup latencies, mostly a few hundred milliseconds with a long tail
+            values[i] = (long) Math.exp(5.5 + random.nextGaussian() * 0.8);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{50, 95, 99}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long reported = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(percentile + ": " + reported + " > " + exact, reported <= exact + exact / 16 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+    }
+
+    @Test
+    public void concurrentRecordingLosesNoSample() throws InterruptedException {
+        ZegoLatencyHistogram histogram = new ZegoLatencyHistogram();
+        int threads = 4;
+        int perThread = 50_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i % 1000);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(threads * perThread, histogram.getCount());
+        assertEquals(999, histogram.getMax());
+        assertEquals(999, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void collectorSeparatesFailures() {
+        ZegoCallMetricsCollector collector = new ZegoCallMetricsCollector();
+        collector.onPhaseCompleted(ZegoCallPhase.ZIM_LOGIN, 120, 0);
+        collector.onPhaseCompleted(ZegoCallPhase.ZIM_LOGIN, 300, 0);
+        collector.onPhaseCompleted(ZegoCallPhase.ZIM_LOGIN, 5000, 6000111);
+        ZegoCallMetricsSnapshot.PhaseStats stats = collector.snapshot().get(ZegoCallPhase.ZIM_LOGIN);
+        assertEquals(2, stats.count);
+        assertEquals(1, stats.failures);
+        assertEquals(300, stats.max);
+        assertEquals(0, collector.snapshot().get(ZegoCallPhase.JOIN_ROOM).count);
+
+        collector.reset();
+        assertEquals(0, collector.snapshot().get(ZegoCallPhase.ZIM_LOGIN).count);
+    }
+}
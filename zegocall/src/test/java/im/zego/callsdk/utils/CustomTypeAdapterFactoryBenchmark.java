@@ -0,0 +1,96 @@
+package im.zego.callsdk.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import im.zego.callsdk.model.ZegoCallType;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.junit.Test;
+
+/**
+ * Decoding enums from numbers with the table lookup and with the string matching the factory did before, excluded
+ * from the unit tests, run it with
+ * {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*CustomTypeAdapterFactoryBenchmark'}.
+ */
+public class CustomTypeAdapterFactoryBenchmark {
+
+    private static final int VALUES = 10_000;
+    private static final int ITERATIONS = 200;
+    private static final int WARMUP_ROUNDS = 3;
+
+    /**
+     * The read path of the factory before the lookup tables: every value is read as a string and compared with the
+     * string of every constant's value.
+     */
+    private static class StringMatchingAdapter extends TypeAdapter<ZegoCallType> {
+
+        private final Map<ZegoCallType, Object> values = new HashMap<>();
+
+        StringMatchingAdapter() {
+            for (ZegoCallType type : ZegoCallType.values()) {
+                values.put(type, type.getValue());
+            }
+        }
+
+        @Override
+        public void write(JsonWriter out, ZegoCallType value) throws IOException {
+            out.value(value.getValue());
+        }
+
+        @Override
+        public ZegoCallType read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            String string = reader.nextString();
+            for (Entry<ZegoCallType, Object> entry : values.entrySet()) {
+                if (entry.getValue().toString().equals(string)) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+    }
+
+    private static long nanosPerValue(Gson gson, String json) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            gson.fromJson(json, ZegoCallType[].class);
+        }
+        return (System.nanoTime() - start) / ((long) ITERATIONS * VALUES);
+    }
+
+    @Test
+    public void tableLookupIsFasterThanStringMatching() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < VALUES; i++) {
+            builder.append(i == 0 ? "" : ",").append(1 + (i & 1));
+        }
+        String json = builder.append(']').toString();
+        Gson table = GsonHelper.getGson();
+        Gson stringMatching = new GsonBuilder()
+            .registerTypeAdapter(ZegoCallType.class, new StringMatchingAdapter())
+            .create();
+        assertArrayEquals(stringMatching.fromJson(json, ZegoCallType[].class), table.fromJson(json,
+            ZegoCallType[].class));
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            nanosPerValue(table, json);
+            nanosPerValue(stringMatching, json);
+        }
+        long tableNanos = nanosPerValue(table, json);
+        long stringNanos = nanosPerValue(stringMatching, json);
+        System.out.println("enum from number ns/value: table " + tableNanos + ", string matching " + stringNanos);
+        assertTrue("table " + tableNanos + "ns, string matching " + stringNanos + "ns", tableNanos < stringNanos);
+    }
+}
@@ -0,0 +1,104 @@
+package im.zego.callsdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoNetWorkQuality;
+import im.zego.callsdk.model.ZegoResponseType;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class CustomTypeAdapterFactoryTest {
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new CustomTypeAdapterFactory()).create();
+
+    // values too far apart for the dense table
+    enum Sparse {
+        LOW(-5), MID(1000), HIGH(1_000_000);
+
+        private final int value;
+
+        Sparse(int value) {
+            this.value = value;
+        }
+    }
+
+    enum Duplicated {
+        FIRST(1), SECOND(1), THIRD(3);
+
+        private final int value;
+
+        Duplicated(int value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void writesTheIntValue() {
+        assertEquals("2", gson.toJson(ZegoCallType.Video));
+        assertEquals("1000000", gson.toJson(Sparse.HIGH));
+        assertEquals("-5", gson.toJson(Sparse.LOW));
+        assertEquals("null", gson.toJson(null, ZegoCallType.class));
+    }
+
+    @Test
+    public void readsNumbersStringsAndNames() {
+        assertSame(ZegoCallType.Voice, gson.fromJson("1", ZegoCallType.class));
+        assertSame(ZegoCallType.Video, gson.fromJson("\"2\"", ZegoCallType.class));
+        assertSame(ZegoResponseType.Reject, gson.fromJson("\"Reject\"", ZegoResponseType.class));
+        assertNull(gson.fromJson("null", ZegoCallType.class));
+    }
+
+    @Test
+    public void unknownValuesReadAsNull() {
+        assertNull(gson.fromJson("0", ZegoCallType.class));
+        assertNull(gson.fromJson("3", ZegoCallType.class));
+        assertNull(gson.fromJson("-2147483648", ZegoCallType.class));
+        assertNull(gson.fromJson("\"Audio\"", ZegoCallType.class));
+        assertNull(gson.fromJson("999", Sparse.class));
+    }
+
+    @Test
+    public void fractionsAndLongsReadAsNull() {
+        assertNull(gson.fromJson("1.5", ZegoCallType.class));
+        // an integral double is its int value
+        assertSame(ZegoCallType.Video, gson.fromJson("2.0", ZegoCallType.class));
+        assertNull(gson.fromJson("4294967298", ZegoCallType.class));
+        // the number is consumed, the rest of the document still reads
+        ZegoCallType[] types = gson.fromJson("[1.5,2,4294967298,1]", ZegoCallType[].class);
+        assertEquals(Arrays.asList(null, ZegoCallType.Video, null, ZegoCallType.Voice), Arrays.asList(types));
+    }
+
+    @Test
+    public void sparseValuesAreSearched() {
+        for (Sparse constant : Sparse.values()) {
+            assertSame(constant, gson.fromJson(String.valueOf(constant.value), Sparse.class));
+            assertSame(constant, gson.fromJson("\"" + constant.name() + "\"", Sparse.class));
+        }
+    }
+
+    @Test
+    public void firstConstantWinsOnDuplicatedValues() {
+        assertSame(Duplicated.FIRST, gson.fromJson("1", Duplicated.class));
+        assertSame(Duplicated.FIRST, gson.fromJson("\"1\"", Duplicated.class));
+        assertSame(Duplicated.SECOND, gson.fromJson("\"SECOND\"", Duplicated.class));
+        assertSame(Duplicated.THIRD, gson.fromJson("3", Duplicated.class));
+    }
+
+    @Test
+    public void enumWithoutIntValueKeepsItsName() {
+        assertNull(new CustomTypeAdapterFactory().create(gson, TypeToken.get(ZegoNetWorkQuality.class)));
+        assertEquals("\"Medium\"", gson.toJson(ZegoNetWorkQuality.Medium));
+        assertSame(ZegoNetWorkQuality.Bad, gson.fromJson("\"Bad\"", ZegoNetWorkQuality.class));
+    }
+
+    @Test
+    public void nonEnumIsNotHandled() {
+        assertNull(new CustomTypeAdapterFactory().create(gson, TypeToken.get(String.class)));
+    }
+}
@@ -0,0 +1,100 @@
+package im.zego.callsdk.utils;
+
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import im.zego.callsdk.model.ZegoCallMessage;
+import java.lang.management.ManagementFactory;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Time and allocation of binding a call message with the hand-written adapters and with Gson's reflection, excluded
+ * from the unit tests, run it with
+ * {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*ModelTypeAdapterFactoryBenchmark'}.
+ */
+public class ModelTypeAdapterFactoryBenchmark {
+
+    private static final int ITERATIONS = 50_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private final Gson gson = GsonHelper.getGson();
+    // the binding the models had before, reflection plus the enum factory
+    private final Gson reflective = new GsonBuilder()
+        .registerTypeAdapterFactory(new CustomTypeAdapterFactory())
+        .create();
+    private final ZegoCallMessage message = ModelTypeAdapterFactoryTest.callMessage();
+    private final String json = gson.toJson(message);
+
+    private static int sink;
+
+    /**
+     * ns and allocated bytes per operation.
+     */
+    private static class Cost {
+
+        final long nanos;
+        final long bytes;
+
+        Cost(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return nanos + " ns/op, " + bytes + " B/op";
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("no allocation counter on this JVM", bean instanceof com.sun.management.ThreadMXBean);
+        return (com.sun.management.ThreadMXBean) bean;
+    }
+
+    private Cost toJson(Gson binding) {
+        com.sun.management.ThreadMXBean bean = threadBean();
+        long thread = Thread.currentThread().getId();
+        long bytes = bean.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += binding.toJson(message).length();
+        }
+        long nanos = System.nanoTime() - start;
+        return new Cost(nanos / ITERATIONS, (bean.getThreadAllocatedBytes(thread) - bytes) / ITERATIONS);
+    }
+
+    private Cost fromJson(Gson binding) {
+        com.sun.management.ThreadMXBean bean = threadBean();
+        long thread = Thread.currentThread().getId();
+        long bytes = bean.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += binding.fromJson(json, ZegoCallMessage.class).actionType;
+        }
+        long nanos = System.nanoTime() - start;
+        return new Cost(nanos / ITERATIONS, (bean.getThreadAllocatedBytes(thread) - bytes) / ITERATIONS);
+    }
+
+    @Test
+    public void handWrittenAdaptersAllocateLess() {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            toJson(gson);
+            toJson(reflective);
+            fromJson(gson);
+            fromJson(reflective);
+        }
+        Cost writeHandWritten = toJson(gson);
+        Cost writeReflective = toJson(reflective);
+        Cost readHandWritten = fromJson(gson);
+        Cost readReflective = fromJson(reflective);
+        System.out.println("toJson: hand-written " + writeHandWritten + ", reflective " + writeReflective);
+        System.out.println("fromJson: hand-written " + readHandWritten + ", reflective " + readReflective);
+        assertTrue("toJson " + writeHandWritten.bytes + " B/op, reflective " + writeReflective.bytes + " B/op",
+            writeHandWritten.bytes < writeReflective.bytes);
+        assertTrue("fromJson " + readHandWritten.bytes + " B/op, reflective " + readReflective.bytes + " B/op",
+            readHandWritten.bytes < readReflective.bytes);
+    }
+}
@@ -0,0 +1,104 @@
+package im.zego.callsdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.model.ZegoUserInfo;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * The hand-written adapters must read and write exactly what Gson's reflective binding does.
+ */
+public class ModelTypeAdapterFactoryTest {
+
+    private final Gson gson = GsonHelper.getGson();
+    // the binding the models had before, reflection plus the enum factory
+    private final Gson reflective = new GsonBuilder()
+        .registerTypeAdapterFactory(new CustomTypeAdapterFactory())
+        .create();
+
+    private static ZegoUserInfo userInfo() {
+        ZegoUserInfo userInfo = new ZegoUserInfo();
+        userInfo.userID = "1234567";
+        userInfo.userName = "Ann \"A\" 安";
+        userInfo.mic = true;
+        return userInfo;
+    }
+
+    static ZegoCallMessage callMessage() {
+        ZegoCallMessage message = new ZegoCallMessage();
+        message.actionType = ZegoCallMessage.RESPONSE_CALL;
+        message.target = Arrays.asList("a", "b");
+        message.codecVersion = 1;
+        ContentBean content = new ContentBean();
+        content.userInfo = new UserInfoBean("7654321", "Bob");
+        content.responseType = ZegoResponseType.Accept;
+        content.callType = ZegoCallType.Voice;
+        content.cancelType = ZegoCancelType.INTENT;
+        message.content = content;
+        return message;
+    }
+
+    @Test
+    public void writesLikeReflection() {
+        ZegoRoomInfo roomInfo = new ZegoRoomInfo();
+        roomInfo.roomID = "room";
+        roomInfo.roomName = "name";
+        ZegoCallMessage sparse = new ZegoCallMessage();
+        sparse.actionType = ZegoCallMessage.END_CALL;
+        sparse.content = new ContentBean();
+        Object[] models = {userInfo(), new ZegoUserInfo(), roomInfo, new ZegoRoomInfo(), callMessage(), sparse,
+            new ZegoCallMessage(), new UserInfoBean(null, "x")};
+        for (Object model : models) {
+            assertEquals(reflective.toJson(model), gson.toJson(model));
+        }
+    }
+
+    @Test
+    public void readsWhatReflectionWrites() {
+        ZegoUserInfo userInfo = gson.fromJson(reflective.toJson(userInfo()), ZegoUserInfo.class);
+        assertEquals("1234567", userInfo.userID);
+        assertEquals("Ann \"A\" 安", userInfo.userName);
+        assertTrue(userInfo.mic);
+        assertFalse(userInfo.camera);
+
+        ZegoCallMessage message = gson.fromJson(reflective.toJson(callMessage()), ZegoCallMessage.class);
+        assertEquals(ZegoCallMessage.RESPONSE_CALL, message.actionType);
+        assertEquals(Arrays.asList("a", "b"), message.target);
+        assertEquals(1, message.codecVersion);
+        assertEquals("7654321", message.content.userInfo.userID);
+        assertEquals("Bob", message.content.userInfo.userName);
+        assertEquals(ZegoResponseType.Accept, message.content.responseType);
+        assertEquals(ZegoCallType.Voice, message.content.callType);
+        assertEquals(ZegoCancelType.INTENT, message.content.cancelType);
+    }
+
+    @Test
+    public void skipsUnknownFieldsAndNulls() {
+        ZegoCallMessage message = gson.fromJson("{\"action_type\":1,\"extra\":{\"deep\":[1,2]},\"target\":null,"
+            + "\"content\":{\"user_info\":{\"id\":null,\"name\":\"n\",\"avatar\":\"x\"},\"call_type\":null}}",
+            ZegoCallMessage.class);
+        assertEquals(1, message.actionType);
+        assertNull(message.target);
+        assertNull(message.content.userInfo.userID);
+        assertEquals("n", message.content.userInfo.userName);
+        assertNull(message.content.callType);
+
+        ZegoRoomInfo roomInfo = gson.fromJson("{\"id\":\"r\",\"owner\":\"o\"}", ZegoRoomInfo.class);
+        assertEquals("r", roomInfo.roomID);
+        assertNull(roomInfo.roomName);
+        assertNull(gson.fromJson("null", ZegoUserInfo.class));
+    }
+}
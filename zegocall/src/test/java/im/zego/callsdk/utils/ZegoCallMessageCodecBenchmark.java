@@ -0,0 +1,52 @@
+package im.zego.callsdk.utils;
+
+import static org.junit.Assert.assertTrue;
+
+import im.zego.callsdk.model.ZegoCallMessage;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * Encode and decode cost of a call invite in JSON and in the binary format, excluded from the unit tests, run it
+ * with {@code ./gradlew :zegocall:testDebugUnitTest -Pbenchmark --tests '*ZegoCallMessageCodecBenchmark'}.
+ */
+public class ZegoCallMessageCodecBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+    private static final int WARMUP_ROUNDS = 2;
+
+    private static int sink;
+
+    private static long jsonNanos(ZegoCallMessage message) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            byte[] json = GsonHelper.getGson().toJson(message).getBytes(StandardCharsets.UTF_8);
+            ZegoCallMessage decoded = GsonHelper.getGson()
+                .fromJson(new String(json, StandardCharsets.UTF_8), ZegoCallMessage.class);
+            sink += decoded.actionType;
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static long binaryNanos(ZegoCallMessage message) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += ZegoCallMessageCodec.decodeBinary(ZegoCallMessageCodec.encodeBinary(message)).actionType;
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    @Test
+    public void binaryRoundTripIsFasterThanJson() {
+        ZegoCallMessage invite = ZegoCallMessageCodecTest.invite();
+        invite.codecVersion = ZegoCallMessageCodec.VERSION;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            jsonNanos(invite);
+            binaryNanos(invite);
+        }
+        long json = jsonNanos(invite);
+        long binary = binaryNanos(invite);
+        System.out.println("ZegoCallMessage encode+decode ns/op: json " + json + ", binary " + binary);
+        assertTrue("json " + json + "ns, binary " + binary + "ns", binary < json);
+    }
+}
@@ -0,0 +1,181 @@
+package im.zego.callsdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class ZegoCallMessageCodecTest {
+
+    private static final String PEER = "peer";
+
+    private final ZegoCallMessageCodec codec = new ZegoCallMessageCodec(GsonHelper.getGson());
+
+    static ZegoCallMessage invite() {
+        ZegoCallMessage message = new ZegoCallMessage();
+        message.actionType = ZegoCallMessage.CALL;
+        message.target = Collections.singletonList("1234567");
+        ContentBean content = new ContentBean();
+        content.userInfo = new UserInfoBean("7654321", "Caller");
+        content.callType = ZegoCallType.Video;
+        message.content = content;
+        return message;
+    }
+
+    private static void assertSameMessage(ZegoCallMessage expected, ZegoCallMessage actual) {
+        assertNotNull(actual);
+        assertEquals(expected.actionType, actual.actionType);
+        assertEquals(expected.target == null ? Collections.emptyList() : expected.target, actual.target);
+        if (expected.content == null) {
+            assertNull(actual.content);
+            return;
+        }
+        assertNotNull(actual.content);
+        assertEquals(expected.content.callType, actual.content.callType);
+        assertEquals(expected.content.cancelType, actual.content.cancelType);
+        assertEquals(expected.content.responseType, actual.content.responseType);
+        if (expected.content.userInfo == null) {
+            assertNull(actual.content.userInfo);
+        } else {
+            assertEquals(expected.content.userInfo.userID, actual.content.userInfo.userID);
+            assertEquals(expected.content.userInfo.userName, actual.content.userInfo.userName);
+        }
+    }
+
+    private static byte[] json(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void binaryRoundTrip() {
+        ZegoCallMessage invite = invite();
+        byte[] frame = ZegoCallMessageCodec.encodeBinary(invite);
+        assertEquals(ZegoCallMessageCodec.MAGIC, frame[0]);
+        ZegoCallMessage decoded = ZegoCallMessageCodec.decodeBinary(frame);
+        assertSameMessage(invite, decoded);
+        assertEquals(ZegoCallMessageCodec.VERSION, decoded.codecVersion);
+    }
+
+    @Test
+    public void binaryRoundTripOfEveryAction() {
+        ZegoCallMessage cancel = invite();
+        cancel.actionType = ZegoCallMessage.CANCEL_CALL;
+        cancel.content.callType = null;
+        cancel.content.cancelType = ZegoCancelType.TIMEOUT;
+        ZegoCallMessage response = invite();
+        response.actionType = ZegoCallMessage.RESPONSE_CALL;
+        response.content.callType = null;
+        response.content.responseType = ZegoResponseType.Reject;
+        ZegoCallMessage end = new ZegoCallMessage();
+        end.actionType = ZegoCallMessage.END_CALL;
+        end.target = Arrays.asList("a", "b", "c");
+        for (ZegoCallMessage message : Arrays.asList(cancel, response, end)) {
+            assertSameMessage(message, ZegoCallMessageCodec.decodeBinary(ZegoCallMessageCodec.encodeBinary(message)));
+        }
+    }
+
+    @Test
+    public void binaryKeepsNullsAndUnicode() {
+        ZegoCallMessage message = invite();
+        message.target = Arrays.asList("", null, "用户");
+        message.content.userInfo = new UserInfoBean(null, "Zoë 🎉");
+        ZegoCallMessage decoded = ZegoCallMessageCodec.decodeBinary(ZegoCallMessageCodec.encodeBinary(message));
+        assertSameMessage(message, decoded);
+
+        message.content.userInfo = null;
+        message.target = null;
+        assertSameMessage(message, ZegoCallMessageCodec.decodeBinary(ZegoCallMessageCodec.encodeBinary(message)));
+    }
+
+    @Test
+    public void tooLongStringCanNotBeBinary() {
+        char[] name = new char[0x10000];
+        Arrays.fill(name, 'x');
+        ZegoCallMessage message = invite();
+        message.content.userInfo.userName = new String(name);
+        assertNull(ZegoCallMessageCodec.encodeBinary(message));
+
+        // a binary peer still gets it, as JSON
+        codec.decode(codec.encode(invite(), PEER), PEER);
+        byte[] payload = codec.encode(message, PEER);
+        assertEquals('{', payload[0]);
+        assertSameMessage(message, codec.decode(payload, PEER));
+    }
+
+    @Test
+    public void malformedFramesAreDropped() {
+        byte[] frame = ZegoCallMessageCodec.encodeBinary(invite());
+        for (int length = 1; length < frame.length; length++) {
+            assertNull("prefix " + length, ZegoCallMessageCodec.decodeBinary(Arrays.copyOf(frame, length)));
+        }
+        byte[] futureVersion = frame.clone();
+        futureVersion[1] = ZegoCallMessageCodec.VERSION + 1;
+        assertNull(codec.decode(futureVersion, PEER));
+        assertNull(codec.decode(json("{\"action_type\":"), PEER));
+        assertNull(codec.decode(new byte[0], PEER));
+        assertNull(codec.decode(null, PEER));
+    }
+
+    @Test
+    public void unknownPeerGetsJsonWithVersion() {
+        byte[] payload = codec.encode(invite(), PEER);
+        assertEquals('{', payload[0]);
+        String json = new String(payload, StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("\"codec_version\":" + ZegoCallMessageCodec.VERSION));
+        assertTrue(json, json.contains("\"call_type\":2"));
+        assertSameMessage(invite(), codec.decode(payload, "other"));
+    }
+
+    @Test
+    public void peerAnnouncingTheVersionGetsBinary() {
+        codec.decode(json("{\"action_type\":1,\"target\":[\"me\"],\"codec_version\":1}"), PEER);
+        byte[] payload = codec.encode(invite(), PEER);
+        assertEquals(ZegoCallMessageCodec.MAGIC, payload[0]);
+        // other peers still get JSON
+        assertEquals('{', codec.encode(invite(), "other")[0]);
+    }
+
+    @Test
+    public void binaryFrameFromPeerSwitchesToBinary() {
+        codec.decode(ZegoCallMessageCodec.encodeBinary(invite()), PEER);
+        assertEquals(ZegoCallMessageCodec.MAGIC, codec.encode(invite(), PEER)[0]);
+    }
+
+    @Test
+    public void olderPeerGetsJsonAgain() {
+        codec.decode(ZegoCallMessageCodec.encodeBinary(invite()), PEER);
+        // the peer reinstalled an app that only knows JSON
+        ZegoCallMessage legacy = codec.decode(
+            json("{\"action_type\":3,\"target\":[\"me\"],\"content\":{\"response_type\":1}}"), PEER);
+        assertEquals(ZegoResponseType.Accept, legacy.content.responseType);
+        assertEquals(0, legacy.codecVersion);
+        assertEquals('{', codec.encode(invite(), PEER)[0]);
+    }
+
+    @Test
+    public void resetForgetsPeers() {
+        codec.decode(ZegoCallMessageCodec.encodeBinary(invite()), PEER);
+        codec.reset();
+        assertEquals('{', codec.encode(invite(), PEER)[0]);
+    }
+
+    @Test
+    public void binaryIsSmallerThanJson() {
+        byte[] json = GsonHelper.getGson().toJson(invite()).getBytes(StandardCharsets.UTF_8);
+        byte[] binary = ZegoCallMessageCodec.encodeBinary(invite());
+        // a third of the JSON at most
+        assertTrue("json " + json.length + " bytes, binary " + binary.length + " bytes",
+            binary.length * 3 < json.length);
+    }
+}